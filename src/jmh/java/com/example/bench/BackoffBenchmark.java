@@ -0,0 +1,25 @@
+package com.example.bench;
+
+import com.example.retry.ExponentialBackoff;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackoffBenchmark {
+
+    @Param({"1", "3", "10"})
+    public int attempt;
+
+    private final ExponentialBackoff backoff = new ExponentialBackoff();
+
+    @Benchmark
+    public Duration getDelay() {
+        return backoff.getDelay(attempt);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bench;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.worker.TaskHandler;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.UUID;
+
+// Shared setup for the benchmarks
+final class BenchSupport {
+
+    private BenchSupport() {}
+
+    // Per-task logging would dominate most of these workloads
+    static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    // Fresh private in-memory H2 database with the production schema
+    static DatabaseManager memoryDb() throws SQLException {
+        DatabaseManager db = new DatabaseManager(
+            "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        return db;
+    }
+
+    static class NoopHandler implements TaskHandler {
+        @Override
+        public String getTaskType() {
+            return "noop";
+        }
+
+        @Override
+        public String handle(Task task) {
+            return null;
+        }
+    }
+}
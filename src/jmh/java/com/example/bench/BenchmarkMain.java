@@ -0,0 +1,35 @@
+package com.example.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of target/benchmarks.jar. Same options as JMH's own Main,
+// but results default to JSON in jmh-result-<version>.json so runs can be
+// compared across releases. Pass -rf/-rff to override.
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+            builder.result("jmh-result-" + (version != null ? version : "dev") + ".json");
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bench;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// DatabaseManager statements against a tasks table pre-filled with
+// tableSize PENDING rows, to show how each one scales with backlog.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    private DatabaseManager db;
+    private Task existing;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchSupport.silenceStdout();
+        db = BenchSupport.memoryDb();
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < tableSize; i++) {
+            batch.add(new Task("noop", "payload-" + i));
+            if (batch.size() == 1000) {
+                db.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) db.saveAll(batch);
+        existing = new Task("noop", "existing");
+        db.save(existing);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    // Insert then delete, so the table size stays at tableSize
+    @Benchmark
+    public void saveAndDelete() throws Exception {
+        Task task = new Task("noop", "payload");
+        db.save(task);
+        db.delete(task.getId());
+    }
+
+    @Benchmark
+    public void update() throws Exception {
+        existing.incrementRetry();
+        db.update(existing);
+    }
+
+    @Benchmark
+    public List<Task> getPendingTasks() throws Exception {
+        return db.getPendingTasks();
+    }
+}
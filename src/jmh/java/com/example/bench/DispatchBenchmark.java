@@ -0,0 +1,112 @@
+package com.example.bench;
+
+import com.example.model.Task;
+import com.example.queue.InMemoryTaskQueue;
+import com.example.worker.WorkStealingDispatcher;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.*;
+
+// Dispatch throughput with no-op handlers: one producer, N consumers.
+// "shared" is what PersistentTaskQueue.poll() does today (every worker takes
+// from one LinkedBlockingQueue); "stealing" goes through WorkStealingDispatcher.
+// InMemoryTaskQueue is used so H2 writes don't drown out the dispatch cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final int TASKS_PER_OP = 10_000;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int workers;
+
+    @Param({"shared", "stealing"})
+    public String mode;
+
+    @Param({"16"})
+    public int prefetch;
+
+    private InMemoryTaskQueue queue;
+    private WorkStealingDispatcher dispatcher;
+    private Task[] tasks;
+    private final LongAdder consumed = new LongAdder();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Queue logging would dominate a no-op workload
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        queue = new InMemoryTaskQueue();
+        dispatcher = new WorkStealingDispatcher(queue, prefetch);
+        tasks = new Task[TASKS_PER_OP];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("noop", "");
+        }
+
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(mode.equals("stealing") ? this::stealingLoop : this::sharedLoop);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    private void sharedLoop() {
+        try {
+            while (running) {
+                if (queue.poll(100, TimeUnit.MILLISECONDS) != null) {
+                    consumed.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stealingLoop() {
+        WorkStealingDispatcher.LocalQueue local = dispatcher.register();
+        try {
+            while (running) {
+                if (dispatcher.next(local) != null) {
+                    consumed.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            dispatcher.unregister(local);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        threads.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS_PER_OP)
+    public void submitAndDrain() {
+        long target = consumed.sum() + TASKS_PER_OP;
+        for (Task task : tasks) {
+            queue.submit(task);
+        }
+        while (consumed.sum() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
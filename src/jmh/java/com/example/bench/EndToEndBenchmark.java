@@ -0,0 +1,60 @@
+package com.example.bench;
+
+import com.example.db.DatabaseManager;
+import com.example.metrics.MetricsCollector;
+import com.example.model.Task;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.PersistentTaskQueue;
+import com.example.worker.WorkerPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Submit-to-complete through the real PersistentTaskQueue + WorkerPool
+// with a no-op handler: persist, dispatch, claim, complete.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final int TASKS_PER_OP = 500;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private DatabaseManager db;
+    private PersistentTaskQueue taskQueue;
+    private WorkerPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchSupport.silenceStdout();
+        db = BenchSupport.memoryDb();
+        taskQueue = new PersistentTaskQueue(db, null, 10_000);
+        pool = new WorkerPool(workers, taskQueue, new DeadLetterQueue());
+        pool.registerHandler(new BenchSupport.NoopHandler());
+        pool.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        taskQueue.shutdown();
+        db.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS_PER_OP)
+    public void submitToComplete() {
+        long target = metrics.getTasksCompleted() + TASKS_PER_OP;
+        for (int i = 0; i < TASKS_PER_OP; i++) {
+            taskQueue.submit(new Task("noop", "payload"));
+        }
+        while (metrics.getTasksCompleted() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
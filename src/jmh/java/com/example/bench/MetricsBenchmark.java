@@ -0,0 +1,36 @@
+package com.example.bench;
+
+import com.example.metrics.MetricsCollector;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Recording cost of the shared MetricsCollector, alone and with every
+// worker thread hitting the same counters
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+
+    @Benchmark
+    @Threads(1)
+    public void recordSuccessUncontended() {
+        metrics.recordSuccess(5);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordSuccessContended() {
+        metrics.recordSuccess(5);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordSubmitContended() {
+        metrics.recordSubmit();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bench;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.queue.InMemoryTaskQueue;
+import com.example.queue.PersistentTaskQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Submit + poll through the two LinkedBlockingQueue-backed queues.
+// The persistent variant also completes the task so the table stays small
+// and every iteration measures the same insert/delete lifecycle.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBenchmark {
+
+    private InMemoryTaskQueue memoryQueue;
+    private PersistentTaskQueue persistentQueue;
+    private DatabaseManager db;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchSupport.silenceStdout();
+        memoryQueue = new InMemoryTaskQueue();
+        db = BenchSupport.memoryDb();
+        persistentQueue = new PersistentTaskQueue(db, null, 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        persistentQueue.shutdown();
+        db.close();
+    }
+
+    @Benchmark
+    public Task inMemorySubmitPoll() throws InterruptedException {
+        memoryQueue.submit(new Task("noop", "payload"));
+        return memoryQueue.poll();
+    }
+
+    @Benchmark
+    public Task persistentSubmitPollComplete() throws InterruptedException {
+        persistentQueue.submit(new Task("noop", "payload"));
+        Task task = persistentQueue.poll();
+        persistentQueue.completeTask(task);
+        return task;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bench;
+
+import com.example.model.Task;
+import com.example.queue.RingBufferTaskQueue;
+import com.example.queue.WaitStrategy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// RingBufferTaskQueue vs the LinkedBlockingQueue that backs InMemoryTaskQueue
+// and PersistentTaskQueue (bounded to the same capacity so a fast producer
+// can't grow it without limit). The queue wrappers themselves log on submit,
+// so the raw structures are compared here.
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RingBufferBenchmark {
+
+    private static final int CAPACITY = 4096;
+
+    @Param({"ring-spin", "ring-yield", "ring-park", "lbq"})
+    public String impl;
+
+    private BenchQueue queue;
+    private Task task;
+
+    interface BenchQueue {
+        boolean offer(Task task);
+        Task poll();
+        // Wait briefly when full/empty, so the wait strategy is exercised
+        // (bounded so no thread is stuck when the iteration ends)
+        boolean put(Task task) throws InterruptedException;
+        Task take() throws InterruptedException;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        task = new Task("noop", "");
+        queue = switch (impl) {
+            case "ring-spin" -> ring(WaitStrategy.SPIN);
+            case "ring-yield" -> ring(WaitStrategy.YIELD);
+            case "ring-park" -> ring(WaitStrategy.PARK);
+            default -> {
+                LinkedBlockingQueue<Task> lbq = new LinkedBlockingQueue<>(CAPACITY);
+                yield new BenchQueue() {
+                    public boolean offer(Task t) { return lbq.offer(t); }
+                    public Task poll() { return lbq.poll(); }
+                    public boolean put(Task t) throws InterruptedException {
+                        return lbq.offer(t, 1, TimeUnit.MILLISECONDS);
+                    }
+                    public Task take() throws InterruptedException {
+                        return lbq.poll(1, TimeUnit.MILLISECONDS);
+                    }
+                };
+            }
+        };
+    }
+
+    private static BenchQueue ring(WaitStrategy strategy) {
+        RingBufferTaskQueue ring = new RingBufferTaskQueue(CAPACITY, strategy);
+        return new BenchQueue() {
+            public boolean offer(Task t) { return ring.offer(t); }
+            public Task poll() { return ring.tryPoll(); }
+            public boolean put(Task t) {
+                long deadline = System.nanoTime() + 1_000_000;
+                int attempt = 0;
+                while (!ring.offer(t)) {
+                    if (System.nanoTime() - deadline >= 0) return false;
+                    strategy.idle(attempt++);
+                }
+                return true;
+            }
+            public Task take() throws InterruptedException {
+                return ring.poll(1, TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+
+    // Latency of an uncontended enqueue + dequeue pair
+    @Benchmark
+    @Group("roundTrip")
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Task roundTrip() {
+        queue.offer(task);
+        return queue.poll();
+    }
+
+    // Throughput with 4 producers and 4 consumers hammering the same queue
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean produce() throws InterruptedException {
+        return queue.put(task);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void consume(Blackhole bh) throws InterruptedException {
+        bh.consume(queue.take());
+    }
+}
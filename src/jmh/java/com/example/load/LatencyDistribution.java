@@ -0,0 +1,55 @@
+package com.example.load;
+
+import java.util.Random;
+
+// Handler latency model. Parsed from specs like:
+//   fixed:5            always 5 ms
+//   uniform:1:20       1-20 ms
+//   exp:15             exponential, mean 15 ms
+//   lognormal:10:200   log-normal, median 10 ms, p99 200 ms (long tail)
+public interface LatencyDistribution {
+
+    // Next latency in microseconds
+    long sampleMicros(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return fixed(Double.parseDouble(parts[1]));
+                case "uniform":
+                    return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "exp":
+                    return exponential(Double.parseDouble(parts[1]));
+                case "lognormal":
+                    return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Bad latency spec: " + spec);
+    }
+
+    static LatencyDistribution fixed(double ms) {
+        long micros = Math.round(ms * 1000);
+        return random -> micros;
+    }
+
+    static LatencyDistribution uniform(double minMs, double maxMs) {
+        return random -> Math.round((minMs + random.nextDouble() * (maxMs - minMs)) * 1000);
+    }
+
+    static LatencyDistribution exponential(double meanMs) {
+        return random -> Math.round(-Math.log(1 - random.nextDouble()) * meanMs * 1000);
+    }
+
+    static LatencyDistribution logNormal(double medianMs, double p99Ms) {
+        double mu = Math.log(medianMs);
+        // z(0.99) = 2.326
+        double sigma = Math.max(0, Math.log(p99Ms / medianMs) / 2.326);
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()) * 1000);
+    }
+}
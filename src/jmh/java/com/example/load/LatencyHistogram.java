@@ -0,0 +1,61 @@
+package com.example.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free log-linear histogram of microsecond latencies: exact below 64us,
+// then 64 buckets per power of two (about 1.5% precision) up to ~19 hours.
+// Fixed size, so recording allocates nothing and a soak can run for hours.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int index(long micros) {
+        if (micros < SUB_COUNT) return (int) Math.max(0, micros);
+        int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(micros));
+        int sub = (int) ((micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    // Upper edge of a bucket (what a percentile in it reports)
+    private static long valueAt(int index) {
+        if (index < SUB_COUNT) return index;
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(micros));
+        total.incrementAndGet();
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // Latency at the given percentile (0-100) in microseconds
+    public long percentile(double percentile) {
+        long count = total.get();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(valueAt(i), max.get());
+        }
+        return max.get();
+    }
+}
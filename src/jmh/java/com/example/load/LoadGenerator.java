@@ -0,0 +1,435 @@
+package com.example.load;
+
+import com.example.api.TaskServer;
+import com.example.db.DatabaseManager;
+import com.example.db.StorageMaintenance;
+import com.example.metrics.MetricsCollector;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.Durability;
+import com.example.queue.PersistentTaskQueue;
+import com.example.worker.WorkerPool;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Open-loop load generator and soak harness for the REST API.
+//
+// Requests are scheduled at fixed intended send times (or Poisson arrivals)
+// regardless of how fast the server answers, and latency is measured from
+// the intended time, not the actual send. When the server stalls the backlog
+// of late requests shows up in the percentiles instead of silently lowering
+// the offered load (coordinated omission). Uncorrected numbers are reported
+// alongside for comparison.
+//
+// By default it starts the whole stack in-process (file-backed H2, worker
+// pool, maintenance, TaskServer on a free port) with synthetic handlers, so
+// it can also report database size growth and GC activity. --url drives an
+// already running server instead (client-side numbers only).
+// --durability email=memory_only (repeatable) sets a type's durability mode
+// on the embedded queue, to compare what each mode costs under load.
+//
+//   java -cp target/benchmarks.jar com.example.load.LoadGenerator \
+//        --rate 200 --duration 2h --mix email=80,report=20 \
+//        --handler email=lognormal:20:400@0.05 --handler report=uniform:200:2000/4
+public class LoadGenerator {
+
+    private static final Pattern COMPLETED = Pattern.compile("\"completed\":(\\d+)");
+    private static final Pattern FAILED = Pattern.compile("\"failed\":(\\d+)");
+
+    private final PrintStream out;
+    private final Options options;
+    private final HttpClient http = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5)).build();
+    private final Random random = new Random();
+
+    // Cumulative and per-report-interval histograms
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram totalUncorrected = new LatencyHistogram();
+    private volatile LatencyHistogram interval = new LatencyHistogram();
+    private volatile LatencyHistogram intervalUncorrected = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong lateSends = new AtomicLong();
+    // HTTP status or exception class -> count
+    private final Map<String, AtomicLong> errorCauses = new ConcurrentHashMap<>();
+
+    private String baseUrl;
+    private Path dbDir;
+    // Reporting state, only touched by the sending thread
+    private long start;
+    private long nextReport;
+    private double currentRate;
+    private long lastGcCount;
+    private long lastGcMillis;
+
+    static final class Options {
+        final List<long[]> rates = new ArrayList<>();  // {tasks/s, duration ms}
+        final Map<String, Integer> mix = new LinkedHashMap<>();
+        final Map<Integer, Integer> delays = new LinkedHashMap<>();  // seconds -> weight
+        final List<SyntheticHandler> handlers = new ArrayList<>();
+        final Map<String, Durability> durability = new LinkedHashMap<>();
+        String url;
+        boolean poisson;
+        int maxInFlight = 10_000;
+        int minWorkers = 4;
+        int maxWorkers = 32;
+        double endToEndSample = 0.01;
+        Duration reportEvery = Duration.ofSeconds(10);
+        Path csv;
+        Path dbDir = Path.of("./data/loadtest");
+    }
+
+    LoadGenerator(Options options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+        PrintStream out = System.out;
+        // Per-task logging from the embedded server would swamp the report
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        new LoadGenerator(options, out).run();
+        System.exit(0);
+    }
+
+    void run() throws Exception {
+        Runnable stopServer = options.url == null ? startServer() : null;
+        if (options.url != null) baseUrl = options.url;
+        out.println("[LOAD] Target " + baseUrl + (options.poisson ? ", Poisson" : ", constant")
+            + " arrivals, mix " + options.mix + ", delays " + options.delays);
+
+        try (PrintWriter csv = options.csv != null ? new PrintWriter(Files.newBufferedWriter(options.csv)) : null) {
+            if (csv != null) {
+                csv.println("elapsed_s,offered_rps,sent,errors,late_sends,completed,failed,"
+                    + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,p99_uncorrected_ms,db_mb,heap_mb,gc_count,gc_ms");
+            }
+            drive(csv);
+        }
+
+        report("TOTAL", total, totalUncorrected);
+        if (endToEnd.count() > 0) {
+            out.printf("[LOAD] Submit-to-finish (%d sampled): p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                endToEnd.count(), ms(endToEnd.percentile(50)), ms(endToEnd.percentile(99)),
+                ms(endToEnd.max()));
+        }
+        if (stopServer != null) stopServer.run();
+    }
+
+    // Whole stack in this JVM; returns how to stop it
+    private Runnable startServer() throws Exception {
+        dbDir = options.dbDir;
+        Files.createDirectories(dbDir);
+        DatabaseManager db = new DatabaseManager("jdbc:h2:" + dbDir.toAbsolutePath().resolve("javaqueue"));
+        db.init();
+        StorageMaintenance maintenance = new StorageMaintenance(db);
+        maintenance.start();
+        PersistentTaskQueue taskQueue = new PersistentTaskQueue(db, null, 10_000);
+        options.durability.forEach(taskQueue::setDurability);
+        DeadLetterQueue dlq = new DeadLetterQueue();
+        WorkerPool pool = new WorkerPool(options.minWorkers, options.maxWorkers, taskQueue, dlq);
+        for (SyntheticHandler handler : options.handlers) pool.registerHandler(handler);
+        pool.start();
+        TaskServer server = new TaskServer(0, taskQueue, dlq, pool);
+        baseUrl = "http://localhost:" + server.port();
+        return () -> {
+            server.stop();
+            pool.shutdown();
+            taskQueue.shutdown();
+            maintenance.shutdown();
+            try {
+                db.close();
+            } catch (Exception e) {
+                out.println("[LOAD] Failed to close database: " + e.getMessage());
+            }
+        };
+    }
+
+    // Send on schedule until every rate step has run its course
+    private void drive(PrintWriter csv) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        List<String> types = weighted(options.mix);
+        List<Integer> delays = weighted(options.delays);
+        start = System.nanoTime();
+        nextReport = start + options.reportEvery.toNanos();
+        lastGcCount = gcCount();
+        lastGcMillis = gcMillis();
+        long stepStart = start;
+        long intended = start;
+
+        for (long[] step : options.rates) {
+            currentRate = step[0];
+            long stepEnd = stepStart + step[1] * 1_000_000;
+            out.printf("[LOAD] Offering %.0f tasks/s for %s%n", currentRate, Duration.ofMillis(step[1]));
+            intended = Math.max(intended, stepStart);
+            while (true) {
+                intended += (long) (options.poisson
+                    ? -Math.log(1 - random.nextDouble()) * 1e9 / currentRate
+                    : 1e9 / currentRate);
+                if (intended >= stepEnd) break;
+
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    maybeReport(csv, now);
+                    LockSupport.parkNanos(Math.min(intended, nextReport) - now);
+                }
+                maybeReport(csv, now);
+                // Intended time already passed by a lot: the generator (or the
+                // in-flight cap) is the bottleneck, not just the server
+                if (now - intended > 1_000_000) lateSends.incrementAndGet();
+                inFlight.acquire();
+                send(intended, types.get(random.nextInt(types.size())),
+                     delays.get(random.nextInt(delays.size())), inFlight);
+            }
+            stepStart = stepEnd;
+        }
+        // Let stragglers finish
+        inFlight.acquire(options.maxInFlight);
+        maybeReport(csv, Math.max(System.nanoTime(), nextReport));
+    }
+
+    private void maybeReport(PrintWriter csv, long now) {
+        if (now < nextReport) return;
+        reportInterval(csv, (now - start) / 1e9);
+        nextReport += options.reportEvery.toNanos();
+    }
+
+    private void send(long intended, String type, int delaySeconds, Semaphore inFlight) {
+        long sendTime = System.nanoTime();
+        String body = "{\"type\":\"" + type + "\",\"payload\":\"load-" + sent.incrementAndGet() + "\""
+            + (delaySeconds > 0 ? ",\"delay\":\"" + delaySeconds + "\"" : "") + "}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/tasks/submit"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        boolean track = delaySeconds == 0 && random.nextDouble() < options.endToEndSample;
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            inFlight.release();
+            if (error != null || response.statusCode() >= 300) {
+                errors.incrementAndGet();
+                Throwable cause = error != null && error.getCause() != null ? error.getCause() : error;
+                String key = cause != null ? cause.getClass().getSimpleName() : "HTTP " + response.statusCode();
+                errorCauses.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+                return;
+            }
+            long corrected = (done - intended) / 1000;
+            long uncorrected = (done - sendTime) / 1000;
+            total.record(corrected);
+            interval.record(corrected);
+            totalUncorrected.record(uncorrected);
+            intervalUncorrected.record(uncorrected);
+            if (track) awaitFinish(response.body(), intended);
+        });
+    }
+
+    // Long-poll a sampled task to measure time from intended submit to finish
+    private void awaitFinish(String submitResponse, long intended) {
+        Matcher m = Pattern.compile("\"taskId\":\"([^\"]+)\"").matcher(submitResponse);
+        if (!m.find()) return;
+        HttpRequest wait = HttpRequest.newBuilder(URI.create(baseUrl + "/tasks/" + m.group(1) + "/wait?timeout=60"))
+            .timeout(Duration.ofSeconds(70)).build();
+        http.sendAsync(wait, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+            if (response.statusCode() == 200) endToEnd.record((System.nanoTime() - intended) / 1000);
+        });
+    }
+
+    private void reportInterval(PrintWriter csv, double elapsed) {
+        LatencyHistogram h = interval;
+        LatencyHistogram u = intervalUncorrected;
+        interval = new LatencyHistogram();
+        intervalUncorrected = new LatencyHistogram();
+
+        long[] finished = serverCounts();
+        double dbMb = dbSizeBytes() / 1e6;
+        double heapMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1e6;
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long gcCountDelta = gcCount - lastGcCount;
+        long gcMillisDelta = gcMillis - lastGcMillis;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+
+        out.printf("[LOAD] %6.0fs  sent %d  err %d  late %d  done %d  failed %d  "
+                + "p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f ms (uncorrected p99 %.1f)  "
+                + "db %.1f MB  heap %.0f MB  gc %d / %d ms%n",
+            elapsed, sent.get(), errors.get(), lateSends.get(), finished[0], finished[1],
+            ms(h.percentile(50)), ms(h.percentile(99)), ms(h.percentile(99.9)), ms(h.max()),
+            ms(u.percentile(99)), dbMb, heapMb, gcCountDelta, gcMillisDelta);
+        if (csv != null) {
+            csv.printf("%.0f,%.0f,%d,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.1f,%.0f,%d,%d%n",
+                elapsed, currentRate, sent.get(), errors.get(), lateSends.get(), finished[0], finished[1],
+                ms(h.percentile(50)), ms(h.percentile(90)), ms(h.percentile(99)), ms(h.percentile(99.9)),
+                ms(h.max()), ms(u.percentile(99)), dbMb, heapMb, gcCountDelta, gcMillisDelta);
+            csv.flush();
+        }
+    }
+
+    private void report(String label, LatencyHistogram h, LatencyHistogram u) {
+        out.printf("[LOAD] %s submit latency (%d requests, %d errors, %d late sends):%n",
+            label, h.count(), errors.get(), lateSends.get());
+        for (double p : new double[] {50, 90, 99, 99.9, 99.99}) {
+            out.printf("[LOAD]   p%-6s %9.2f ms   (uncorrected %9.2f ms)%n",
+                p, ms(h.percentile(p)), ms(u.percentile(p)));
+        }
+        out.printf("[LOAD]   max     %9.2f ms   (uncorrected %9.2f ms)%n", ms(h.max()), ms(u.max()));
+        if (!errorCauses.isEmpty()) out.println("[LOAD]   errors: " + errorCauses);
+        out.printf("[LOAD] GC: %d collections, %d ms total; database %.1f MB%n",
+            gcCount(), gcMillis(), dbSizeBytes() / 1e6);
+    }
+
+    // Completed / failed as the server counts them
+    private long[] serverCounts() {
+        if (options.url == null) {
+            MetricsCollector metrics = MetricsCollector.getInstance();
+            return new long[] {metrics.getTasksCompleted(), metrics.getTasksFailed()};
+        }
+        try {
+            String body = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+            return new long[] {extract(COMPLETED, body), extract(FAILED, body)};
+        } catch (IOException | InterruptedException e) {
+            return new long[] {-1, -1};
+        }
+    }
+
+    private static long extract(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    // Size of the embedded database files (0 when driving a remote server)
+    private long dbSizeBytes() {
+        if (dbDir == null) return 0;
+        try (Stream<Path> files = Files.list(dbDir)) {
+            return files.mapToLong(f -> f.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    // Each key repeated by its weight, for uniform picking
+    private static <T> List<T> weighted(Map<T, Integer> weights) {
+        List<T> list = new ArrayList<>();
+        weights.forEach((key, weight) -> {
+            for (int i = 0; i < weight; i++) list.add(key);
+        });
+        return list;
+    }
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        Duration duration = Duration.ofMinutes(1);
+        String rates = "100";
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (arg) {
+                case "--rate" -> rates = value;
+                case "--duration" -> duration = parseDuration(value);
+                case "--mix" -> parseWeights(value, options.mix, s -> s);
+                case "--delays" -> parseWeights(value, options.delays, Integer::parseInt);
+                case "--handler" -> options.handlers.add(SyntheticHandler.parse(value));
+                case "--durability" -> {
+                    String[] kv = value.split("=");
+                    options.durability.put(kv[0], Durability.valueOf(kv[1].toUpperCase()));
+                }
+                case "--poisson" -> { options.poisson = true; continue; }
+                case "--url" -> options.url = value;
+                case "--max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "--workers" -> {
+                    String[] range = value.split("-");
+                    options.minWorkers = Integer.parseInt(range[0]);
+                    options.maxWorkers = Integer.parseInt(range[range.length - 1]);
+                }
+                case "--e2e-sample" -> options.endToEndSample = Double.parseDouble(value);
+                case "--report-every" -> options.reportEvery = parseDuration(value);
+                case "--csv" -> options.csv = Path.of(value);
+                case "--db-dir" -> options.dbDir = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            i++;
+        }
+        // "200" for the whole run, or steps like "100:10m,500:5m,100:10m"
+        for (String step : rates.split(",")) {
+            String[] parts = step.split(":");
+            Duration length = parts.length > 1 ? parseDuration(parts[1]) : duration;
+            options.rates.add(new long[] {Long.parseLong(parts[0]), length.toMillis()});
+        }
+        if (options.handlers.isEmpty()) {
+            options.handlers.add(SyntheticHandler.parse("email=lognormal:20:400@0.05"));
+            options.handlers.add(SyntheticHandler.parse("report=uniform:200:2000/4"));
+        }
+        if (options.mix.isEmpty()) {
+            for (SyntheticHandler handler : options.handlers) options.mix.put(handler.getTaskType(), 1);
+        }
+        if (options.delays.isEmpty()) options.delays.put(0, 1);
+        return options;
+    }
+
+    private static <T> void parseWeights(String spec, Map<T, Integer> into,
+                                         Function<String, T> key) {
+        for (String entry : spec.split(",")) {
+            String[] kv = entry.split("=");
+            into.put(key.apply(kv[0]), kv.length > 1 ? Integer.parseInt(kv[1]) : 1);
+        }
+    }
+
+    // 90s, 15m, 2h or plain seconds
+    private static Duration parseDuration(String spec) {
+        char unit = spec.charAt(spec.length() - 1);
+        if (Character.isDigit(unit)) return Duration.ofSeconds(Long.parseLong(spec));
+        long amount = Long.parseLong(spec.substring(0, spec.length() - 1));
+        return switch (unit) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Bad duration: " + spec);
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.load;
+
+import com.example.model.Task;
+import com.example.worker.TaskHandler;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Handler with a configurable latency distribution and failure rate, for
+// load tests. Spec: "<type>=<latency spec>[@<failure rate>][/<threads>]",
+// e.g. "email=lognormal:20:400@0.05" or "report=uniform:200:2000/4".
+public class SyntheticHandler implements TaskHandler {
+
+    private final String type;
+    private final LatencyDistribution latency;
+    private final double failureRate;
+    private final int maxConcurrency;
+
+    public SyntheticHandler(String type, LatencyDistribution latency, double failureRate, int maxConcurrency) {
+        this.type = type;
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public static SyntheticHandler parse(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0) throw new IllegalArgumentException("Bad handler spec: " + spec);
+        String type = spec.substring(0, eq);
+        String rest = spec.substring(eq + 1);
+        int threads = 0;
+        int slash = rest.indexOf('/');
+        if (slash >= 0) {
+            threads = Integer.parseInt(rest.substring(slash + 1));
+            rest = rest.substring(0, slash);
+        }
+        double failureRate = 0;
+        int at = rest.indexOf('@');
+        if (at >= 0) {
+            failureRate = Double.parseDouble(rest.substring(at + 1));
+            rest = rest.substring(0, at);
+        }
+        return new SyntheticHandler(type, LatencyDistribution.parse(rest), failureRate, threads);
+    }
+
+    @Override
+    public String getTaskType() {
+        return type;
+    }
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public String handle(Task task) throws Exception {
+        Random random = ThreadLocalRandom.current();
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(latency.sampleMicros(random));
+        // Park rather than sleep so sub-millisecond latencies are honoured
+        for (long left; (left = deadline - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new Exception("Synthetic failure");
+        }
+        return null;
+    }
+}
@@ -2,9 +2,12 @@ package com.example;
 
 import com.example.api.TaskServer;
 import com.example.db.DatabaseManager;
-import com.example.handlers.EmailTaskHandler;
-import com.example.handlers.ReportTaskHandler;
+import com.example.db.ShardedDatabaseManager;
+import com.example.db.StorageMaintenance;
+import com.example.metrics.FlightRecording;
+import com.example.metrics.TaskTracer;
 import com.example.queue.DeadLetterQueue;
+import com.example.queue.Durability;
 import com.example.queue.PersistentTaskQueue;
 import com.example.worker.WorkerPool;
 
@@ -15,22 +18,35 @@ public class App {
         System.out.println("       JAVAQUEUE - Task Queue System       ");
         System.out.println("===========================================\n");
 
-        // 1. Initialize database
-        DatabaseManager db = new DatabaseManager();
+        // 1. Initialize database (-Djavaqueue.db.shards=N spreads tasks over N files)
+        int shards = Integer.getInteger("javaqueue.db.shards", 1);
+        DatabaseManager db = shards > 1 ? new ShardedDatabaseManager(shards) : new DatabaseManager();
         db.init();
+        // Archive finished tasks, apply retention, compact the file daily
+        StorageMaintenance maintenance = new StorageMaintenance(db);
+        maintenance.start();
 
         // 2. Create persistent queue and DLQ
         PersistentTaskQueue taskQueue = new PersistentTaskQueue(db);
+        // Emails are frequent and small: share commits instead of one each
+        taskQueue.setDurability("email", Durability.GROUP_COMMIT);
         DeadLetterQueue dlq = new DeadLetterQueue();
 
-        // 3. Create and start worker pool
-        WorkerPool pool = new WorkerPool(3, taskQueue, dlq);
-        pool.registerHandler(new EmailTaskHandler());
-        pool.registerHandler(new ReportTaskHandler());
+        // 3. Create and start worker pool (scales between 2 and 8 workers)
+        WorkerPool pool = new WorkerPool(2, 8, taskQueue, dlq);
+        // Built-in handlers via ServiceLoader, plus any plugin jars in ./plugins
+        pool.getHandlers().discover();
+        pool.getHandlers().reload();
         pool.start();
 
         // 4. Start REST API server
-        TaskServer server = new TaskServer(8080, taskQueue, dlq);
+        TaskServer server = new TaskServer(8080, taskQueue, dlq, pool);
+        // -Djavaqueue.jfr=default keeps a rolling JFR recording from startup
+        String jfr = System.getProperty("javaqueue.jfr");
+        if (jfr != null) FlightRecording.getInstance().start(jfr);
+        // -Djavaqueue.trace.sample=0.1 traces 10% of tasks instead of 1%
+        String traceSample = System.getProperty("javaqueue.trace.sample");
+        if (traceSample != null) TaskTracer.getInstance().setSampleRate(Double.parseDouble(traceSample));
 
         // 5. Shutdown hook for graceful exit (Ctrl+C)
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -38,6 +54,7 @@ public class App {
             server.stop();
             pool.shutdown();
             taskQueue.shutdown();
+            maintenance.shutdown();
             try { db.close(); } catch (Exception e) { }
             dlq.printSummary();
         }));
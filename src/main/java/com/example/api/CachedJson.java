@@ -0,0 +1,98 @@
+package com.example.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.http.Context;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+// A JSON view encoded once per state change and served as raw bytes.
+// The source is only re-read and re-serialized when its version has moved
+// (and, for busy views, at most every minRebuildMillis); every other request
+// writes the cached bytes, gzipped if the client accepts it, or answers 304
+// when the client already has them. The ETag is a hash of the content, so it
+// survives restarts and unchanged rebuilds still revalidate.
+class CachedJson {
+
+    // Smaller bodies aren't worth compressing
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final ObjectMapper mapper;
+    private final LongSupplier version;
+    private final Supplier<?> source;
+    private final long minRebuildNanos;
+    private final ReentrantLock rebuild = new ReentrantLock();
+    private volatile Encoded current;
+
+    private record Encoded(long version, long builtAt, byte[] json, byte[] gzip, String etag) {}
+
+    CachedJson(ObjectMapper mapper, LongSupplier version, Supplier<?> source, long minRebuildMillis) {
+        this.mapper = mapper;
+        this.version = version;
+        this.source = source;
+        this.minRebuildNanos = minRebuildMillis * 1_000_000;
+    }
+
+    private Encoded get() throws IOException {
+        Encoded encoded = current;
+        if (encoded != null && !isStale(encoded)) return encoded;
+        // One rebuild at a time; others keep serving the previous bytes
+        if (encoded != null && !rebuild.tryLock()) return encoded;
+        if (encoded == null) rebuild.lock();
+        try {
+            encoded = current;
+            if (encoded == null || isStale(encoded)) {
+                // Read the version first: a change during the build triggers another
+                long v = version.getAsLong();
+                encoded = encode(v, mapper.writeValueAsBytes(source.get()));
+                current = encoded;
+            }
+            return encoded;
+        } finally {
+            rebuild.unlock();
+        }
+    }
+
+    private boolean isStale(Encoded encoded) {
+        return encoded.version != version.getAsLong()
+            && System.nanoTime() - encoded.builtAt >= minRebuildNanos;
+    }
+
+    private static Encoded encode(long version, byte[] json) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(json.length) + "\"";
+        byte[] gzip = null;
+        if (json.length >= GZIP_MIN_BYTES) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+                zip.write(json);
+            }
+            gzip = out.toByteArray();
+        }
+        return new Encoded(version, System.nanoTime(), json, gzip, etag);
+    }
+
+    void serve(Context ctx) throws IOException {
+        Encoded encoded = get();
+        ctx.header("ETag", encoded.etag);
+        ctx.header("Cache-Control", "no-cache");
+        ctx.header("Vary", "Accept-Encoding");
+        if (encoded.etag.equals(ctx.header("If-None-Match"))) {
+            ctx.status(304);
+            return;
+        }
+        ctx.contentType("application/json");
+        String accept = ctx.header("Accept-Encoding");
+        if (encoded.gzip != null && accept != null && accept.contains("gzip")) {
+            ctx.header("Content-Encoding", "gzip");
+            ctx.result(encoded.gzip);
+        } else {
+            ctx.result(encoded.json);
+        }
+    }
+}
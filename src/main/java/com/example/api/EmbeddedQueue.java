@@ -0,0 +1,187 @@
+package com.example.api;
+
+import com.example.metrics.MetricsCollector;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.queue.PersistentTaskQueue;
+import com.example.queue.StorageException;
+import com.example.worker.WorkerPool;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// In-process API for code running in the same JVM as the queue: Task objects
+// in, TaskResult objects out, no HTTP or JSON in between.
+// submit() returns a future that completes with the task's outcome
+// (completed, failed/dead-lettered or cancelled), so work can be chained with
+// thenCompose; cancelling the future cancels the task. Futures complete on
+// the delivery threads, never on a worker, so slow callbacks don't hold up
+// task processing. completions() streams every outcome (including tasks
+// submitted over HTTP) to subscribers as they request them; each subscriber
+// has a buffer of bufferCapacity events and misses events beyond it
+// (counted by getDroppedEvents()) instead of stalling the workers.
+// A task that coalesces into a pending one gets that task's outcome; its
+// future can't cancel the shared task.
+public class EmbeddedQueue implements AutoCloseable {
+
+    private final PersistentTaskQueue taskQueue;
+    private final WorkerPool pool;
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+    // Outcomes of tasks submitted here that haven't finished yet
+    private final Map<String, CompletableFuture<TaskResult>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService delivery;
+    private final SubmissionPublisher<TaskResult> completions;
+    private final Consumer<TaskResult> listener = this::finished;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EmbeddedQueue(PersistentTaskQueue taskQueue, WorkerPool pool) {
+        this(taskQueue, pool, Flow.defaultBufferSize());
+    }
+
+    public EmbeddedQueue(PersistentTaskQueue taskQueue, WorkerPool pool, int bufferCapacity) {
+        this.taskQueue = taskQueue;
+        this.pool = pool;
+        AtomicInteger threads = new AtomicInteger();
+        this.delivery = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.completions = new SubmissionPublisher<>(delivery, bufferCapacity);
+        taskQueue.getResults().addListener(listener);
+    }
+
+    public CompletableFuture<TaskResult> submit(String type, String payload) {
+        return submit(new Task(type, payload));
+    }
+
+    // Tenant, ordering key, coalesce key, timeout, parents and execute_at
+    // come from the task
+    public CompletableFuture<TaskResult> submit(Task task) {
+        RuntimeException rejected = check(Map.of(task.getTenant(), 1));
+        if (rejected != null) return CompletableFuture.failedFuture(rejected);
+        CompletableFuture<TaskResult> outcome = track(task);
+        try {
+            taskQueue.submit(task);
+        } catch (StorageException | IllegalArgumentException e) {
+            untrack(task, outcome, e);
+            return outcome;
+        }
+        metrics.recordSubmit();
+        return followCoalesced(task, outcome);
+    }
+
+    // A fan-out or workflow stored in one transaction; futures in task order.
+    // Rejected whole if any tenant lacks room for its share.
+    public List<CompletableFuture<TaskResult>> submitAll(List<Task> tasks) {
+        Map<String, Integer> perTenant = new LinkedHashMap<>();
+        for (Task task : tasks) perTenant.merge(task.getTenant(), 1, Integer::sum);
+        RuntimeException rejected = check(perTenant);
+        List<CompletableFuture<TaskResult>> outcomes = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            outcomes.add(rejected != null ? CompletableFuture.failedFuture(rejected) : track(task));
+        }
+        if (rejected != null) return outcomes;
+        try {
+            taskQueue.submitAll(tasks);
+        } catch (StorageException | IllegalArgumentException e) {
+            // Coalescing tasks that went in before the failure keep running,
+            // but like the rest they are reported as not submitted
+            for (int i = 0; i < tasks.size(); i++) untrack(tasks.get(i), outcomes.get(i), e);
+            return outcomes;
+        }
+        tasks.forEach(task -> metrics.recordSubmit());
+        for (int i = 0; i < tasks.size(); i++) {
+            outcomes.set(i, followCoalesced(tasks.get(i), outcomes.get(i)));
+        }
+        return outcomes;
+    }
+
+    // A task folded into a pending one never finishes under its own ID:
+    // hand out the outcome of the task that runs instead
+    private CompletableFuture<TaskResult> followCoalesced(Task task, CompletableFuture<TaskResult> outcome) {
+        String into = task.getCoalescedInto();
+        if (into == null) return outcome;
+        pending.remove(task.getId(), outcome);
+        return taskQueue.getResults().await(into).thenApplyAsync(result -> result, delivery);
+    }
+
+    // Same rules as POST /tasks/submit (503 and 429 there)
+    private RuntimeException check(Map<String, Integer> perTenant) {
+        if (!taskQueue.isAccepting()) return new IllegalStateException("Queue is draining");
+        for (Map.Entry<String, Integer> entry : perTenant.entrySet()) {
+            if (!taskQueue.getTenants().hasRoom(entry.getKey(), entry.getValue())) {
+                return new RejectedExecutionException("Tenant quota exceeded: " + entry.getKey());
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<TaskResult> track(Task task) {
+        String taskId = task.getId();
+        CompletableFuture<TaskResult> outcome = new CompletableFuture<>();
+        pending.put(taskId, outcome);
+        outcome.whenComplete((result, error) -> {
+            if (outcome.isCancelled() && pending.remove(taskId, outcome)) {
+                pool.cancel(taskId);
+            }
+        });
+        return outcome;
+    }
+
+    // The task was not stored (or was rejected): nothing will complete its future
+    private void untrack(Task task, CompletableFuture<TaskResult> outcome, RuntimeException error) {
+        pending.remove(task.getId(), outcome);
+        outcome.completeExceptionally(error);
+    }
+
+    // Result listener: runs on the thread that finished the task
+    private void finished(TaskResult result) {
+        CompletableFuture<TaskResult> outcome = pending.remove(result.getTaskId());
+        if (outcome != null) outcome.completeAsync(() -> result, delivery);
+        if (completions.hasSubscribers()) {
+            completions.offer(result, (subscriber, event) -> {
+                dropped.incrementAndGet();
+                return false;
+            });
+        }
+    }
+
+    // Outcome of every finished task, delivered on demand
+    public Flow.Publisher<TaskResult> completions() {
+        return completions;
+    }
+
+    // Cancel any task by ID (see WorkerPool.cancel)
+    public WorkerPool.CancelResult cancel(String taskId) {
+        return pool.cancel(taskId);
+    }
+
+    // Completion events a lagging subscriber did not receive
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    // Subscribers are completed; tasks keep running, but their futures
+    // fail since nothing will complete them any more
+    @Override
+    public void close() {
+        taskQueue.getResults().removeListener(listener);
+        completions.close();
+        IllegalStateException closed = new IllegalStateException("Embedded queue closed");
+        pending.values().forEach(outcome -> outcome.completeExceptionally(closed));
+        pending.clear();
+        delivery.shutdown();
+    }
+}
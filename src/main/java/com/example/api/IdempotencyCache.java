@@ -0,0 +1,100 @@
+package com.example.api;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Replays the response to a POST retried with the same Idempotency-Key
+// header, so a client that timed out and retries doesn't submit twice.
+// A retry that arrives while the first attempt is still running waits for
+// it. Only 2xx responses are kept (400/429/503 may succeed when retried),
+// for TTL_MILLIS and in memory: retries across a restart are not deduplicated.
+class IdempotencyCache {
+
+    static final String HEADER = "Idempotency-Key";
+
+    private static final long TTL_MILLIS = 10 * 60 * 1000;
+    private static final int MAX_KEYS = 100_000;
+    private static final long WAIT_SECONDS = 30;
+
+    private record Stored(int status, String contentType, byte[] body, long expiresAt) {}
+
+    // Completed with null when the first attempt's response is not kept
+    private final Map<String, CompletableFuture<Stored>> responses = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+
+    Handler wrap(Handler handler) {
+        return ctx -> {
+            String key = ctx.header(HEADER);
+            if (key == null || key.isEmpty()) {
+                handler.handle(ctx);
+                return;
+            }
+            key = ctx.path() + " " + key;
+            if (requests.incrementAndGet() % 1024 == 0) expire();
+
+            CompletableFuture<Stored> mine = new CompletableFuture<>();
+            CompletableFuture<Stored> first = responses.putIfAbsent(key, mine);
+            if (first != null) {
+                Stored stored = await(first);
+                if (stored != null && stored.expiresAt() > System.currentTimeMillis()) {
+                    replay(ctx, stored);
+                    return;
+                }
+                // The first attempt wasn't kept: this one runs, uncached
+                handler.handle(ctx);
+                return;
+            }
+
+            Stored stored = null;
+            try {
+                handler.handle(ctx);
+                if (ctx.statusCode() / 100 == 2 && responses.size() <= MAX_KEYS) {
+                    stored = capture(ctx);
+                }
+            } finally {
+                if (stored == null) responses.remove(key, mine);
+                mine.complete(stored);
+            }
+        };
+    }
+
+    private static Stored await(CompletableFuture<Stored> first) throws InterruptedException {
+        try {
+            return first.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    // Read the body the handler set and put it back for this response
+    private static Stored capture(Context ctx) throws Exception {
+        InputStream result = ctx.resultInputStream();
+        byte[] body = result != null ? result.readAllBytes() : new byte[0];
+        ctx.result(body);
+        return new Stored(ctx.statusCode(), ctx.res().getContentType(), body,
+                          System.currentTimeMillis() + TTL_MILLIS);
+    }
+
+    private static void replay(Context ctx, Stored stored) {
+        ctx.status(stored.status());
+        if (stored.contentType() != null) ctx.contentType(stored.contentType());
+        ctx.header("Idempotent-Replay", "true");
+        ctx.result(stored.body());
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        responses.values().removeIf(future -> {
+            Stored stored = future.getNow(null);
+            return stored != null && stored.expiresAt() <= now;
+        });
+    }
+}
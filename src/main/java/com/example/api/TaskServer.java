@@ -1,54 +1,136 @@
 package com.example.api;
 
+import com.example.metrics.FlightRecording;
 import com.example.metrics.MetricsCollector;
+import com.example.metrics.TaskTracer;
 import com.example.model.Task;
+import com.example.model.TaskResult;
 import com.example.queue.DeadLetterQueue;
 import com.example.queue.PersistentTaskQueue;
+import com.example.queue.StorageException;
+import com.example.worker.WorkerPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.json.JavalinJackson;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class TaskServer {
 
+    // POST /traces/export appends here
+    private static final Path TRACE_EXPORT = Path.of("./data/traces.otlp.jsonl");
+
+    // Long-poll bounds for GET /tasks/{id}/wait
+    private static final long DEFAULT_WAIT_SECONDS = 30;
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    // Longest per-task timeout a request may set (it is kept in milliseconds)
+    private static final long MAX_TIMEOUT_SECONDS = 24 * 60 * 60;
+
+    // Furthest ahead a delay, debounce or ttl may reach (keeps the
+    // LocalDateTime arithmetic in range)
+    private static final long MAX_SCHEDULE_SECONDS = 365L * 24 * 60 * 60;
+
+    // Most parents one task may wait for: their 8-character IDs are joined
+    // into the parent_ids VARCHAR(1000) column
+    private static final int MAX_PARENTS = 100;
+
     private final Javalin app;
     private final PersistentTaskQueue taskQueue;
     private final DeadLetterQueue dlq;
+    private final WorkerPool pool;
     private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private final TaskTracer tracer = TaskTracer.getInstance();
+    private final FlightRecording recording = FlightRecording.getInstance();
+    private final ObjectMapper mapper;
+    // Read-heavy views, re-encoded only when their source changes
+    private final CachedJson pendingView;
+    private final CachedJson dlqView;
+    private final CachedJson metricsView;
+    // Lets clients retry submissions without creating duplicates
+    private final IdempotencyCache idempotency = new IdempotencyCache();
 
-    public TaskServer(int port, PersistentTaskQueue taskQueue, DeadLetterQueue dlq) {
+    public TaskServer(int port, PersistentTaskQueue taskQueue, DeadLetterQueue dlq, WorkerPool pool) {
         this.taskQueue = taskQueue;
         this.dlq = dlq;
+        this.pool = pool;
         
         // Configure Jackson for LocalDateTime support
-        ObjectMapper mapper = new ObjectMapper();
+        this.mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        // Pending tasks and metrics change constantly under load: coalesce rebuilds
+        this.pendingView = new CachedJson(mapper, taskQueue::getPendingVersion, taskQueue::getAllPending, 500);
+        this.dlqView = new CachedJson(mapper, dlq::getVersion, dlq::getAll, 0);
+        this.metricsView = new CachedJson(mapper,
+            () -> metrics.getVersion() + taskQueue.getCoalesced(), this::metricsResponse, 250);
         
         this.app = Javalin.create(config -> {
             config.jsonMapper(new JavalinJackson(mapper));
         })
             .get("/", this::handleDashboard)
             .get("/metrics", this::handleMetrics)
-            .post("/tasks/submit", this::handleSubmit)
+            .post("/tasks/submit", idempotency.wrap(this::handleSubmit))
+            .post("/tasks/batch", idempotency.wrap(this::handleBatchSubmit))
             .get("/tasks", this::handleTasks)
+            .get("/tasks/{id}", this::handleGetTask)
+            .get("/tasks/{id}/wait", this::handleWait)
+            .get("/tasks/{id}/trace", this::handleTrace)
+            .post("/traces/export", this::handleExportTraces)
+            .get("/recording", this::handleRecordingStatus)
+            .post("/recording/start", this::handleStartRecording)
+            .post("/recording/dump", this::handleDumpRecording)
+            .post("/recording/stop", this::handleStopRecording)
+            .delete("/tasks/{id}", this::handleCancel)
+            .get("/tenants", this::handleTenants)
+            .get("/handlers", this::handleHandlers)
+            .post("/handlers/reload", this::handleReloadHandlers)
+            .delete("/handlers/{type}", this::handleDrainHandler)
             .get("/dlq", this::handleDLQ)
             .get("/health", this::handleHealth);
         
         app.start(port);
         
-        System.out.println("[API] Server started on http://localhost:" + port);
+        System.out.println("[API] Server started on http://localhost:" + app.port());
         System.out.println("[API] Endpoints:");
         System.out.println("      GET  /             - Dashboard");
         System.out.println("      GET  /metrics      - Metrics JSON");
         System.out.println("      POST /tasks/submit - Submit a task");
+        System.out.println("      POST /tasks/batch  - Submit a batch of tasks");
         System.out.println("      GET  /tasks        - View pending tasks");
+        System.out.println("      GET  /tasks/{id}   - Task status and result");
+        System.out.println("      GET  /tasks/{id}/wait - Long-poll until the task finishes");
+        System.out.println("      GET  /tasks/{id}/trace - Per-phase timeline of a task");
+        System.out.println("      POST /traces/export - Write buffered traces as OTLP JSON");
+        System.out.println("      GET  /recording    - JFR recording status");
+        System.out.println("      POST /recording/{start|dump|stop} - Control the JFR recording");
+        System.out.println("      DELETE /tasks/{id} - Cancel a task");
+        System.out.println("      GET  /tenants      - Per-tenant backlog and quotas");
+        System.out.println("      GET  /handlers     - Registered handlers and bulkheads");
+        System.out.println("      POST /handlers/reload - Load handler plugins from ./plugins");
+        System.out.println("      DELETE /handlers/{type} - Drain and remove a handler");
         System.out.println("      GET  /dlq          - View dead letter queue");
         System.out.println("      GET  /health       - Health check");
     }
 
+    // Port the server is listening on (useful when started on port 0)
+    public int port() {
+        return app.port();
+    }
+
     public void stop() {
         app.stop();
         System.out.println("[API] Server stopped");
@@ -117,6 +199,10 @@ public class TaskServer {
             <h3>AVG TIME</h3>
             <div class="value" id="avgTime">0ms</div>
         </div>
+        <div class="card">
+            <h3>WORKERS</h3>
+            <div class="value info" id="workers">0</div>
+        </div>
         <div class="card">
             <h3>UPTIME</h3>
             <div class="value" id="uptime">0s</div>
@@ -165,6 +251,7 @@ public class TaskServer {
                 document.getElementById('failed').textContent = metrics.failed;
                 document.getElementById('rate').textContent = metrics.successRate.toFixed(1) + '%';
                 document.getElementById('avgTime').textContent = metrics.avgProcessingMs.toFixed(0) + 'ms';
+                document.getElementById('workers').textContent = metrics.workers;
                 document.getElementById('uptime').textContent = formatUptime(metrics.uptimeSeconds);
 
                 var tasksRes = await fetch('/tasks');
@@ -243,66 +330,419 @@ public class TaskServer {
     }
 
     // GET /metrics
-    private void handleMetrics(Context ctx) {
-        ctx.json(new MetricsResponse(
+    private void handleMetrics(Context ctx) throws IOException {
+        metricsView.serve(ctx);
+    }
+
+    private MetricsResponse metricsResponse() {
+        return new MetricsResponse(
             metrics.getTasksSubmitted(),
             metrics.getTasksCompleted(),
             metrics.getTasksFailed(),
             metrics.getSuccessRate(),
             metrics.getAvgProcessingTimeMs(),
-            metrics.getUptimeSeconds()
-        ));
+            metrics.getUptimeSeconds(),
+            metrics.getTasksCancelled(),
+            metrics.getTasksTimedOut(),
+            metrics.getActiveWorkers(),
+            metrics.getScaleUps(),
+            metrics.getScaleDowns(),
+            metrics.getScalingEvents(),
+            taskQueue.getCoalesced(),
+            metrics.getTasksExpired(),
+            metrics.getHedges(),
+            metrics.getHedgesDenied(),
+            metrics.getHedgeWins()
+        );
     }
 
     // POST /tasks/submit
     private void handleSubmit(Context ctx) {
-        String type = null;
-        String payload = null;
-        String delayStr = null;
-        
+        TaskRequest request;
         try {
-            var json = ctx.bodyAsClass(TaskRequest.class);
-            type = json.type;
-            payload = json.payload;
-            delayStr = json.delay;
+            request = ctx.bodyAsClass(TaskRequest.class);
         } catch (Exception e) {
             ctx.status(400).json(new Response("error", "Invalid request"));
             return;
         }
 
-        if (type == null || type.isEmpty()) {
-            ctx.status(400).json(new Response("error", "Missing 'type' field"));
+        String error = validate(request);
+        if (error != null) {
+            ctx.status(400).json(new Response("error", error));
+            return;
+        }
+        if (!taskQueue.isAccepting()) {
+            ctx.status(503).json(new Response("error", "Server is draining"));
             return;
         }
 
-        Task task = new Task(type, payload != null ? payload : "");
-        metrics.recordSubmit();
-        
-        if (delayStr != null && !delayStr.isEmpty()) {
-            try {
-                long delay = Long.parseLong(delayStr);
+        Task task = toTask(request);
+        if (!taskQueue.getTenants().hasRoom(task.getTenant(), 1)) {
+            ctx.status(429).json(new Response("error", "Tenant quota exceeded: " + task.getTenant()));
+            return;
+        }
+
+        String message = "Task submitted";
+        try {
+            if (request.delay != null && !request.delay.isEmpty()) {
+                long delay = Long.parseLong(request.delay);
                 taskQueue.submitDelayed(task, delay);
-                ctx.status(201).json(new SubmitResponse("success", 
-                    "Task scheduled (delay: " + delay + "s)", task.getId()));
+                message = "Task scheduled (delay: " + delay + "s)";
+            } else {
+                taskQueue.submit(task);
+            }
+        } catch (IllegalArgumentException e) {
+            // Unknown parent task
+            ctx.status(400).json(new Response("error", e.getMessage()));
+            return;
+        } catch (StorageException e) {
+            // Not stored: the client may retry
+            ctx.status(503).json(new Response("error", e.getMessage()));
+            return;
+        }
+        metrics.recordSubmit();
+        // Folded into a pending task with the same coalesce key: nothing new was created
+        if (task.getCoalescedInto() != null) {
+            ctx.status(200).json(new SubmitResponse("success", "Task coalesced into pending task",
+                task.getCoalescedInto()));
+            return;
+        }
+        ctx.status(201).json(new SubmitResponse("success", message, task.getId()));
+    }
+
+    // POST /tasks/batch - fan-out submission; tasks with rows are stored in one transaction
+    private void handleBatchSubmit(Context ctx) {
+        List<TaskRequest> requests;
+        try {
+            requests = List.of(ctx.bodyAsClass(TaskRequest[].class));
+        } catch (Exception e) {
+            ctx.status(400).json(new Response("error", "Invalid request"));
+            return;
+        }
+
+        if (requests.isEmpty()) {
+            ctx.status(400).json(new Response("error", "Empty batch"));
+            return;
+        }
+        for (TaskRequest request : requests) {
+            String error = validate(request);
+            if (error != null) {
+                ctx.status(400).json(new Response("error", error));
                 return;
-            } catch (NumberFormatException e) {
-                ctx.status(400).json(new Response("error", "Invalid delay value"));
+            }
+        }
+
+        if (!taskQueue.isAccepting()) {
+            ctx.status(503).json(new Response("error", "Server is draining"));
+            return;
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        List<String> taskIds = new ArrayList<>();
+        Map<String, Integer> perTenant = new HashMap<>();
+        for (TaskRequest request : requests) {
+            Task task = toTask(request);
+            if (request.delay != null && !request.delay.isEmpty()) {
+                task.setExecuteAt(LocalDateTime.now().plusSeconds(Long.parseLong(request.delay)));
+            }
+            tasks.add(task);
+            taskIds.add(task.getId());
+            perTenant.merge(task.getTenant(), 1, Integer::sum);
+        }
+        // All or nothing: a batch that doesn't fit is rejected whole
+        for (Map.Entry<String, Integer> entry : perTenant.entrySet()) {
+            if (!taskQueue.getTenants().hasRoom(entry.getKey(), entry.getValue())) {
+                ctx.status(429).json(new Response("error", "Tenant quota exceeded: " + entry.getKey()));
                 return;
             }
         }
-        
-        taskQueue.submit(task);
-        ctx.status(201).json(new SubmitResponse("success", "Task submitted", task.getId()));
+
+        try {
+            taskQueue.submitAll(tasks);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(new Response("error", e.getMessage()));
+            return;
+        } catch (StorageException e) {
+            ctx.status(503).json(new Response("error", e.getMessage()));
+            return;
+        }
+        tasks.forEach(task -> metrics.recordSubmit());
+        // Coalesced tasks answer with the ID of the task they were folded into
+        for (int i = 0; i < tasks.size(); i++) {
+            String into = tasks.get(i).getCoalescedInto();
+            if (into != null) taskIds.set(i, into);
+        }
+        ctx.status(201).json(new BatchSubmitResponse("success",
+            tasks.size() + " tasks submitted", taskIds));
+    }
+
+    // Returns an error message, or null if the request is valid
+    private String validate(TaskRequest request) {
+        if (request == null || request.type == null || request.type.isEmpty()) {
+            return "Missing 'type' field";
+        }
+        if (request.delay != null && !request.delay.isEmpty()) {
+            try {
+                long delay = Long.parseLong(request.delay);
+                if (delay < 0 || delay > MAX_SCHEDULE_SECONDS) return "Invalid delay value";
+            } catch (NumberFormatException e) {
+                return "Invalid delay value";
+            }
+        }
+        if (request.timeout != null && !request.timeout.isEmpty()) {
+            try {
+                long timeout = Long.parseLong(request.timeout);
+                if (timeout <= 0 || timeout > MAX_TIMEOUT_SECONDS) return "Invalid timeout value";
+            } catch (NumberFormatException e) {
+                return "Invalid timeout value";
+            }
+        }
+        if (request.ttl != null && !request.ttl.isEmpty()) {
+            try {
+                long ttl = Long.parseLong(request.ttl);
+                if (ttl <= 0 || ttl > MAX_SCHEDULE_SECONDS) return "Invalid ttl value";
+            } catch (NumberFormatException e) {
+                return "Invalid ttl value";
+            }
+        }
+        if (request.parentIds != null) {
+            if (request.parentIds.size() > MAX_PARENTS) {
+                return "Too many parent IDs (max " + MAX_PARENTS + ")";
+            }
+            Set<String> parents = new HashSet<>();
+            for (String parentId : request.parentIds) {
+                if (parentId == null || parentId.isEmpty()) return "Invalid parent ID";
+                if (!parents.add(parentId)) return "Duplicate parent ID: " + parentId;
+            }
+        }
+        if (request.tenant != null && request.tenant.length() > 64) {
+            return "Tenant name too long";
+        }
+        if (request.orderingKey != null && request.orderingKey.length() > 255) {
+            return "Ordering key too long";
+        }
+        if (request.coalesceKey != null && request.coalesceKey.length() > 255) {
+            return "Coalesce key too long";
+        }
+        if (request.debounceMs != null && !request.debounceMs.isEmpty()) {
+            if (request.coalesceKey == null || request.coalesceKey.isEmpty()) {
+                return "debounceMs requires a coalesceKey";
+            }
+            if (request.delay != null && !request.delay.isEmpty()) {
+                return "Specify either delay or debounceMs";
+            }
+            try {
+                long debounceMs = Long.parseLong(request.debounceMs);
+                if (debounceMs < 0 || debounceMs > MAX_SCHEDULE_SECONDS * 1000) {
+                    return "Invalid debounceMs value";
+                }
+            } catch (NumberFormatException e) {
+                return "Invalid debounceMs value";
+            }
+        }
+        return null;
+    }
+
+    private Task toTask(TaskRequest request) {
+        Task task = new Task(request.type, request.payload != null ? request.payload : "");
+        task.setParentIds(request.parentIds);
+        task.setTenant(request.tenant);
+        task.setOrderingKey(request.orderingKey);
+        task.setCoalesceKey(request.coalesceKey);
+        if (request.debounceMs != null && !request.debounceMs.isEmpty()) {
+            // The first task for the key waits out the window, absorbing later submits
+            task.setExecuteAt(LocalDateTime.now().plus(Duration.ofMillis(Long.parseLong(request.debounceMs))));
+        }
+        if (request.ttl != null && !request.ttl.isEmpty()) {
+            // Counted from submit, so a delay or debounce uses up part of it
+            task.setExpiresAt(LocalDateTime.now().plusSeconds(Long.parseLong(request.ttl)));
+        }
+        if (request.timeout != null && !request.timeout.isEmpty()) {
+            task.setTimeoutMs(Long.parseLong(request.timeout) * 1000);
+        }
+        return task;
     }
 
     // GET /tasks
-    private void handleTasks(Context ctx) {
-        ctx.json(taskQueue.getAllPending());
+    private void handleTasks(Context ctx) throws IOException {
+        pendingView.serve(ctx);
+    }
+
+    // GET /tenants
+    private void handleTenants(Context ctx) {
+        ctx.json(taskQueue.getTenants().snapshot());
+    }
+
+    // GET /tasks/{id}/trace
+    private void handleTrace(Context ctx) {
+        TaskTracer.TraceView trace = tracer.get(ctx.pathParam("id"));
+        if (trace == null) {
+            ctx.status(404).json(new Response("error", "No trace (not sampled or evicted)"));
+            return;
+        }
+        ctx.json(trace);
+    }
+
+    // POST /traces/export
+    private void handleExportTraces(Context ctx) {
+        try {
+            int count = tracer.exportOtlp(TRACE_EXPORT, mapper);
+            ctx.json(new Response("success", "Exported " + count + " traces to " + TRACE_EXPORT));
+        } catch (IOException e) {
+            ctx.status(500).json(new Response("error", "Export failed: " + e.getMessage()));
+        }
+    }
+
+    // GET /recording
+    private void handleRecordingStatus(Context ctx) {
+        ctx.json(recording.status());
+    }
+
+    // POST /recording/start?settings=default|profile
+    private void handleStartRecording(Context ctx) {
+        String settings = ctx.queryParam("settings");
+        if (settings == null) settings = "default";
+        try {
+            if (!recording.start(settings)) {
+                ctx.status(409).json(new Response("error", "A recording is already running"));
+                return;
+            }
+            ctx.json(new Response("success", "Recording started (" + settings + " settings)"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(new Response("error", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(500).json(new Response("error", "Start failed: " + e.getMessage()));
+        }
+    }
+
+    // POST /recording/dump - write the recording so far; it keeps running
+    private void handleDumpRecording(Context ctx) {
+        try {
+            Path file = recording.dump();
+            if (file == null) {
+                ctx.status(404).json(new Response("error", "No recording is running"));
+                return;
+            }
+            ctx.json(new Response("success", "Recording dumped to " + file));
+        } catch (IOException e) {
+            ctx.status(500).json(new Response("error", "Dump failed: " + e.getMessage()));
+        }
+    }
+
+    // POST /recording/stop - dump, then stop
+    private void handleStopRecording(Context ctx) {
+        try {
+            Path file = recording.stop();
+            if (file == null) {
+                ctx.status(404).json(new Response("error", "No recording is running"));
+                return;
+            }
+            ctx.json(new Response("success", "Recording stopped and dumped to " + file));
+        } catch (IOException e) {
+            ctx.status(500).json(new Response("error", "Stop failed: " + e.getMessage()));
+        }
+    }
+
+    // GET /handlers
+    private void handleHandlers(Context ctx) {
+        ctx.json(pool.getHandlers().snapshot());
+    }
+
+    // POST /handlers/reload - register or replace handlers from the plugin jars
+    private void handleReloadHandlers(Context ctx) {
+        try {
+            int loaded = pool.getHandlers().reload();
+            ctx.json(new Response("success", "Loaded " + loaded + " handlers"));
+        } catch (Exception e) {
+            ctx.status(500).json(new Response("error", "Reload failed: " + e.getMessage()));
+        }
+    }
+
+    // DELETE /handlers/{type} - stop dispatching the type; running tasks finish
+    private void handleDrainHandler(Context ctx) {
+        if (pool.getHandlers().drain(ctx.pathParam("type")) == null) {
+            ctx.status(404).json(new Response("error", "Handler not found"));
+            return;
+        }
+        ctx.status(202).json(new Response("success", "Draining handler"));
+    }
+
+    // GET /tasks/{id} - status while queued or running, result once finished
+    private void handleGetTask(Context ctx) {
+        TaskStatusResponse status = lookup(ctx.pathParam("id"));
+        if (status == null) {
+            ctx.status(404).json(new Response("error", "Task not found"));
+            return;
+        }
+        ctx.json(status);
+    }
+
+    // GET /tasks/{id}/wait?timeout=30 - hold the request until the task finishes.
+    // 200 with the result, or 202 with the current status if it is still running.
+    private void handleWait(Context ctx) {
+        String taskId = ctx.pathParam("id");
+        long timeout;
+        try {
+            String param = ctx.queryParam("timeout");
+            timeout = param == null ? DEFAULT_WAIT_SECONDS : Long.parseLong(param);
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(new Response("error", "Invalid timeout value"));
+            return;
+        }
+        timeout = Math.max(0, Math.min(timeout, MAX_WAIT_SECONDS));
+
+        TaskStatusResponse status = lookup(taskId);
+        if (status == null) {
+            ctx.status(404).json(new Response("error", "Task not found"));
+            return;
+        }
+        if (isFinished(status.status()) || timeout == 0) {
+            ctx.status(isFinished(status.status()) ? 200 : 202).json(status);
+            return;
+        }
+
+        // No thread is held while waiting; the store completes the future
+        long seconds = timeout;
+        ctx.future(() -> taskQueue.getResults().await(taskId).copy()
+            .orTimeout(seconds, TimeUnit.SECONDS)
+            .handle((result, error) -> {
+                if (result != null) {
+                    ctx.json(TaskStatusResponse.of(result));
+                } else {
+                    TaskStatusResponse current = lookup(taskId);
+                    ctx.status(current != null && isFinished(current.status()) ? 200 : 202)
+                        .json(current != null ? current : status);
+                }
+                return null;
+            }));
+    }
+
+    private TaskStatusResponse lookup(String taskId) {
+        TaskResult result = taskQueue.getResults().get(taskId);
+        if (result != null) return TaskStatusResponse.of(result);
+        Task task = taskQueue.getTask(taskId);
+        return task != null ? TaskStatusResponse.of(task) : null;
+    }
+
+    private static boolean isFinished(String status) {
+        return status.equals("COMPLETED") || status.equals("FAILED") || status.equals("CANCELLED");
+    }
+
+    // DELETE /tasks/{id}
+    private void handleCancel(Context ctx) {
+        String taskId = ctx.pathParam("id");
+        switch (pool.cancel(taskId)) {
+            case CANCELLED -> ctx.json(new SubmitResponse("success", "Task cancelled", taskId));
+            case CANCELLING -> ctx.status(202).json(
+                new SubmitResponse("success", "Cancelling running task", taskId));
+            case NOT_FOUND -> ctx.status(404).json(new Response("error", "Task not found"));
+            case ALREADY_FINISHED -> ctx.status(409).json(new Response("error", "Task already finished"));
+        }
     }
 
     // GET /dlq
-    private void handleDLQ(Context ctx) {
-        ctx.json(dlq.getAll());
+    private void handleDLQ(Context ctx) throws IOException {
+        dlqView.serve(ctx);
     }
 
     // GET /health
@@ -311,10 +751,31 @@ public class TaskServer {
     }
 
     // DTOs
-    record TaskRequest(String type, String payload, String delay) {}
+    record TaskRequest(String type, String payload, String delay, List<String> parentIds,
+                       String timeout, String tenant, String orderingKey, String coalesceKey,
+                       String debounceMs, String ttl) {}
     record Response(String status, String message) {}
     record SubmitResponse(String status, String message, String taskId) {}
+    record BatchSubmitResponse(String status, String message, List<String> taskIds) {}
+    record TaskStatusResponse(String taskId, String type, String status, String result,
+                              String errorMessage, LocalDateTime completedAt) {
+        static TaskStatusResponse of(TaskResult result) {
+            return new TaskStatusResponse(result.getTaskId(), result.getType(),
+                result.getStatus().name(), result.getResult(), result.getErrorMessage(),
+                result.getCompletedAt());
+        }
+
+        static TaskStatusResponse of(Task task) {
+            return new TaskStatusResponse(task.getId(), task.getType(), task.getStatus().name(),
+                null, task.getErrorMessage(), null);
+        }
+    }
+
     record HealthResponse(String status, int pendingTasks, int deadTasks) {}
     record MetricsResponse(long submitted, long completed, long failed, 
-                          double successRate, double avgProcessingMs, long uptimeSeconds) {}
+                          double successRate, double avgProcessingMs, long uptimeSeconds,
+                          long cancelled, long timedOut, int workers, long scaleUps,
+                          long scaleDowns, List<MetricsCollector.ScalingEvent> scalingEvents,
+                          long coalesced, long expired, long hedged, long hedgesDenied,
+                          long hedgeWins) {}
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.example.client;
+
+import com.example.retry.ExponentialBackoff;
+import com.example.retry.RetryStrategy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous client for a remote TaskServer. submit() buffers the task and
+// returns a future of its ID; the buffer goes out as one POST /tasks/batch
+// once it holds batchSize tasks or its oldest task has waited linger.
+// Up to maxInFlight batches are outstanding at once over the HttpClient's
+// kept-alive connections; past that, submit() blocks until one finishes.
+// Each batch carries an Idempotency-Key, so transient failures (I/O errors,
+// 429, 5xx such as a failed database write) are retried with backoff without
+// submitting anything twice. A batch rejected up front (4xx) stores nothing
+// and fails every future in it. After a failed write (503) the server has
+// stored nothing but the batch's coalescing tasks, which the retry folds
+// into the same pending tasks. Configure before the first submit.
+public class TaskQueueClient implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private record Pending(TaskSpec spec, CompletableFuture<String> taskId) {}
+
+    private final URI batchUri;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RetryStrategy backoff = new ExponentialBackoff(50, 2_000);
+    private final ScheduledExecutorService lingerTimer;
+    private final Object lock = new Object();
+    private int batchSize = 100;
+    private Duration linger = Duration.ofMillis(5);
+    private int maxInFlight = 4;
+    private int maxRetries = 5;
+    private Semaphore inFlight = new Semaphore(maxInFlight);
+    private List<Pending> buffer = new ArrayList<>();   // guarded by lock
+    private ScheduledFuture<?> lingerFlush;             // guarded by lock
+    private boolean closed;                             // guarded by lock
+
+    public TaskQueueClient(String baseUrl) {
+        this.batchUri = URI.create(baseUrl.replaceAll("/+$", "") + "/tasks/batch");
+        this.http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "client-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public TaskQueueClient batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public TaskQueueClient linger(Duration linger) {
+        this.linger = linger;
+        return this;
+    }
+
+    public TaskQueueClient maxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        return this;
+    }
+
+    // Attempts per batch, including the first
+    public TaskQueueClient maxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public CompletableFuture<String> submit(String type, String payload) {
+        return submit(TaskSpec.of(type, payload));
+    }
+
+    public CompletableFuture<String> submit(TaskSpec spec) {
+        String error = spec.validate();
+        if (error != null) return CompletableFuture.failedFuture(new IllegalArgumentException(error));
+
+        Pending pending = new Pending(spec, new CompletableFuture<>());
+        List<Pending> full = null;
+        synchronized (lock) {
+            if (closed) return CompletableFuture.failedFuture(new IllegalStateException("Client closed"));
+            buffer.add(pending);
+            if (buffer.size() >= batchSize) {
+                full = takeBuffer();
+            } else if (buffer.size() == 1) {
+                lingerFlush = lingerTimer.schedule(this::flush, linger.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) send(full);
+        return pending.taskId();
+    }
+
+    // Send whatever is buffered now
+    public void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            if (buffer.isEmpty()) return;
+            batch = takeBuffer();
+        }
+        send(batch);
+    }
+
+    // Caller holds lock
+    private List<Pending> takeBuffer() {
+        List<Pending> batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(batch, e);
+            return;
+        }
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(batch.stream().map(p -> p.spec().toRequest()).toList());
+        } catch (IOException e) {
+            inFlight.release();
+            fail(batch, e);
+            return;
+        }
+        // One key for every attempt: a retry of a batch the server already
+        // stored gets the original response back
+        attempt(batch, body, UUID.randomUUID().toString(), 1);
+    }
+
+    private void attempt(List<Pending> batch, byte[] body, String idempotencyKey, int attempt) {
+        HttpRequest request = HttpRequest.newBuilder(batchUri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", idempotencyKey)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                inFlight.release();
+                complete(batch, response.body());
+                return;
+            }
+            Throwable cause = error != null ? unwrap(error)
+                : new IOException("HTTP " + response.statusCode() + ": " + response.body());
+            boolean transientFailure = error != null || response.statusCode() == 429
+                || response.statusCode() >= 500;
+            if (transientFailure && backoff.shouldRetry(attempt, maxRetries)) {
+                long delay = backoff.getDelay(attempt).toMillis();
+                try {
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                        .execute(() -> attempt(batch, body, idempotencyKey, attempt + 1));
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // fall through and fail the batch
+                }
+            }
+            inFlight.release();
+            fail(batch, cause);
+        });
+    }
+
+    private void complete(List<Pending> batch, String body) {
+        try {
+            JsonNode taskIds = mapper.readTree(body).get("taskIds");
+            if (taskIds == null || taskIds.size() != batch.size()) {
+                throw new IOException("Unexpected batch response: " + body);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).taskId().complete(taskIds.get(i).asText());
+            }
+        } catch (IOException e) {
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<Pending> batch, Throwable cause) {
+        for (Pending pending : batch) pending.taskId().completeExceptionally(cause);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Send what is buffered and wait (up to 30s) for every batch to finish
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        try {
+            if (inFlight.tryAcquire(maxInFlight, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lingerTimer.shutdownNow();
+        http.close();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.client;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A task to submit: the fields of POST /tasks/submit. Optional ones are null.
+// A coalesced task's future completes with the ID of the task it joined.
+// The server takes a timeout and ttl in whole seconds: a fractional one is
+// rounded up (1.2s runs with 2s), never down to nothing.
+public record TaskSpec(String type, String payload, String tenant, String orderingKey,
+                       Duration delay, Duration timeout, String coalesceKey, Duration debounce,
+                       Duration ttl) {
+
+    // Longest timeout the server accepts
+    private static final Duration MAX_TIMEOUT = Duration.ofDays(1);
+    // Furthest ahead a delay, debounce or ttl may reach
+    private static final Duration MAX_SCHEDULE = Duration.ofDays(365);
+
+    public static TaskSpec of(String type, String payload) {
+        return new TaskSpec(type, payload, null, null, null, null, null, null, null);
+    }
+
+    public TaskSpec withTenant(String tenant) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    public TaskSpec withOrderingKey(String orderingKey) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    public TaskSpec withDelay(Duration delay) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    public TaskSpec withTimeout(Duration timeout) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    // Fold into a pending task with the same key (and type and tenant)
+    public TaskSpec withCoalesceKey(String coalesceKey) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    // Same, and if this becomes the key's task, hold it back for the window
+    public TaskSpec withCoalesceKey(String coalesceKey, Duration debounce) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    // Cancel the task as expired if it hasn't started this long after submit
+    public TaskSpec withTtl(Duration ttl) {
+        return new TaskSpec(type, payload, tenant, orderingKey, delay, timeout, coalesceKey, debounce, ttl);
+    }
+
+    // What the server would reject with 400, or null. Checked before
+    // buffering, since one bad task fails its whole batch.
+    String validate() {
+        if (type == null || type.isEmpty()) return "Missing 'type' field";
+        if (delay != null && (delay.isNegative()
+                || delay.compareTo(MAX_SCHEDULE) > 0)) return "Invalid delay value";
+        if (timeout != null && (timeout.isNegative() || timeout.isZero()
+                || timeout.compareTo(MAX_TIMEOUT) > 0)) return "Invalid timeout value";
+        if (ttl != null && (ttl.isNegative() || ttl.isZero()
+                || ttl.compareTo(MAX_SCHEDULE) > 0)) return "Invalid ttl value";
+        if (tenant != null && tenant.length() > 64) return "Tenant name too long";
+        if (orderingKey != null && orderingKey.length() > 255) return "Ordering key too long";
+        if (coalesceKey != null && coalesceKey.length() > 255) return "Coalesce key too long";
+        if (debounce != null) {
+            if (coalesceKey == null || coalesceKey.isEmpty()) return "debounceMs requires a coalesceKey";
+            if (delay != null) return "Specify either delay or debounceMs";
+            if (debounce.isNegative() || debounce.compareTo(MAX_SCHEDULE) > 0) {
+                return "Invalid debounceMs value";
+            }
+        }
+        return null;
+    }
+
+    private static long ceilSeconds(Duration duration) {
+        return duration.getSeconds() + (duration.getNano() > 0 ? 1 : 0);
+    }
+
+    // One element of the POST /tasks/batch body
+    Map<String, Object> toRequest() {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("type", type);
+        request.put("payload", payload);
+        if (tenant != null) request.put("tenant", tenant);
+        if (orderingKey != null) request.put("orderingKey", orderingKey);
+        if (delay != null) request.put("delay", Long.toString(delay.toSeconds()));
+        if (timeout != null) request.put("timeout", Long.toString(ceilSeconds(timeout)));
+        if (ttl != null) request.put("ttl", Long.toString(ceilSeconds(ttl)));
+        if (coalesceKey != null) request.put("coalesceKey", coalesceKey);
+        if (debounce != null) request.put("debounceMs", Long.toString(debounce.toMillis()));
+        return request;
+    }
+}
@@ -1,27 +1,57 @@
 package com.example.db;
 
+import com.example.metrics.QueueEvents;
 import com.example.model.Task;
+import com.example.model.TaskResult;
 import com.example.model.TaskStatus;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// All methods share one connection and are synchronized so that the
+// multi-statement dependency transactions never interleave with other writes
 public class DatabaseManager {
-    
+
     // DB_CLOSE_ON_EXIT=FALSE ensures clean shutdown
     private static final String DB_URL = "jdbc:h2:./data/javaqueue;DB_CLOSE_ON_EXIT=FALSE";
+    private final String url;
     private Connection connection;
+    // Copies terminal rows to the archive; column list read from the schema at init
+    private String archiveSql;
+
+    private static final String MERGE_SQL = """
+        MERGE INTO tasks (id, type, payload, status, retry_count, max_retries,
+                         created_at, execute_at, error_message, parent_ids, pending_parents,
+                         timeout_ms, tenant, finished_at, ordering_key, coalesce_key, expires_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    // -Djavaqueue.db.url overrides the default file (e.g. a faster disk, or
+    // jdbc:h2:mem:... when every type is memory-resident anyway)
+    public DatabaseManager() {
+        this(System.getProperty("javaqueue.db.url", DB_URL));
+    }
 
-    public void init() throws SQLException {
-        connection = DriverManager.getConnection(DB_URL, "sa", "");
+    // Custom JDBC URL (e.g. jdbc:h2:mem:... for tests and benchmarks)
+    public DatabaseManager(String url) {
+        this.url = url;
+    }
+
+    public synchronized void init() throws SQLException {
+        connection = DriverManager.getConnection(url, "sa", "");
         createTables();
         System.out.println("[DB] Database initialized");
     }
 
     private void createTables() throws SQLException {
-        String sql = """
-            CREATE TABLE IF NOT EXISTS tasks (
+        String columns = """
                 id VARCHAR(8) PRIMARY KEY,
                 type VARCHAR(50) NOT NULL,
                 payload TEXT,
@@ -31,19 +61,90 @@ public class DatabaseManager {
                 created_at TIMESTAMP,
                 execute_at TIMESTAMP,
                 error_message TEXT
-            )
             """;
-        connection.createStatement().execute(sql);
+        // Hot table: unfinished tasks plus recently failed/cancelled ones
+        connection.createStatement().execute("CREATE TABLE IF NOT EXISTS tasks (" + columns + ")");
+        // Cold table: failed/cancelled tasks moved out by StorageMaintenance
+        connection.createStatement().execute(
+            "CREATE TABLE IF NOT EXISTS tasks_archive (" + columns + ", archived_at TIMESTAMP)");
+
+        // Columns added in place so existing databases upgrade
+        addTaskColumn("parent_ids VARCHAR(1000)");
+        addTaskColumn("pending_parents INT DEFAULT 0");
+        addTaskColumn("timeout_ms BIGINT DEFAULT 0");
+        addTaskColumn("tenant VARCHAR(64) DEFAULT 'default'");
+        addTaskColumn("finished_at TIMESTAMP");
+        addTaskColumn("ordering_key VARCHAR(255)");
+        addTaskColumn("coalesce_key VARCHAR(255)");
+        addTaskColumn("expires_at TIMESTAMP");
+
+        // Keeps paging the ready backlog cheap regardless of table size
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_tasks_status_execute ON tasks (status, execute_at)");
+        // Per-tenant paging
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_tasks_tenant_status_execute ON tasks (tenant, status, execute_at)");
+        // Expiry sweep: earliest deadlines first, rows without one never visited
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_tasks_expires ON tasks (expires_at)");
+        // Finds the task that owns an ordering key
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_tasks_ordering ON tasks (ordering_key, created_at)");
+
+        // One row per parent -> child edge, removed once the parent finishes
+        connection.createStatement().execute("""
+            CREATE TABLE IF NOT EXISTS task_dependencies (
+                parent_id VARCHAR(8) NOT NULL,
+                child_id VARCHAR(8) NOT NULL,
+                PRIMARY KEY (parent_id, child_id)
+            )
+            """);
+
+        // Outcomes of finished tasks, deleted once expires_at passes
+        connection.createStatement().execute("""
+            CREATE TABLE IF NOT EXISTS task_results (
+                task_id VARCHAR(8) PRIMARY KEY,
+                type VARCHAR(50) NOT NULL,
+                status VARCHAR(20) NOT NULL,
+                result TEXT,
+                error_message TEXT,
+                completed_at TIMESTAMP,
+                expires_at TIMESTAMP NOT NULL
+            )
+            """);
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_results_expires ON task_results (expires_at)");
+
+        // Retention purges by status and age
+        connection.createStatement().execute(
+            "CREATE INDEX IF NOT EXISTS idx_archive_status_archived ON tasks_archive (status, archived_at)");
+
+        List<String> taskColumns = new ArrayList<>();
+        ResultSet rs = connection.createStatement().executeQuery("""
+            SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS
+            WHERE TABLE_NAME = 'TASKS' ORDER BY ORDINAL_POSITION
+            """);
+        while (rs.next()) taskColumns.add(rs.getString(1));
+        String list = String.join(", ", taskColumns);
+        archiveSql = "INSERT INTO tasks_archive (" + list + ", archived_at) SELECT " + list
+            + ", ? FROM tasks WHERE id = ANY(?)";
+    }
+
+    // Add a column to both the hot and the archive table
+    private void addTaskColumn(String definition) throws SQLException {
+        connection.createStatement().execute("ALTER TABLE tasks ADD COLUMN IF NOT EXISTS " + definition);
+        connection.createStatement().execute(
+            "ALTER TABLE tasks_archive ADD COLUMN IF NOT EXISTS " + definition);
     }
 
     // Save new task
-    public void save(Task task) throws SQLException {
-        String sql = """
-            MERGE INTO tasks (id, type, payload, status, retry_count, max_retries, 
-                             created_at, execute_at, error_message)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-        PreparedStatement ps = connection.prepareStatement(sql);
+    public synchronized void save(Task task) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(MERGE_SQL);
+        bindTask(ps, task, 0);
+        executeUpdate(ps, "save", "MERGE");
+    }
+
+    private void bindTask(PreparedStatement ps, Task task, int pendingParents) throws SQLException {
         ps.setString(1, task.getId());
         ps.setString(2, task.getType());
         ps.setString(3, task.getPayload());
@@ -53,53 +154,591 @@ public class DatabaseManager {
         ps.setTimestamp(7, Timestamp.valueOf(task.getCreatedAt()));
         ps.setTimestamp(8, Timestamp.valueOf(task.getExecuteAt()));
         ps.setString(9, task.getErrorMessage());
-        ps.executeUpdate();
+        ps.setString(10, task.hasParents() ? String.join(",", task.getParentIds()) : null);
+        ps.setInt(11, pendingParents);
+        ps.setLong(12, task.getTimeoutMs());
+        ps.setString(13, task.getTenant());
+        ps.setTimestamp(14, task.isFinished() ? Timestamp.valueOf(LocalDateTime.now()) : null);
+        ps.setString(15, task.getOrderingKey());
+        ps.setString(16, task.getCoalesceKey());
+        ps.setTimestamp(17, task.getExpiresAt() != null ? Timestamp.valueOf(task.getExpiresAt()) : null);
+    }
+
+    // Save a batch of tasks (fan-out) in one transaction.
+    // Tasks with unfinished parents are stored as WAITING with a join counter;
+    // a task whose parent already failed is stored as FAILED.
+    // Throws IllegalArgumentException, before writing anything, if a parent
+    // is unknown: not in the batch, the tasks table, the archive or the
+    // results (a completed task is only remembered while its result is kept).
+    // Returns the tasks that are immediately eligible to run.
+    public synchronized List<Task> saveAll(List<Task> tasks) throws SQLException {
+        return saveAll(tasks, lookupParents(tasks));
+    }
+
+    // saveAll with the parents' statuses already looked up (a sharded store
+    // reads them from every shard)
+    synchronized List<Task> saveAll(List<Task> tasks, Map<String, TaskStatus> parentStatus)
+            throws SQLException {
+        for (Task task : tasks) {
+            for (String parentId : task.getParentIds()) {
+                if (!parentStatus.containsKey(parentId)) {
+                    throw new IllegalArgumentException("Unknown parent task: " + parentId);
+                }
+            }
+        }
+        List<Task> ready = new ArrayList<>();
+        int[] pending = new int[tasks.size()];
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            for (String parentId : task.getParentIds()) {
+                TaskStatus status = parentStatus.get(parentId);
+                if (status == TaskStatus.FAILED || status == TaskStatus.CANCELLED) {
+                    task.setStatus(TaskStatus.FAILED);
+                    task.setErrorMessage("Parent task " + status.name().toLowerCase() + ": " + parentId);
+                    break;
+                }
+                if (status != TaskStatus.COMPLETED) pending[i]++;
+            }
+            if (task.getStatus() != TaskStatus.FAILED) {
+                task.setStatus(pending[i] > 0 ? TaskStatus.WAITING : TaskStatus.PENDING);
+            }
+            if (task.getStatus() == TaskStatus.PENDING) ready.add(task);
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement tasksPs = connection.prepareStatement(MERGE_SQL);
+             PreparedStatement edgesPs = connection.prepareStatement(
+                 "MERGE INTO task_dependencies (parent_id, child_id) VALUES (?, ?)")) {
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                bindTask(tasksPs, task, pending[i]);
+                tasksPs.addBatch();
+                if (task.getStatus() != TaskStatus.WAITING) continue;
+                for (String parentId : task.getParentIds()) {
+                    if (parentStatus.get(parentId) == TaskStatus.COMPLETED) continue;
+                    edgesPs.setString(1, parentId);
+                    edgesPs.setString(2, task.getId());
+                    edgesPs.addBatch();
+                }
+            }
+            executeBatch(tasksPs, "saveAll", "MERGE");
+            executeBatch(edgesPs, "saveAll", "MERGE");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return ready;
+    }
+
+    // Status of every parent that is still known (see statusOf), or in this batch
+    private Map<String, TaskStatus> lookupParents(List<Task> tasks) throws SQLException {
+        Set<String> parentIds = new LinkedHashSet<>();
+        for (Task task : tasks) parentIds.addAll(task.getParentIds());
+        Map<String, TaskStatus> statuses = statusOf(parentIds);
+        // Parents submitted in the same batch count as unfinished
+        for (Task task : tasks) {
+            if (parentIds.contains(task.getId())) statuses.put(task.getId(), TaskStatus.PENDING);
+        }
+        return statuses;
+    }
+
+    // Status of each of these tasks that is still in the tasks table or
+    // archived; failing that, the status its kept result records (rows of
+    // completed tasks are deleted)
+    synchronized Map<String, TaskStatus> statusOf(Collection<String> ids) throws SQLException {
+        Map<String, TaskStatus> statuses = new HashMap<>();
+        if (ids.isEmpty()) return statuses;
+        Object[] idArray = ids.toArray();
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT id, status FROM tasks WHERE id = ANY(?)
+                UNION ALL
+                SELECT id, status FROM tasks_archive WHERE id = ANY(?)
+                """)) {
+            ps.setObject(1, idArray);
+            ps.setObject(2, idArray);
+            QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                statuses.put(rs.getString("id"), TaskStatus.valueOf(rs.getString("status")));
+            }
+            event.done("saveAll", "SELECT", statuses.size());
+        }
+        if (statuses.size() == ids.size()) return statuses;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT task_id, status FROM task_results WHERE task_id = ANY(?)")) {
+            ps.setObject(1, ids.stream().filter(id -> !statuses.containsKey(id)).toArray());
+            QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+            ResultSet rs = ps.executeQuery();
+            int found = 0;
+            while (rs.next()) {
+                statuses.put(rs.getString("task_id"), TaskStatus.valueOf(rs.getString("status")));
+                found++;
+            }
+            event.done("saveAll", "SELECT", found);
+        }
+        return statuses;
     }
 
     // Update task status
-    public void update(Task task) throws SQLException {
+    public synchronized void update(Task task) throws SQLException {
         save(task); // MERGE handles update
     }
 
     // Delete completed task
-    public void delete(String taskId) throws SQLException {
+    public synchronized void delete(String taskId) throws SQLException {
         String sql = "DELETE FROM tasks WHERE id = ?";
         PreparedStatement ps = connection.prepareStatement(sql);
         ps.setString(1, taskId);
-        ps.executeUpdate();
+        executeUpdate(ps, "delete", "DELETE");
+    }
+
+    // Delete tasks and their dependency edges (undoes part of a batch whose
+    // other part failed to save in another shard)
+    synchronized void deleteAll(Collection<String> taskIds) throws SQLException {
+        Object[] ids = taskIds.toArray();
+        try (PreparedStatement edges = connection.prepareStatement(
+                 "DELETE FROM task_dependencies WHERE parent_id = ANY(?) OR child_id = ANY(?)");
+             PreparedStatement tasks = connection.prepareStatement(
+                 "DELETE FROM tasks WHERE id = ANY(?)")) {
+            edges.setObject(1, ids);
+            edges.setObject(2, ids);
+            executeUpdate(edges, "deleteAll", "DELETE");
+            tasks.setObject(1, ids);
+            executeUpdate(tasks, "deleteAll", "DELETE");
+        }
+    }
+
+    // Delete a completed task and decrement the join counter of its children.
+    // Returns the children whose last parent just finished (now PENDING).
+    public synchronized List<Task> completeAndRelease(String taskId) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            List<Task> released = new ArrayList<>();
+            try (PreparedStatement decrement = connection.prepareStatement("""
+                    UPDATE tasks SET pending_parents = pending_parents - 1
+                    WHERE id IN (SELECT child_id FROM task_dependencies WHERE parent_id = ?)
+                    """)) {
+                decrement.setString(1, taskId);
+                if (executeUpdate(decrement, "completeAndRelease", "UPDATE") > 0) {
+                    try (PreparedStatement release = connection.prepareStatement("""
+                            SELECT * FROM FINAL TABLE (
+                                UPDATE tasks SET status = 'PENDING'
+                                WHERE status = 'WAITING' AND pending_parents <= 0
+                                  AND id IN (SELECT child_id FROM task_dependencies WHERE parent_id = ?)
+                            )
+                            """)) {
+                        release.setString(1, taskId);
+                        released = queryTasks(release, "completeAndRelease", "UPDATE");
+                    }
+                }
+            }
+            deleteEdgesAndTask(taskId);
+            connection.commit();
+            return released;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Fail the waiting children of a failed task.
+    // Returns the children that were failed so the caller can cascade further.
+    public synchronized List<Task> failDependents(String taskId) throws SQLException {
+        return failDependents(taskId, "Parent task failed: " + taskId);
+    }
+
+    public synchronized List<Task> failDependents(String taskId, String reason) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            List<Task> failed;
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    SELECT * FROM FINAL TABLE (
+                        UPDATE tasks SET status = 'FAILED', error_message = ?,
+                                         finished_at = LOCALTIMESTAMP
+                        WHERE status = 'WAITING'
+                          AND id IN (SELECT child_id FROM task_dependencies WHERE parent_id = ?)
+                    )
+                    """)) {
+                ps.setString(1, reason);
+                ps.setString(2, taskId);
+                failed = queryTasks(ps, "failDependents", "UPDATE");
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM task_dependencies WHERE parent_id = ?")) {
+                ps.setString(1, taskId);
+                executeUpdate(ps, "failDependents", "DELETE");
+            }
+            connection.commit();
+            return failed;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void deleteEdgesAndTask(String taskId) throws SQLException {
+        try (PreparedStatement edges = connection.prepareStatement(
+                 "DELETE FROM task_dependencies WHERE parent_id = ?");
+             PreparedStatement task = connection.prepareStatement(
+                 "DELETE FROM tasks WHERE id = ?")) {
+            edges.setString(1, taskId);
+            executeUpdate(edges, "completeAndRelease", "DELETE");
+            task.setString(1, taskId);
+            executeUpdate(task, "completeAndRelease", "DELETE");
+        }
+    }
+
+    // Atomically move a task from PENDING to PROCESSING.
+    // False if it was cancelled or claimed in the meantime.
+    public synchronized boolean claim(String taskId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE tasks SET status = 'PROCESSING' WHERE id = ? AND status = 'PENDING'")) {
+            ps.setString(1, taskId);
+            return executeUpdate(ps, "claim", "UPDATE") == 1;
+        }
+    }
+
+    // Replace the payload of a task that hasn't been claimed.
+    // False if it was claimed or cancelled in the meantime.
+    public synchronized boolean updatePendingPayload(String taskId, String payload) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE tasks SET payload = ? WHERE id = ? AND status = 'PENDING'")) {
+            ps.setString(1, payload);
+            ps.setString(2, taskId);
+            return executeUpdate(ps, "updatePendingPayload", "UPDATE") == 1;
+        }
+    }
+
+    // Cancel a task that hasn't started. False if it is running or finished.
+    public synchronized boolean cancelPending(String taskId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                UPDATE tasks SET status = 'CANCELLED', error_message = 'Cancelled',
+                                 finished_at = LOCALTIMESTAMP
+                WHERE id = ? AND status IN ('PENDING', 'WAITING')
+                """)) {
+            ps.setString(1, taskId);
+            return executeUpdate(ps, "cancelPending", "UPDATE") == 1;
+        }
+    }
+
+    // Cancel a task as expired unless it already finished. False if it had.
+    public synchronized boolean expire(String taskId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                UPDATE tasks SET status = 'CANCELLED', error_message = 'Expired',
+                                 finished_at = LOCALTIMESTAMP
+                WHERE id = ? AND status IN ('PENDING', 'WAITING', 'PROCESSING')
+                """)) {
+            ps.setString(1, taskId);
+            return executeUpdate(ps, "expire", "UPDATE") == 1;
+        }
+    }
+
+    // Cancel up to limit queued or waiting tasks whose deadline is at or
+    // before now, earliest first. Returns them, marked expired.
+    public synchronized List<Task> expireDue(LocalDateTime now, int limit) throws SQLException {
+        List<Task> expired;
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT * FROM tasks
+                WHERE expires_at <= ? AND status IN ('PENDING', 'WAITING')
+                ORDER BY expires_at
+                LIMIT ?
+                """)) {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setInt(2, limit);
+            expired = queryTasks(ps, "expireDue", "SELECT");
+        }
+        if (expired.isEmpty()) return expired;
+
+        // Same connection and lock as every other write: nothing changes in between
+        try (PreparedStatement ps = connection.prepareStatement("""
+                UPDATE tasks SET status = 'CANCELLED', error_message = 'Expired',
+                                 finished_at = LOCALTIMESTAMP
+                WHERE id = ANY(?)
+                """)) {
+            ps.setObject(1, expired.stream().map(Task::getId).toArray());
+            executeUpdate(ps, "expireDue", "UPDATE");
+        }
+        for (Task task : expired) {
+            task.setStatus(TaskStatus.CANCELLED);
+            task.setErrorMessage("Expired");
+        }
+        return expired;
+    }
+
+    // Get a single task, or null if it doesn't exist (completed tasks are deleted).
+    // Falls back to the archive for old failed/cancelled tasks.
+    public synchronized Task getTask(String taskId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM tasks WHERE id = ?")) {
+            ps.setString(1, taskId);
+            List<Task> tasks = queryTasks(ps, "getTask", "SELECT");
+            if (!tasks.isEmpty()) return tasks.get(0);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT * FROM tasks_archive WHERE id = ?")) {
+            ps.setString(1, taskId);
+            List<Task> tasks = queryTasks(ps, "getTask", "SELECT");
+            return tasks.isEmpty() ? null : tasks.get(0);
+        }
+    }
+
+    // Move up to limit failed/cancelled tasks that finished before the cutoff
+    // from the hot table to the archive, in one transaction. Returns the count.
+    public synchronized int archiveFinished(LocalDateTime finishedBefore, int limit) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT id FROM tasks
+                WHERE status IN ('FAILED', 'CANCELLED')
+                  AND (finished_at IS NULL OR finished_at <= ?)
+                LIMIT ?
+                """)) {
+            ps.setTimestamp(1, Timestamp.valueOf(finishedBefore));
+            ps.setInt(2, limit);
+            QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) ids.add(rs.getString(1));
+            event.done("archiveFinished", "SELECT", ids.size());
+        }
+        if (ids.isEmpty()) return 0;
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement copy = connection.prepareStatement(archiveSql);
+             PreparedStatement delete = connection.prepareStatement(
+                 "DELETE FROM tasks WHERE id = ANY(?)")) {
+            copy.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            copy.setObject(2, ids.toArray());
+            executeUpdate(copy, "archiveFinished", "INSERT");
+            delete.setObject(1, ids.toArray());
+            executeUpdate(delete, "archiveFinished", "DELETE");
+            connection.commit();
+            return ids.size();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Delete up to limit archived tasks with this status archived before the cutoff
+    public synchronized int purgeArchive(TaskStatus status, LocalDateTime archivedBefore, int limit)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM tasks_archive WHERE status = ? AND archived_at <= ? LIMIT ?")) {
+            ps.setString(1, status.name());
+            ps.setTimestamp(2, Timestamp.valueOf(archivedBefore));
+            ps.setInt(3, limit);
+            return executeUpdate(ps, "purgeArchive", "DELETE");
+        }
+    }
+
+    // Rewrite the database file without free space. H2 can only compact a
+    // file store while it is closed, so this closes and reopens the database;
+    // every other call waits on this lock meanwhile. No-op for in-memory URLs.
+    public synchronized boolean compact() throws SQLException {
+        if (url.startsWith("jdbc:h2:mem:")) return false;
+        connection.createStatement().execute("SHUTDOWN COMPACT");
+        connection = DriverManager.getConnection(url, "sa", "");
+        return true;
     }
 
     // Get all pending tasks ready to execute
-    public List<Task> getPendingTasks() throws SQLException {
+    public synchronized List<Task> getPendingTasks() throws SQLException {
         String sql = """
-            SELECT * FROM tasks 
-            WHERE status = 'PENDING' AND execute_at <= ? 
+            SELECT * FROM tasks
+            WHERE status = 'PENDING' AND execute_at <= ?
             ORDER BY execute_at
             """;
         PreparedStatement ps = connection.prepareStatement(sql);
         ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-        return resultToTasks(ps.executeQuery());
+        return queryTasks(ps, "getPendingTasks", "SELECT");
+    }
+
+    // Get a tenant's oldest ready tasks, at most limit rows.
+    // Expired ones are left to the expiry sweep instead of being paged in.
+    public synchronized List<Task> getPendingTasks(String tenant, int limit) throws SQLException {
+        String sql = """
+            SELECT * FROM tasks
+            WHERE tenant = ? AND status = 'PENDING' AND execute_at <= ?
+              AND (expires_at IS NULL OR expires_at > ?)
+            ORDER BY execute_at
+            LIMIT ?
+            """;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            ps.setString(1, tenant);
+            ps.setTimestamp(2, now);
+            ps.setTimestamp(3, now);
+            ps.setInt(4, limit);
+            return queryTasks(ps, "getPendingTasks", "SELECT");
+        }
+    }
+
+    // Unfinished tasks per tenant (seeds the in-memory backlog counters)
+    public synchronized Map<String, Integer> countUnfinishedByTenant() throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT tenant, COUNT(*) FROM tasks
+                WHERE status IN ('PENDING', 'WAITING', 'PROCESSING')
+                GROUP BY tenant
+                """)) {
+            QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) counts.put(rs.getString(1), rs.getInt(2));
+            event.done("countUnfinishedByTenant", "SELECT", counts.size());
+        }
+        return counts;
+    }
+
+    // Oldest unfinished task with the ordering key: the one allowed to run
+    public synchronized String getOldestUnfinished(String orderingKey) throws SQLException {
+        Task oldest = getOldestUnfinishedTask(orderingKey);
+        return oldest != null ? oldest.getId() : null;
+    }
+
+    synchronized Task getOldestUnfinishedTask(String orderingKey) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT * FROM tasks
+                WHERE ordering_key = ? AND status IN ('PENDING', 'WAITING', 'PROCESSING')
+                ORDER BY created_at, id LIMIT 1
+                """)) {
+            ps.setString(1, orderingKey);
+            List<Task> tasks = queryTasks(ps, "getOldestUnfinished", "SELECT");
+            return tasks.isEmpty() ? null : tasks.get(0);
+        }
+    }
+
+    // Pending tasks with a coalesce key (rebuilds the in-memory key index)
+    public synchronized List<Task> getPendingCoalesced() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT * FROM tasks
+                WHERE status = 'PENDING' AND coalesce_key IS NOT NULL
+                ORDER BY created_at, id
+                """)) {
+            return queryTasks(ps, "getPendingCoalesced", "SELECT");
+        }
+    }
+
+    // Put tasks left PROCESSING by a crash or forced shutdown back to PENDING
+    public synchronized int resetStranded() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE tasks SET status = 'PENDING' WHERE status = 'PROCESSING'")) {
+            return executeUpdate(ps, "resetStranded", "UPDATE");
+        }
     }
 
     // Get all tasks (for monitoring)
-    public List<Task> getAllTasks() throws SQLException {
+    public synchronized List<Task> getAllTasks() throws SQLException {
         String sql = "SELECT * FROM tasks ORDER BY created_at DESC";
-        return resultToTasks(connection.createStatement().executeQuery(sql));
+        return queryTasks(connection.prepareStatement(sql), "getAllTasks", "SELECT");
     }
 
     // Get tasks by status
-    public List<Task> getTasksByStatus(TaskStatus status) throws SQLException {
+    public synchronized List<Task> getTasksByStatus(TaskStatus status) throws SQLException {
         String sql = "SELECT * FROM tasks WHERE status = ?";
         PreparedStatement ps = connection.prepareStatement(sql);
         ps.setString(1, status.name());
-        return resultToTasks(ps.executeQuery());
+        return queryTasks(ps, "getTasksByStatus", "SELECT");
+    }
+
+    // Store task results (one batch, one round trip)
+    public synchronized void saveResults(List<TaskResult> results) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("""
+                MERGE INTO task_results (task_id, type, status, result, error_message,
+                                         completed_at, expires_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """)) {
+            for (TaskResult result : results) {
+                ps.setString(1, result.getTaskId());
+                ps.setString(2, result.getType());
+                ps.setString(3, result.getStatus().name());
+                ps.setString(4, result.getResult());
+                ps.setString(5, result.getErrorMessage());
+                ps.setTimestamp(6, Timestamp.valueOf(result.getCompletedAt()));
+                ps.setTimestamp(7, Timestamp.valueOf(result.getExpiresAt()));
+                ps.addBatch();
+            }
+            executeBatch(ps, "saveResults", "MERGE");
+        }
+    }
+
+    // Get a task's result, or null if there is none
+    public synchronized TaskResult getResult(String taskId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT * FROM task_results WHERE task_id = ?")) {
+            ps.setString(1, taskId);
+            QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+            ResultSet rs = ps.executeQuery();
+            boolean found = rs.next();
+            event.done("getResult", "SELECT", found ? 1 : 0);
+            if (!found) return null;
+            return new TaskResult(
+                rs.getString("task_id"),
+                rs.getString("type"),
+                TaskStatus.valueOf(rs.getString("status")),
+                rs.getString("result"),
+                rs.getString("error_message"),
+                rs.getTimestamp("completed_at").toLocalDateTime(),
+                rs.getTimestamp("expires_at").toLocalDateTime()
+            );
+        }
+    }
+
+    // Delete up to limit expired results; callers loop until fewer come back
+    // (a sharded store deletes up to limit per shard, so possibly more)
+    public synchronized int deleteExpiredResults(LocalDateTime now, int limit) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM task_results WHERE expires_at <= ? LIMIT ?")) {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setInt(2, limit);
+            return executeUpdate(ps, "deleteExpiredResults", "DELETE");
+        }
+    }
+
+    // Statements are timed as JFR DbStatement events, labelled with the
+    // public method that ran them and the SQL verb
+
+    private static int executeUpdate(PreparedStatement ps, String operation, String kind)
+            throws SQLException {
+        QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+        int rows = ps.executeUpdate();
+        event.done(operation, kind, rows);
+        return rows;
+    }
+
+    private static void executeBatch(PreparedStatement ps, String operation, String kind)
+            throws SQLException {
+        QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+        int rows = 0;
+        for (int count : ps.executeBatch()) rows += Math.max(count, 0);
+        event.done(operation, kind, rows);
+    }
+
+    // A statement whose rows are tasks (SELECT, or UPDATE through FINAL TABLE)
+    private List<Task> queryTasks(PreparedStatement ps, String operation, String kind)
+            throws SQLException {
+        QueueEvents.DbStatement event = QueueEvents.DbStatement.start();
+        List<Task> tasks = resultToTasks(ps.executeQuery());
+        event.done(operation, kind, tasks.size());
+        return tasks;
     }
 
     // Convert ResultSet to Task list
     private List<Task> resultToTasks(ResultSet rs) throws SQLException {
         List<Task> tasks = new ArrayList<>();
         while (rs.next()) {
-            tasks.add(new Task(
+            Task task = new Task(
                 rs.getString("id"),
                 rs.getString("type"),
                 rs.getString("payload"),
@@ -109,13 +748,24 @@ public class DatabaseManager {
                 rs.getTimestamp("created_at").toLocalDateTime(),
                 rs.getTimestamp("execute_at").toLocalDateTime(),
                 rs.getString("error_message")
-            ));
+            );
+            String parentIds = rs.getString("parent_ids");
+            if (parentIds != null && !parentIds.isEmpty()) {
+                task.setParentIds(Arrays.asList(parentIds.split(",")));
+            }
+            task.setTimeoutMs(rs.getLong("timeout_ms"));
+            task.setTenant(rs.getString("tenant"));
+            task.setOrderingKey(rs.getString("ordering_key"));
+            task.setCoalesceKey(rs.getString("coalesce_key"));
+            Timestamp expiresAt = rs.getTimestamp("expires_at");
+            if (expiresAt != null) task.setExpiresAt(expiresAt.toLocalDateTime());
+            tasks.add(task);
         }
         return tasks;
     }
 
-    public void close() throws SQLException {
+    public synchronized void close() throws SQLException {
         if (connection != null) connection.close();
         System.out.println("[DB] Database closed");
     }
-}
\ No newline at end of file
+}
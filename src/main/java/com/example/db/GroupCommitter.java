@@ -0,0 +1,94 @@
+package com.example.db;
+
+import com.example.model.Task;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Group commit: concurrent submitters share one transaction. A single
+// writer thread commits whatever is waiting, and everything that arrives
+// while that commit runs forms the next batch. With one submitter this is a
+// plain write; under load N submitters pay for one commit instead of N.
+// commit() still returns only once the task is durable.
+public class GroupCommitter {
+
+    private static final int MAX_BATCH = 512;
+
+    private record Pending(Task task, CompletableFuture<Void> committed) {}
+
+    // Queued by shutdown; the writer exits once everything before it is committed
+    private static final Pending STOP = new Pending(null, null);
+
+    private final DatabaseManager db;
+    private final BlockingQueue<Pending> waiting = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    public GroupCommitter(DatabaseManager db) {
+        this.db = db;
+        this.writer = new Thread(this::run, "group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Blocks until the batch holding the task is committed
+    public void commit(Task task) throws SQLException {
+        Pending pending = new Pending(task, new CompletableFuture<>());
+        waiting.add(pending);
+        while (true) {
+            try {
+                pending.committed().get(1, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // The writer stopped (shutdown) before it picked this one up
+                if (!writer.isAlive() && waiting.remove(pending)) {
+                    db.save(task);
+                    return;
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException sql) throw sql;
+                throw new SQLException("Group commit failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for group commit", e);
+            }
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping || !waiting.isEmpty()) {
+            try {
+                batch.add(waiting.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            waiting.drainTo(batch, MAX_BATCH - 1);
+            stopping |= batch.remove(STOP);
+            if (!batch.isEmpty()) flush(batch);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<Task> tasks = new ArrayList<>(batch.size());
+        for (Pending pending : batch) tasks.add(pending.task());
+        try {
+            db.saveAll(tasks);
+            for (Pending pending : batch) pending.committed().complete(null);
+        } catch (Exception e) {
+            for (Pending pending : batch) pending.committed().completeExceptionally(e);
+        }
+        batch.clear();
+    }
+
+    // Not interrupted: that could land in the middle of a database write
+    public void shutdown() {
+        waiting.add(STOP);
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.db;
+
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Spreads tasks over several independent H2 databases (shards), so writes
+// to different shards don't queue on one connection and one MVStore.
+// A task lives in the shard picked by the hash of its ID. Workflow
+// children and all dependency edges are the exception: they live in shard
+// 0, so releasing or failing a parent's children stays one transaction.
+// Results go by the hash of their task ID.
+// Each shard has its own connection, lock and thread. Calls about one task
+// run on the caller's thread under that shard's lock. Calls that touch
+// every shard (recovery, sweeps, listings, multi-shard batches) run on the
+// shard threads in parallel and are merged here. Sweeps handle up to
+// limit rows per shard. The connection of the base class is never opened.
+public class ShardedDatabaseManager extends DatabaseManager {
+
+    // %d is the shard number
+    private static final String DEFAULT_URL = "jdbc:h2:./data/javaqueue-shard%d;DB_CLOSE_ON_EXIT=FALSE";
+    // Submit order, as in a single database
+    private static final Comparator<Task> CREATED =
+        Comparator.comparing(Task::getCreatedAt).thenComparing(Task::getId);
+
+    private final DatabaseManager[] shards;
+    private final ExecutorService[] threads;
+
+    private interface ShardCall<T> {
+        T call(DatabaseManager shard) throws SQLException;
+    }
+
+    // count shards next to the default file; -Djavaqueue.db.shard.url
+    // overrides the location (with %d for the shard number)
+    public ShardedDatabaseManager(int count) {
+        this(urls(System.getProperty("javaqueue.db.shard.url", DEFAULT_URL), count));
+    }
+
+    // One JDBC URL per shard (e.g. one per disk)
+    public ShardedDatabaseManager(List<String> urls) {
+        super(urls.get(0));
+        this.shards = new DatabaseManager[urls.size()];
+        this.threads = new ExecutorService[urls.size()];
+        for (int i = 0; i < shards.length; i++) {
+            String name = "db-shard-" + i;
+            shards[i] = new DatabaseManager(urls.get(i));
+            threads[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static List<String> urls(String pattern, int count) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < count; i++) urls.add(String.format(pattern, i));
+        return urls;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private int indexOf(String taskId) {
+        return Math.floorMod(taskId.hashCode(), shards.length);
+    }
+
+    private int indexOf(Task task) {
+        return task.hasParents() ? 0 : indexOf(task.getId());
+    }
+
+    private DatabaseManager home(String taskId) {
+        return shards[indexOf(taskId)];
+    }
+
+    // Run call on every shard's thread at once; results in shard order.
+    // Waits for every shard before reporting a failure.
+    private <T> List<T> onEveryShard(ShardCall<T> call) throws SQLException {
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            DatabaseManager shard = shards[i];
+            futures.add(threads[i].submit(() -> call.call(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        SQLException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (SQLException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a shard", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new SQLException(cause);
+        }
+    }
+
+    private static <T> List<T> merge(List<List<T>> lists, Comparator<T> order, int limit) {
+        List<T> merged = new ArrayList<>();
+        for (List<T> list : lists) merged.addAll(list);
+        merged.sort(order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static int sum(List<Integer> counts) {
+        int total = 0;
+        for (int count : counts) total += count;
+        return total;
+    }
+
+    @Override
+    public void init() throws SQLException {
+        onEveryShard(shard -> {
+            shard.init();
+            return null;
+        });
+        System.out.println("[DB] " + shards.length + " shards initialized");
+    }
+
+    @Override
+    public void save(Task task) throws SQLException {
+        shards[indexOf(task)].save(task);
+    }
+
+    @Override
+    public void update(Task task) throws SQLException {
+        shards[indexOf(task)].save(task);
+    }
+
+    // Each shard's part of the batch is one transaction; the parts are saved
+    // in parallel. Children are saved under shard 0's lock together with
+    // the lookup of their parents (wherever those live), so a parent can't
+    // complete between the two; completeAndRelease takes the same lock.
+    // If any part fails, the parts already saved are deleted again.
+    @Override
+    public List<Task> saveAll(List<Task> tasks) throws SQLException {
+        Map<Integer, List<Task>> parts = new TreeMap<>();
+        for (Task task : tasks) parts.computeIfAbsent(indexOf(task), i -> new ArrayList<>()).add(task);
+        if (parts.size() == 1 && !parts.containsKey(0)) {
+            // One shard and no children (the common case): no handoff
+            Map.Entry<Integer, List<Task>> part = parts.entrySet().iterator().next();
+            return shards[part.getKey()].saveAll(part.getValue(), Map.of());
+        }
+        List<Task> workflowPart = parts.remove(0);
+
+        Map<Integer, Future<List<Task>>> saving = new TreeMap<>();
+        for (Map.Entry<Integer, List<Task>> part : parts.entrySet()) {
+            DatabaseManager shard = shards[part.getKey()];
+            // No parents in these parts: nothing to look up
+            saving.put(part.getKey(), threads[part.getKey()].submit(
+                () -> shard.saveAll(part.getValue(), Map.of())));
+        }
+        List<List<Task>> saved = new ArrayList<>();
+        Exception failure = null;
+        if (workflowPart != null) {
+            try {
+                synchronized (shards[0]) {
+                    shards[0].saveAll(workflowPart, parentStatuses(tasks));
+                }
+                saved.add(workflowPart);
+            } catch (SQLException | IllegalArgumentException e) {
+                // An unknown parent rejects the whole batch
+                failure = e;
+            }
+        }
+        for (Map.Entry<Integer, Future<List<Task>>> part : saving.entrySet()) {
+            try {
+                await(part.getValue());
+                saved.add(parts.get(part.getKey()));
+            } catch (SQLException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            for (List<Task> part : saved) undo(part);
+            if (failure instanceof SQLException sql) throw sql;
+            throw (IllegalArgumentException) failure;
+        }
+
+        List<Task> ready = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getStatus() == TaskStatus.PENDING) ready.add(task);
+        }
+        return ready;
+    }
+
+    // Status of the batch's parents: in their hash shard, or in shard 0 if
+    // they are children themselves. Parents in the batch count as unfinished.
+    private Map<String, TaskStatus> parentStatuses(List<Task> tasks) throws SQLException {
+        Set<String> parentIds = new LinkedHashSet<>();
+        for (Task task : tasks) parentIds.addAll(task.getParentIds());
+        Map<String, TaskStatus> statuses = new HashMap<>();
+        if (parentIds.isEmpty()) return statuses;
+
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        for (String parentId : parentIds) {
+            byShard.computeIfAbsent(indexOf(parentId), i -> new ArrayList<>()).add(parentId);
+        }
+        statuses.putAll(shards[0].statusOf(parentIds));
+        for (Map.Entry<Integer, List<String>> ids : byShard.entrySet()) {
+            if (ids.getKey() != 0) statuses.putAll(shards[ids.getKey()].statusOf(ids.getValue()));
+        }
+        for (Task task : tasks) {
+            if (parentIds.contains(task.getId())) statuses.put(task.getId(), TaskStatus.PENDING);
+        }
+        return statuses;
+    }
+
+    private void undo(List<Task> part) {
+        List<String> ids = part.stream().map(Task::getId).toList();
+        try {
+            shards[indexOf(part.get(0))].deleteAll(ids);
+        } catch (SQLException e) {
+            System.err.println("[DB] Failed to undo a partly saved batch: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void delete(String taskId) throws SQLException {
+        home(taskId).delete(taskId);
+        if (indexOf(taskId) != 0) shards[0].delete(taskId);
+    }
+
+    // Shard 0 releases the children and drops the edges (and the row, if
+    // the task is a child itself); the lock is held until the row is gone
+    @Override
+    public List<Task> completeAndRelease(String taskId) throws SQLException {
+        synchronized (shards[0]) {
+            List<Task> released = shards[0].completeAndRelease(taskId);
+            if (indexOf(taskId) != 0) home(taskId).delete(taskId);
+            return released;
+        }
+    }
+
+    @Override
+    public List<Task> failDependents(String taskId) throws SQLException {
+        return shards[0].failDependents(taskId);
+    }
+
+    @Override
+    public List<Task> failDependents(String taskId, String reason) throws SQLException {
+        return shards[0].failDependents(taskId, reason);
+    }
+
+    // Single-task updates look in the hash shard first, then in shard 0
+    // (where the task is if it is a workflow child)
+
+    @Override
+    public boolean claim(String taskId) throws SQLException {
+        return home(taskId).claim(taskId) || (indexOf(taskId) != 0 && shards[0].claim(taskId));
+    }
+
+    @Override
+    public boolean updatePendingPayload(String taskId, String payload) throws SQLException {
+        return home(taskId).updatePendingPayload(taskId, payload)
+            || (indexOf(taskId) != 0 && shards[0].updatePendingPayload(taskId, payload));
+    }
+
+    @Override
+    public boolean cancelPending(String taskId) throws SQLException {
+        return home(taskId).cancelPending(taskId)
+            || (indexOf(taskId) != 0 && shards[0].cancelPending(taskId));
+    }
+
+    @Override
+    public boolean expire(String taskId) throws SQLException {
+        return home(taskId).expire(taskId) || (indexOf(taskId) != 0 && shards[0].expire(taskId));
+    }
+
+    @Override
+    public Task getTask(String taskId) throws SQLException {
+        Task task = home(taskId).getTask(taskId);
+        if (task == null && indexOf(taskId) != 0) task = shards[0].getTask(taskId);
+        return task;
+    }
+
+    @Override
+    public List<Task> expireDue(LocalDateTime now, int limit) throws SQLException {
+        List<Task> expired = new ArrayList<>();
+        for (List<Task> part : onEveryShard(shard -> shard.expireDue(now, limit))) expired.addAll(part);
+        return expired;
+    }
+
+    @Override
+    public int archiveFinished(LocalDateTime finishedBefore, int limit) throws SQLException {
+        return sum(onEveryShard(shard -> shard.archiveFinished(finishedBefore, limit)));
+    }
+
+    @Override
+    public int purgeArchive(TaskStatus status, LocalDateTime archivedBefore, int limit)
+            throws SQLException {
+        return sum(onEveryShard(shard -> shard.purgeArchive(status, archivedBefore, limit)));
+    }
+
+    @Override
+    public boolean compact() throws SQLException {
+        return onEveryShard(DatabaseManager::compact).contains(true);
+    }
+
+    @Override
+    public List<Task> getPendingTasks() throws SQLException {
+        return merge(onEveryShard(DatabaseManager::getPendingTasks),
+                     Comparator.comparing(Task::getExecuteAt), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Task> getPendingTasks(String tenant, int limit) throws SQLException {
+        return merge(onEveryShard(shard -> shard.getPendingTasks(tenant, limit)),
+                     Comparator.comparing(Task::getExecuteAt), limit);
+    }
+
+    @Override
+    public Map<String, Integer> countUnfinishedByTenant() throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map<String, Integer> part : onEveryShard(DatabaseManager::countUnfinishedByTenant)) {
+            part.forEach((tenant, count) -> counts.merge(tenant, count, Integer::sum));
+        }
+        return counts;
+    }
+
+    @Override
+    public String getOldestUnfinished(String orderingKey) throws SQLException {
+        Task oldest = getOldestUnfinishedTask(orderingKey);
+        return oldest != null ? oldest.getId() : null;
+    }
+
+    @Override
+    Task getOldestUnfinishedTask(String orderingKey) throws SQLException {
+        Task oldest = null;
+        for (Task task : onEveryShard(shard -> shard.getOldestUnfinishedTask(orderingKey))) {
+            if (task != null && (oldest == null || CREATED.compare(task, oldest) < 0)) oldest = task;
+        }
+        return oldest;
+    }
+
+    @Override
+    public List<Task> getPendingCoalesced() throws SQLException {
+        return merge(onEveryShard(DatabaseManager::getPendingCoalesced), CREATED, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int resetStranded() throws SQLException {
+        return sum(onEveryShard(DatabaseManager::resetStranded));
+    }
+
+    @Override
+    public List<Task> getAllTasks() throws SQLException {
+        return merge(onEveryShard(DatabaseManager::getAllTasks),
+                     Comparator.comparing(Task::getCreatedAt).reversed(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) throws SQLException {
+        List<Task> tasks = new ArrayList<>();
+        for (List<Task> part : onEveryShard(shard -> shard.getTasksByStatus(status))) tasks.addAll(part);
+        return tasks;
+    }
+
+    // One batch per shard; several shards write in parallel
+    @Override
+    public void saveResults(List<TaskResult> results) throws SQLException {
+        Map<Integer, List<TaskResult>> parts = new TreeMap<>();
+        for (TaskResult result : results) {
+            parts.computeIfAbsent(indexOf(result.getTaskId()), i -> new ArrayList<>()).add(result);
+        }
+        if (parts.size() == 1) {
+            Map.Entry<Integer, List<TaskResult>> part = parts.entrySet().iterator().next();
+            shards[part.getKey()].saveResults(part.getValue());
+            return;
+        }
+        List<Future<Void>> saving = new ArrayList<>();
+        for (Map.Entry<Integer, List<TaskResult>> part : parts.entrySet()) {
+            DatabaseManager shard = shards[part.getKey()];
+            saving.add(threads[part.getKey()].submit(() -> {
+                shard.saveResults(part.getValue());
+                return null;
+            }));
+        }
+        SQLException failure = null;
+        for (Future<Void> future : saving) {
+            try {
+                await(future);
+            } catch (SQLException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public TaskResult getResult(String taskId) throws SQLException {
+        return home(taskId).getResult(taskId);
+    }
+
+    @Override
+    public int deleteExpiredResults(LocalDateTime now, int limit) throws SQLException {
+        return sum(onEveryShard(shard -> shard.deleteExpiredResults(now, limit)));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (ExecutorService thread : threads) thread.shutdown();
+        SQLException failure = null;
+        for (DatabaseManager shard : shards) {
+            try {
+                shard.close();
+            } catch (SQLException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.db;
+
+import com.example.metrics.QueueEvents;
+import com.example.model.TaskStatus;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the hot tasks table small and the database file from growing forever:
+// - archival: failed/cancelled tasks move to tasks_archive shortly after they finish
+// - retention: archived tasks are deleted after a per-status age
+// - compaction: the file is periodically rewritten to reclaim free space
+// Work runs in small batches so a worker's statement never waits long behind it.
+public class StorageMaintenance {
+
+    private static final Duration ARCHIVE_AFTER = Duration.ofMinutes(1);
+    private static final int BATCH_SIZE = 500;
+    private static final long ARCHIVE_INTERVAL_SECONDS = 10;
+    private static final long RETENTION_INTERVAL_MINUTES = 60;
+    private static final Duration DEFAULT_COMPACT_INTERVAL = Duration.ofHours(24);
+
+    private final DatabaseManager db;
+    private final Map<TaskStatus, Duration> retention = new EnumMap<>(TaskStatus.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private Duration compactInterval = DEFAULT_COMPACT_INTERVAL;
+
+    public StorageMaintenance(DatabaseManager db) {
+        this.db = db;
+        retention.put(TaskStatus.FAILED, Duration.ofDays(30));
+        retention.put(TaskStatus.CANCELLED, Duration.ofDays(7));
+    }
+
+    // How long archived tasks with this status are kept
+    public StorageMaintenance retain(TaskStatus status, Duration age) {
+        retention.put(status, age);
+        return this;
+    }
+
+    // Zero or negative disables compaction
+    public StorageMaintenance compactEvery(Duration interval) {
+        this.compactInterval = interval;
+        return this;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::archive,
+            ARCHIVE_INTERVAL_SECONDS, ARCHIVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::purge,
+            1, RETENTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        if (!compactInterval.isZero() && !compactInterval.isNegative()) {
+            long minutes = Math.max(1, compactInterval.toMinutes());
+            scheduler.scheduleWithFixedDelay(this::compact, minutes, minutes, TimeUnit.MINUTES);
+        }
+        System.out.println("[DB] Storage maintenance started (retention: " + retention + ")");
+    }
+
+    // Move terminal rows out of the hot table, one batch (= one transaction) at a time
+    void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(ARCHIVE_AFTER);
+        QueueEvents.SchedulerSweep sweep = QueueEvents.SchedulerSweep.start();
+        int total = 0;
+        try {
+            int moved;
+            do {
+                moved = db.archiveFinished(cutoff, BATCH_SIZE);
+                total += moved;
+            } while (moved >= BATCH_SIZE);
+            if (total > 0) {
+                System.out.println("[DB] Archived " + total + " finished tasks");
+            }
+        } catch (SQLException e) {
+            System.err.println("[DB] Archival failed: " + e.getMessage());
+        }
+        sweep.done("archival", total);
+    }
+
+    void purge() {
+        QueueEvents.SchedulerSweep sweep = QueueEvents.SchedulerSweep.start();
+        int purged = 0;
+        try {
+            for (Map.Entry<TaskStatus, Duration> entry : retention.entrySet()) {
+                LocalDateTime cutoff = LocalDateTime.now().minus(entry.getValue());
+                int total = 0;
+                int deleted;
+                do {
+                    deleted = db.purgeArchive(entry.getKey(), cutoff, BATCH_SIZE);
+                    total += deleted;
+                } while (deleted >= BATCH_SIZE);
+                purged += total;
+                if (total > 0) {
+                    System.out.println("[DB] Purged " + total + " archived " + entry.getKey() + " tasks");
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[DB] Retention purge failed: " + e.getMessage());
+        }
+        sweep.done("retention", purged);
+    }
+
+    void compact() {
+        long start = System.currentTimeMillis();
+        try {
+            if (db.compact()) {
+                System.out.println("[DB] Compacted database in "
+                                   + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (SQLException e) {
+            System.err.println("[DB] Compaction failed: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -13,8 +13,14 @@ public class EmailTaskHandler implements TaskHandler {
         return "email";
     }
 
+    // A hung SMTP call must not pin a worker
     @Override
-    public void handle(Task task) throws Exception {
+    public long getTimeoutMs() {
+        return 10_000;
+    }
+
+    @Override
+    public String handle(Task task) throws Exception {
         System.out.println("    → Sending email: " + task.getPayload());
         
         // Simulate work (1-3 seconds)
@@ -26,5 +32,6 @@ public class EmailTaskHandler implements TaskHandler {
         }
         
         System.out.println("    ✓ Email sent successfully!");
+        return "Delivered to " + task.getPayload();
     }
 }
\ No newline at end of file
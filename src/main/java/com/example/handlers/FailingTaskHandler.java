@@ -12,7 +12,7 @@ public class FailingTaskHandler implements TaskHandler {
     }
 
     @Override
-    public void handle(Task task) throws Exception {
+    public String handle(Task task) throws Exception {
         System.out.println("    → Attempting task: " + task.getPayload());
         throw new Exception("Simulated failure - always fails");
     }
@@ -14,7 +14,25 @@ public class ReportTaskHandler implements TaskHandler {
     }
 
     @Override
-    public void handle(Task task) throws Exception {
+    public long getTimeoutMs() {
+        return 30_000;
+    }
+
+    // Rewrites the same reports/<id>.pdf, so a second run is harmless (it is
+    // still not hedged while getMaxConcurrency() gives it a bulkhead)
+    @Override
+    public boolean isIdempotent() {
+        return true;
+    }
+
+    // Slow; keep a report backlog from tying up every worker
+    @Override
+    public int getMaxConcurrency() {
+        return 2;
+    }
+
+    @Override
+    public String handle(Task task) throws Exception {
         System.out.println("    → Generating report: " + task.getPayload());
         
         // Simulate work (2-4 seconds)
@@ -26,5 +44,6 @@ public class ReportTaskHandler implements TaskHandler {
         }
         
         System.out.println("    ✓ Report generated successfully!");
+        return "reports/" + task.getId() + ".pdf";
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.example.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Starts, dumps and stops a JFR recording of the process on demand
+// (/recording endpoints, or -Djavaqueue.jfr at startup). One recording at
+// a time. It keeps a rolling window of the last MAX_AGE / MAX_SIZE on disk,
+// so it can stay on in production and be dumped after a latency spike.
+// "default" is the JDK's continuous low-overhead settings plus the queue
+// events; "profile" adds more sampling and every DbStatement.
+public class FlightRecording {
+
+    private static final Path DEFAULT_DIR = Path.of("./data/recordings");
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // Singleton instance
+    private static final FlightRecording INSTANCE = new FlightRecording(DEFAULT_DIR);
+    public static FlightRecording getInstance() { return INSTANCE; }
+
+    private final Path dir;
+    private Recording recording;  // guarded by this
+    private String settings;
+
+    public record Status(boolean running, String settings, Instant startedAt, long sizeBytes,
+                         Duration maxAge) {}
+
+    // Tests record somewhere else
+    public FlightRecording(Path dir) {
+        this.dir = dir;
+    }
+
+    // Start recording with "default" or "profile" settings; false if already running
+    public synchronized boolean start(String settings) throws IOException, ParseException {
+        if (!settings.equals("default") && !settings.equals("profile")) {
+            throw new IllegalArgumentException("settings must be default or profile");
+        }
+        if (recording != null) return false;
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        started.setName("javaqueue");
+        started.setToDisk(true);
+        started.setMaxAge(MAX_AGE);
+        started.setMaxSize(MAX_SIZE);
+        started.enable(QueueEvents.TaskDequeue.class);
+        started.enable(QueueEvents.HandlerExecution.class);
+        started.enable(QueueEvents.RetryScheduled.class);
+        started.enable(QueueEvents.DeadLetter.class);
+        started.enable(QueueEvents.SchedulerSweep.class);
+        if (settings.equals("profile")) {
+            started.enable(QueueEvents.DbStatement.class).withThreshold(Duration.ZERO);
+        } else {
+            started.enable(QueueEvents.DbStatement.class);
+        }
+        started.start();
+        recording = started;
+        this.settings = settings;
+        System.out.println("[JFR] Recording started (" + settings + " settings)");
+        return true;
+    }
+
+    // Write what has been recorded so far to a new file and keep recording;
+    // null if nothing is recording
+    public synchronized Path dump() throws IOException {
+        if (recording == null) return null;
+        Files.createDirectories(dir);
+        Path file = dir.resolve("javaqueue-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        recording.dump(file);
+        System.out.println("[JFR] Recording dumped to " + file);
+        return file;
+    }
+
+    // Dump, then stop recording; null if nothing is recording
+    public synchronized Path stop() throws IOException {
+        if (recording == null) return null;
+        Path file;
+        try {
+            recording.stop();
+            file = dump();
+        } finally {
+            recording.close();
+            recording = null;
+        }
+        System.out.println("[JFR] Recording stopped");
+        return file;
+    }
+
+    public synchronized Status status() {
+        if (recording == null) return new Status(false, null, null, 0, MAX_AGE);
+        return new Status(true, settings, recording.getStartTime(), recording.getSize(), MAX_AGE);
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.metrics;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class MetricsCollector {
@@ -8,9 +13,25 @@ public class MetricsCollector {
     private final AtomicLong tasksSubmitted = new AtomicLong(0);
     private final AtomicLong tasksCompleted = new AtomicLong(0);
     private final AtomicLong tasksFailed = new AtomicLong(0);
+    private final AtomicLong tasksCancelled = new AtomicLong(0);
+    private final AtomicLong tasksTimedOut = new AtomicLong(0);
+    private final AtomicLong tasksExpired = new AtomicLong(0);
+    // Speculative twins of straggling runs: launched, refused by the budget, won
+    private final AtomicLong hedges = new AtomicLong(0);
+    private final AtomicLong hedgesDenied = new AtomicLong(0);
+    private final AtomicLong hedgeWins = new AtomicLong(0);
     private final AtomicLong totalProcessingTimeMs = new AtomicLong(0);
     private final Instant startTime = Instant.now();
 
+    // Worker pool size and autoscaling decisions
+    private static final int MAX_SCALING_EVENTS = 20;
+    private final AtomicInteger activeWorkers = new AtomicInteger(0);
+    private final AtomicLong scaleUps = new AtomicLong(0);
+    private final AtomicLong scaleDowns = new AtomicLong(0);
+    private final Deque<ScalingEvent> scalingEvents = new ArrayDeque<>();
+
+    public record ScalingEvent(String time, int from, int to, String reason) {}
+
     // Singleton instance
     private static final MetricsCollector INSTANCE = new MetricsCollector();
     public static MetricsCollector getInstance() { return INSTANCE; }
@@ -28,11 +49,70 @@ public class MetricsCollector {
         tasksFailed.incrementAndGet();
     }
 
+    public void recordCancelled() {
+        tasksCancelled.incrementAndGet();
+    }
+
+    // Handler exceeded its deadline (the task may still be retried)
+    public void recordTimeout() {
+        tasksTimedOut.incrementAndGet();
+    }
+
+    // Dropped unrun because its deadline passed
+    public void recordExpired(int count) {
+        tasksExpired.addAndGet(count);
+    }
+
+    public void recordHedge(boolean launched) {
+        (launched ? hedges : hedgesDenied).incrementAndGet();
+    }
+
+    // The speculative twin finished first
+    public void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    public void setActiveWorkers(int count) {
+        activeWorkers.set(count);
+    }
+
+    public void recordScaling(int from, int to, String reason) {
+        activeWorkers.set(to);
+        (to > from ? scaleUps : scaleDowns).incrementAndGet();
+        synchronized (scalingEvents) {
+            if (scalingEvents.size() == MAX_SCALING_EVENTS) scalingEvents.removeFirst();
+            scalingEvents.addLast(new ScalingEvent(Instant.now().toString(), from, to, reason));
+        }
+    }
+
     // Getters
     public long getTasksSubmitted() { return tasksSubmitted.get(); }
     public long getTasksCompleted() { return tasksCompleted.get(); }
     public long getTasksFailed() { return tasksFailed.get(); }
+    public long getTasksCancelled() { return tasksCancelled.get(); }
+    public long getTasksTimedOut() { return tasksTimedOut.get(); }
+    public long getTasksExpired() { return tasksExpired.get(); }
+    public long getHedges() { return hedges.get(); }
+    public long getHedgesDenied() { return hedgesDenied.get(); }
+    public long getHedgeWins() { return hedgeWins.get(); }
+    public int getActiveWorkers() { return activeWorkers.get(); }
+    public long getScaleUps() { return scaleUps.get(); }
+    public long getScaleDowns() { return scaleDowns.get(); }
+
+    // Most recent scaling decisions, oldest first
+    public List<ScalingEvent> getScalingEvents() {
+        synchronized (scalingEvents) {
+            return new ArrayList<>(scalingEvents);
+        }
+    }
     
+    // Changes whenever any reported value does (every counter only grows)
+    public long getVersion() {
+        return tasksSubmitted.get() + tasksCompleted.get() + tasksFailed.get() + tasksCancelled.get()
+            + tasksTimedOut.get() + tasksExpired.get() + hedges.get() + hedgesDenied.get()
+            + hedgeWins.get() + scaleUps.get() + scaleDowns.get() + getUptimeSeconds();
+    }
+
     public long getUptimeSeconds() {
         return Instant.now().getEpochSecond() - startTime.getEpochSecond();
     }
@@ -0,0 +1,188 @@
+package com.example.metrics;
+
+import com.example.model.Task;
+import java.time.Duration;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events for queue internals, so a recording ties the
+// generic thread and JDBC activity back to what the queue was doing. They
+// are recorded by any JFR recording (-XX:StartFlightRecording or
+// POST /recording/start). Timed events are started with start() and
+// finished with done(...); while nothing records them that costs a
+// shouldCommit() check, and fields are only filled in when it passes.
+public final class QueueEvents {
+
+    private QueueEvents() {}
+
+    @Name("javaqueue.TaskDequeue")
+    @Label("Task Dequeue")
+    @Category({"JavaQueue", "Worker"})
+    @Description("A worker waited for a task and took it (duration = time the worker waited)")
+    @StackTrace(false)
+    public static class TaskDequeue extends Event {
+        @Label("Task ID") public String taskId;
+        @Label("Type") public String type;
+        @Label("Tenant") public String tenant;
+        @Label("Queue Wait") @Description("Time since the task became ready")
+        @Timespan(Timespan.MILLISECONDS) public long queueWait;
+
+        public static TaskDequeue start() {
+            TaskDequeue event = new TaskDequeue();
+            event.begin();
+            return event;
+        }
+
+        public void done(Task task, long queueWaitMs) {
+            end();
+            if (!shouldCommit()) return;
+            taskId = task.getId();
+            type = task.getType();
+            tenant = task.getTenant();
+            queueWait = queueWaitMs;
+            commit();
+        }
+    }
+
+    @Name("javaqueue.HandlerExecution")
+    @Label("Handler Execution")
+    @Category({"JavaQueue", "Worker"})
+    @Description("One run of a task's handler, including timeout and hedging")
+    @StackTrace(false)
+    public static class HandlerExecution extends Event {
+        @Label("Task ID") public String taskId;
+        @Label("Type") public String type;
+        @Label("Attempt") public int attempt;
+        @Label("Outcome") @Description("completed, failed, timed out, cancelled or interrupted")
+        public String outcome;
+
+        public static HandlerExecution start() {
+            HandlerExecution event = new HandlerExecution();
+            event.begin();
+            return event;
+        }
+
+        public void done(Task task, String result) {
+            end();
+            if (!shouldCommit()) return;
+            taskId = task.getId();
+            type = task.getType();
+            attempt = task.getRetryCount() + 1;
+            outcome = result;
+            commit();
+        }
+    }
+
+    @Name("javaqueue.RetryScheduled")
+    @Label("Retry Scheduled")
+    @Category({"JavaQueue", "Worker"})
+    @Description("A task was put back in the database to run again later")
+    @StackTrace(false)
+    public static class RetryScheduled extends Event {
+        @Label("Task ID") public String taskId;
+        @Label("Type") public String type;
+        @Label("Attempt") @Description("Attempts made so far") public int attempt;
+        @Label("Delay") @Timespan(Timespan.MILLISECONDS) public long delay;
+        @Label("Reason") public String reason;
+
+        public static RetryScheduled start() {
+            RetryScheduled event = new RetryScheduled();
+            event.begin();
+            return event;
+        }
+
+        public void done(Task task, Duration backoff, String why) {
+            end();
+            if (!shouldCommit()) return;
+            taskId = task.getId();
+            type = task.getType();
+            attempt = task.getRetryCount();
+            delay = backoff.toMillis();
+            reason = why;
+            commit();
+        }
+    }
+
+    @Name("javaqueue.DeadLetter")
+    @Label("Dead Letter")
+    @Category({"JavaQueue", "Worker"})
+    @Description("A task was added to the dead letter queue")
+    public static class DeadLetter extends Event {
+        @Label("Task ID") public String taskId;
+        @Label("Type") public String type;
+        @Label("Tenant") public String tenant;
+        @Label("Retries") public int retries;
+        @Label("Reason") public String reason;
+
+        // Instant event: no start()
+        public static void record(Task task) {
+            DeadLetter event = new DeadLetter();
+            if (!event.shouldCommit()) return;
+            event.taskId = task.getId();
+            event.type = task.getType();
+            event.tenant = task.getTenant();
+            event.retries = task.getRetryCount();
+            event.reason = task.getErrorMessage();
+            event.commit();
+        }
+    }
+
+    // Fast statements are the bulk of all events: by default only the slow
+    // ones are kept (FlightRecording's "profile" settings keep every one)
+    @Name("javaqueue.DbStatement")
+    @Label("DB Statement")
+    @Category({"JavaQueue", "Database"})
+    @Description("One SQL statement run by DatabaseManager")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class DbStatement extends Event {
+        @Label("Operation") @Description("DatabaseManager method that ran it") public String operation;
+        @Label("Kind") @Description("SELECT, INSERT, UPDATE, DELETE or MERGE") public String kind;
+        @Label("Rows") @Description("Rows returned or affected") public int rows;
+
+        public static DbStatement start() {
+            DbStatement event = new DbStatement();
+            event.begin();
+            return event;
+        }
+
+        public void done(String method, String verb, int count) {
+            end();
+            if (!shouldCommit()) return;
+            operation = method;
+            kind = verb;
+            rows = count;
+            commit();
+        }
+    }
+
+    @Name("javaqueue.SchedulerSweep")
+    @Label("Scheduler Sweep")
+    @Category({"JavaQueue", "Scheduler"})
+    @Description("One run of a background job (refill, expiry, result expiry, archival, retention)")
+    @StackTrace(false)
+    public static class SchedulerSweep extends Event {
+        @Label("Sweep") public String sweep;
+        @Label("Tasks") @Description("Tasks or rows the sweep moved") public int tasks;
+
+        public static SchedulerSweep start() {
+            SchedulerSweep event = new SchedulerSweep();
+            event.begin();
+            return event;
+        }
+
+        public void done(String name, int count) {
+            end();
+            if (!shouldCommit()) return;
+            sweep = name;
+            tasks = count;
+            commit();
+        }
+    }
+}
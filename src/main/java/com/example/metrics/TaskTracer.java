@@ -0,0 +1,249 @@
+package com.example.metrics;
+
+import com.example.model.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Per-task timelines: how long each phase took (persist, queue wait, claim,
+// handler, retry scheduling, ...) measured with nanoTime. The last
+// CAPACITY traces live in a ring buffer; each holds up to MAX_SPANS spans in
+// flat arrays. Tasks are sampled by a hash of their ID, so every phase of a
+// task agrees on whether it is traced and untraced tasks cost one hash check.
+public class TaskTracer {
+
+    private static final int CAPACITY = 10_000;
+    private static final int MAX_SPANS = 32;
+
+    public enum Phase { SUBMIT, PERSIST, ENQUEUE, DEQUEUE, CLAIM, HANDLE, RETRY_SCHEDULE, COMPLETE, DLQ }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    // Singleton instance
+    private static final TaskTracer INSTANCE = new TaskTracer();
+    public static TaskTracer getInstance() { return INSTANCE; }
+
+    private final AtomicReferenceArray<Trace> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong cursor = new AtomicLong();
+    private final Map<String, Trace> byId = new ConcurrentHashMap<>();
+    // Converts nanoTime to Unix epoch nanos
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+    private volatile int sampleThreshold = 100;  // out of 10,000: 1% by default
+
+    private static final class Trace {
+        final String taskId;
+        final String type;
+        final byte[] phases = new byte[MAX_SPANS];
+        final long[] starts = new long[MAX_SPANS];
+        final long[] durations = new long[MAX_SPANS];
+        String[] details;  // allocated on first detail
+        int count;
+        int dropped;
+        long lastEnqueued;
+        // Random OTLP IDs; phase spans are children of the root span
+        final long traceIdHigh = ThreadLocalRandom.current().nextLong();
+        final long traceIdLow = ThreadLocalRandom.current().nextLong();
+        final long rootSpanId = ThreadLocalRandom.current().nextLong() | 1;
+
+        Trace(String taskId, String type) {
+            this.taskId = taskId;
+            this.type = type;
+        }
+    }
+
+    public record SpanView(String phase, Instant start, double offsetMs, double durationMs, String detail) {}
+    public record TraceView(String taskId, String type, double totalMs, int droppedSpans, List<SpanView> spans) {}
+
+    // Fraction of tasks traced, 0.0 - 1.0
+    public void setSampleRate(double rate) {
+        this.sampleThreshold = (int) Math.round(Math.max(0, Math.min(1, rate)) * 10_000);
+    }
+
+    public boolean isSampled(String taskId) {
+        return (taskId.hashCode() & 0x7fffffff) % 10_000 < sampleThreshold;
+    }
+
+    // Record a phase that started at startNanos and ends now
+    public void span(Task task, Phase phase, long startNanos) {
+        span(task, phase, startNanos, null);
+    }
+
+    public void span(Task task, Phase phase, long startNanos, String detail) {
+        if (!isSampled(task.getId())) return;
+        add(trace(task), phase, startNanos, System.nanoTime() - startNanos, detail);
+    }
+
+    // The task went into the in-memory queue; its wait ends at dequeued()
+    public void enqueued(Task task) {
+        if (!isSampled(task.getId())) return;
+        long now = System.nanoTime();
+        Trace trace = trace(task);
+        synchronized (trace) {
+            trace.lastEnqueued = now;
+        }
+        add(trace, Phase.ENQUEUE, now, 0, null);
+    }
+
+    // A worker picked the task up: records the wait since it was enqueued
+    public void dequeued(Task task) {
+        if (!isSampled(task.getId())) return;
+        long now = System.nanoTime();
+        Trace trace = trace(task);
+        long since;
+        synchronized (trace) {
+            since = trace.lastEnqueued;
+        }
+        // Unknown after a restart: the task was paged in before this trace began
+        if (since != 0) add(trace, Phase.DEQUEUE, since, now - since, null);
+    }
+
+    private Trace trace(Task task) {
+        Trace trace = byId.get(task.getId());
+        if (trace != null) return trace;
+        Trace created = new Trace(task.getId(), task.getType());
+        trace = byId.putIfAbsent(task.getId(), created);
+        if (trace != null) return trace;
+        // Oldest trace gives up its slot
+        Trace evicted = ring.getAndSet((int) (cursor.getAndIncrement() % CAPACITY), created);
+        if (evicted != null) byId.remove(evicted.taskId, evicted);
+        return created;
+    }
+
+    private static void add(Trace trace, Phase phase, long start, long duration, String detail) {
+        synchronized (trace) {
+            if (trace.count == MAX_SPANS) {
+                trace.dropped++;
+                return;
+            }
+            int i = trace.count++;
+            trace.phases[i] = (byte) phase.ordinal();
+            trace.starts[i] = start;
+            trace.durations[i] = duration;
+            if (detail != null) {
+                if (trace.details == null) trace.details = new String[MAX_SPANS];
+                trace.details[i] = detail;
+            }
+        }
+    }
+
+    // Timeline of a task, or null if it wasn't sampled or has been evicted
+    public TraceView get(String taskId) {
+        Trace trace = byId.get(taskId);
+        return trace != null ? view(trace) : null;
+    }
+
+    private TraceView view(Trace trace) {
+        synchronized (trace) {
+            List<SpanView> spans = new ArrayList<>(trace.count);
+            long first = trace.count > 0 ? trace.starts[0] : 0;
+            long last = first;
+            for (int i = 0; i < trace.count; i++) {
+                long start = trace.starts[i];
+                long end = start + trace.durations[i];
+                first = Math.min(first, start);
+                last = Math.max(last, end);
+            }
+            for (int i = 0; i < trace.count; i++) {
+                long start = trace.starts[i];
+                long epochNanos = epochOffsetNanos + start;
+                spans.add(new SpanView(PHASES[trace.phases[i]].name(),
+                    Instant.ofEpochSecond(0, epochNanos), (start - first) / 1e6,
+                    trace.durations[i] / 1e6, trace.details != null ? trace.details[i] : null));
+            }
+            spans.sort(Comparator.comparingDouble(SpanView::offsetMs));
+            return new TraceView(trace.taskId, trace.type, (last - first) / 1e6, trace.dropped, spans);
+        }
+    }
+
+    // Append every buffered trace to a file as one line of OTLP/JSON
+    // (ExportTraceServiceRequest), readable by the OpenTelemetry Collector's
+    // otlpjsonfile receiver. Each task is a trace: a root span covering its
+    // timeline with one child span per phase. Returns the number of traces.
+    public int exportOtlp(Path file, ObjectMapper mapper) throws IOException {
+        List<Object> spans = new ArrayList<>();
+        int traces = 0;
+        for (int i = 0; i < CAPACITY; i++) {
+            Trace trace = ring.get(i);
+            if (trace == null) continue;
+            synchronized (trace) {
+                if (trace.count == 0) continue;
+                addOtlpSpans(trace, spans);
+            }
+            traces++;
+        }
+        Map<String, Object> request = Map.of("resourceSpans", List.of(Map.of(
+            "resource", Map.of("attributes", List.of(attribute("service.name", "javaqueue"))),
+            "scopeSpans", List.of(Map.of(
+                "scope", Map.of("name", "com.example.metrics.TaskTracer"),
+                "spans", spans)))));
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(mapper.writeValueAsString(request));
+            out.write('\n');
+        }
+        return traces;
+    }
+
+    // Caller holds the trace's lock
+    private void addOtlpSpans(Trace trace, List<Object> spans) {
+        String traceId = hex(trace.traceIdHigh) + hex(trace.traceIdLow);
+        String rootId = hex(trace.rootSpanId);
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < trace.count; i++) {
+            first = Math.min(first, trace.starts[i]);
+            last = Math.max(last, trace.starts[i] + trace.durations[i]);
+        }
+        spans.add(otlpSpan(traceId, rootId, null, "task " + trace.type, first, last,
+            List.of(attribute("task.id", trace.taskId), attribute("task.type", trace.type))));
+        for (int i = 0; i < trace.count; i++) {
+            List<Object> attributes = new ArrayList<>();
+            attributes.add(attribute("task.id", trace.taskId));
+            if (trace.details != null && trace.details[i] != null) {
+                attributes.add(attribute("detail", trace.details[i]));
+            }
+            spans.add(otlpSpan(traceId, hex(trace.rootSpanId + 2 * (i + 1)), rootId,
+                PHASES[trace.phases[i]].name().toLowerCase(), trace.starts[i],
+                trace.starts[i] + trace.durations[i], attributes));
+        }
+    }
+
+    private Map<String, Object> otlpSpan(String traceId, String spanId, String parentId, String name,
+                                         long startNanos, long endNanos, List<Object> attributes) {
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("traceId", traceId);
+        span.put("spanId", spanId);
+        if (parentId != null) span.put("parentSpanId", parentId);
+        span.put("name", name);
+        span.put("kind", 1);  // SPAN_KIND_INTERNAL
+        // OTLP/JSON encodes 64-bit integers as strings
+        span.put("startTimeUnixNano", Long.toString(epochOffsetNanos + startNanos));
+        span.put("endTimeUnixNano", Long.toString(epochOffsetNanos + endNanos));
+        span.put("attributes", attributes);
+        return span;
+    }
+
+    private static Map<String, Object> attribute(String key, String value) {
+        return Map.of("key", key, "value", Map.of("stringValue", value));
+    }
+
+    private static String hex(long value) {
+        return String.format("%016x", value);
+    }
+}
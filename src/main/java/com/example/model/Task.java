@@ -1,18 +1,27 @@
 package com.example.model;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.UUID;
 
 public class Task {
     private final String id;
     private final String type;
-    private final String payload;
+    private String payload;  // Replaced when later submits coalesce into this task
     private TaskStatus status;
     private int retryCount;
     private final int maxRetries;
     private final LocalDateTime createdAt;
     private LocalDateTime executeAt;  // For delayed tasks
     private String errorMessage;
+    private List<String> parentIds = List.of();  // Must complete before this task runs
+    private long timeoutMs;  // 0 = use the handler's default
+    private String tenant = "default";  // Submitter, for fair dispatch and quotas
+    private String orderingKey;  // Tasks sharing a key run one at a time, in submit order
+    private String coalesceKey;  // Pending tasks sharing a key collapse into one
+    private LocalDateTime expiresAt;  // Deadline to start by; null = never expires
+    private String coalescedInto;  // Set by submit when this task was folded into another (not stored)
 
     public Task(String type, String payload) {
         this(type, payload, 3);
@@ -54,17 +63,56 @@ public class Task {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getExecuteAt() { return executeAt; }
     public String getErrorMessage() { return errorMessage; }
+    public List<String> getParentIds() { return parentIds; }
+    public long getTimeoutMs() { return timeoutMs; }
+    public String getTenant() { return tenant; }
+    public String getOrderingKey() { return orderingKey; }
+    public String getCoalesceKey() { return coalesceKey; }
+    public String getCoalescedInto() { return coalescedInto; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
 
     // Setters
     public void setStatus(TaskStatus status) { this.status = status; }
+    public void setPayload(String payload) { this.payload = payload; }
     public void setErrorMessage(String msg) { this.errorMessage = msg; }
     public void incrementRetry() { this.retryCount++; }
     public void setExecuteAt(LocalDateTime executeAt) { this.executeAt = executeAt; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+    public void setTenant(String tenant) {
+        this.tenant = tenant != null && !tenant.isEmpty() ? tenant : "default";
+    }
+    public void setOrderingKey(String orderingKey) {
+        this.orderingKey = orderingKey != null && !orderingKey.isEmpty() ? orderingKey : null;
+    }
+    public void setCoalesceKey(String coalesceKey) {
+        this.coalesceKey = coalesceKey != null && !coalesceKey.isEmpty() ? coalesceKey : null;
+    }
+    public void setCoalescedInto(String taskId) { this.coalescedInto = taskId; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    // A repeated parent is one dependency: its edge is stored once and released once
+    public void setParentIds(List<String> parentIds) {
+        this.parentIds = parentIds != null ? List.copyOf(new LinkedHashSet<>(parentIds)) : List.of();
+    }
+
+    public boolean hasParents() {
+        return !parentIds.isEmpty();
+    }
+
+    // Completed, failed or cancelled
+    public boolean isFinished() {
+        return status == TaskStatus.FAILED || status == TaskStatus.CANCELLED
+            || status == TaskStatus.COMPLETED;
+    }
 
     public boolean canRetry() {
         return retryCount < maxRetries;
     }
 
+    // Deadline passed: not worth running any more
+    public boolean isExpired() {
+        return expiresAt != null && !LocalDateTime.now().isBefore(expiresAt);
+    }
+
     // Check if task is ready to execute
     public boolean isReady() {
         return LocalDateTime.now().isAfter(executeAt) || LocalDateTime.now().isEqual(executeAt);
@@ -0,0 +1,38 @@
+package com.example.model;
+
+import java.time.LocalDateTime;
+
+// Outcome of a finished task, kept for a while after the task row is gone
+public class TaskResult {
+    private final String taskId;
+    private final String type;
+    private final TaskStatus status;    // COMPLETED, FAILED or CANCELLED
+    private final String result;        // Handler output (null if none)
+    private final String errorMessage;
+    private final LocalDateTime completedAt;
+    private final LocalDateTime expiresAt;
+
+    public TaskResult(String taskId, String type, TaskStatus status, String result,
+                      String errorMessage, LocalDateTime completedAt, LocalDateTime expiresAt) {
+        this.taskId = taskId;
+        this.type = type;
+        this.status = status;
+        this.result = result;
+        this.errorMessage = errorMessage;
+        this.completedAt = completedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public String getTaskId() { return taskId; }
+    public String getType() { return type; }
+    public TaskStatus getStatus() { return status; }
+    public String getResult() { return result; }
+    public String getErrorMessage() { return errorMessage; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+
+    public boolean isExpired(LocalDateTime now) {
+        return !expiresAt.isAfter(now);
+    }
+}
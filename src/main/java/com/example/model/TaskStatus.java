@@ -2,7 +2,9 @@ package com.example.model;
 
 public enum TaskStatus {
     PENDING,      // Waiting in queue
+    WAITING,      // Blocked until parent tasks complete
     PROCESSING,   // Currently being worked on
     COMPLETED,    // Successfully finished
-    FAILED        // Failed after all retries
+    FAILED,       // Failed after all retries
+    CANCELLED     // Cancelled through the API
 }
\ No newline at end of file
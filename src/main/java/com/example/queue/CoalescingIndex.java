@@ -0,0 +1,117 @@
+package com.example.queue;
+
+import com.example.model.Task;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The pending task for each coalesce key, so a submit whose key already has
+// a task waiting folds into it with one map lookup instead of becoming a
+// task of its own. A key belongs to one task from its submit until a worker
+// claims it or it is cancelled; submits in between replace its payload
+// (through the PayloadMerger). Keys are scoped to tenant and type.
+// Each held task is its own lock: a merge, the claim that ends it and the
+// save of a newly held task never interleave. The payload write is
+// conditional on the task still being pending, so a submit that loses a
+// race with a claim or cancel becomes the key's next task instead.
+class CoalescingIndex {
+
+    // Save a task that is becoming the pending one for its key
+    interface Store {
+        void save(Task task) throws SQLException;
+    }
+
+    // Replace a pending task's payload; false if it is no longer pending
+    interface Update {
+        boolean apply(Task pending, String payload) throws SQLException;
+    }
+
+    private final Map<String, Task> pending = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile PayloadMerger merger = PayloadMerger.LATEST_WINS;
+
+    private static String keyOf(Task task) {
+        return task.getTenant() + '\u0000' + task.getType() + '\u0000' + task.getCoalesceKey();
+    }
+
+    void setMerger(PayloadMerger merger) {
+        this.merger = merger != null ? merger : PayloadMerger.LATEST_WINS;
+    }
+
+    // Fold a keyed task into the pending one for its key and return that
+    // task, or save it as the key's pending task and return null
+    Task offer(Task task, Store store, Update update) throws SQLException {
+        String key = keyOf(task);
+        while (true) {
+            Task held = pending.get(key);
+            if (held == null) {
+                // Held until saved: a submit that finds it waits for the row
+                synchronized (task) {
+                    if (pending.putIfAbsent(key, task) != null) continue;
+                    try {
+                        store.save(task);
+                    } catch (SQLException | RuntimeException e) {
+                        pending.remove(key, task);
+                        throw e;
+                    }
+                    return null;
+                }
+            }
+            synchronized (held) {
+                if (pending.get(key) != held) continue;
+                if (update.apply(held, merge(held, task))) {
+                    coalesced.incrementAndGet();
+                    return held;
+                }
+                // Claimed or cancelled without going through here
+                pending.remove(key, held);
+            }
+        }
+    }
+
+    private String merge(Task held, Task task) {
+        try {
+            return merger.merge(task.getType(), held.getPayload(), task.getPayload());
+        } catch (RuntimeException e) {
+            System.err.println("[QUEUE] Payload merge failed for " + held.getId()
+                + ", keeping the latest: " + e.getMessage());
+            return task.getPayload();
+        }
+    }
+
+    // A worker is claiming the task: later submits start a new one. Its copy
+    // may have been paged in from the database before the last merge, so it
+    // picks up the current payload.
+    void release(Task task) {
+        if (task.getCoalesceKey() == null) return;
+        String key = keyOf(task);
+        Task held = pending.get(key);
+        if (held == null || !held.getId().equals(task.getId())) return;
+        synchronized (held) {
+            if (pending.remove(key, held) && held != task) task.setPayload(held.getPayload());
+        }
+    }
+
+    // The task was cancelled
+    void remove(Task task) {
+        if (task.getCoalesceKey() == null) return;
+        String key = keyOf(task);
+        Task held = pending.get(key);
+        if (held != null && held.getId().equals(task.getId())) pending.remove(key, held);
+    }
+
+    // A pending task found on startup (the first one wins if a key has several)
+    void restore(Task task) {
+        if (task.getCoalesceKey() != null) pending.putIfAbsent(keyOf(task), task);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    // Submits folded into a pending task so far
+    long getCoalesced() {
+        return coalesced.get();
+    }
+}
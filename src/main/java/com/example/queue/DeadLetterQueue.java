@@ -1,14 +1,18 @@
 package com.example.queue;
 
+import com.example.metrics.QueueEvents;
 import com.example.model.Task;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Stores tasks that failed after all retries
 public class DeadLetterQueue {
     
     private final ConcurrentLinkedQueue<Task> deadTasks;
+    // Bumped on every change, so readers can cache views of the contents
+    private final AtomicLong version = new AtomicLong();
     
     public DeadLetterQueue() {
         this.deadTasks = new ConcurrentLinkedQueue<>();
@@ -17,6 +21,8 @@ public class DeadLetterQueue {
     // Add failed task to DLQ
     public void add(Task task) {
         deadTasks.offer(task);
+        version.incrementAndGet();
+        QueueEvents.DeadLetter.record(task);
         System.err.println("[DLQ] Task added to dead letter queue: " + task);
         System.err.println("[DLQ] Reason: " + task.getErrorMessage());
     }
@@ -38,7 +44,13 @@ public class DeadLetterQueue {
     
     // Requeue a task for retry (manual intervention)
     public Task poll() {
-        return deadTasks.poll();
+        Task task = deadTasks.poll();
+        if (task != null) version.incrementAndGet();
+        return task;
+    }
+
+    public long getVersion() {
+        return version.get();
     }
     
     // Print summary
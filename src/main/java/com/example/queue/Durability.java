@@ -0,0 +1,20 @@
+package com.example.queue;
+
+// How much a task type pays to survive a crash, set per type on the queue.
+public enum Durability {
+    // Each submit is its own committed write before it returns (the default)
+    SYNC,
+    // Submits still return only once committed, but concurrent ones share a
+    // transaction: one commit per batch instead of one per task
+    GROUP_COMMIT,
+    // Kept in memory and written to a snapshot file every second; a crash
+    // loses at most the last interval
+    ASYNC_SNAPSHOT,
+    // Never written anywhere; a restart loses them
+    MEMORY_ONLY;
+
+    // True if tasks of this mode never get a database row
+    public boolean isMemoryResident() {
+        return this == ASYNC_SNAPSHOT || this == MEMORY_ONLY;
+    }
+}
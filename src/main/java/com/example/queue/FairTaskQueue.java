@@ -0,0 +1,131 @@
+package com.example.queue;
+
+import com.example.model.Task;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Blocking queue that hands out tasks by deficit round-robin across tenants,
+// so one tenant's bulk load can't starve the others. Each tenant with queued
+// tasks sits in a ring; at the head of the ring it earns its weight in credit
+// and is served one task per credit before moving to the back. Offer and
+// poll are O(1) regardless of how many tenants there are.
+public class FairTaskQueue {
+
+    private final TenantRegistry tenants;
+    private final Map<String, TenantQueue> queues = new HashMap<>();
+    // Tenants with queued tasks, in service order
+    private final ArrayDeque<TenantQueue> active = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile int size;   // written under the lock
+
+    private static class TenantQueue {
+        final String tenant;
+        final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        int deficit;
+
+        TenantQueue(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    public FairTaskQueue(TenantRegistry tenants) {
+        this.tenants = tenants;
+    }
+
+    public void offer(Task task) {
+        lock.lock();
+        try {
+            TenantQueue queue = queues.computeIfAbsent(task.getTenant(), TenantQueue::new);
+            if (queue.tasks.isEmpty()) active.addLast(queue);
+            queue.tasks.addLast(task);
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addAll(List<Task> tasks) {
+        for (Task task : tasks) offer(task);
+    }
+
+    // Caller holds the lock and size > 0
+    private Task next() {
+        TenantQueue queue = active.peekFirst();
+        if (queue.deficit <= 0) queue.deficit += tenants.getWeight(queue.tenant);
+        Task task = queue.tasks.pollFirst();
+        queue.deficit--;
+        size--;
+        if (queue.tasks.isEmpty()) {
+            // Idle tenants don't bank credit
+            active.pollFirst();
+            queue.deficit = 0;
+            queues.remove(queue.tenant);
+        } else if (queue.deficit <= 0) {
+            active.addLast(active.pollFirst());
+        }
+        return task;
+    }
+
+    public Task take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) notEmpty.await();
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int drainTo(List<Task> sink, int maxTasks) {
+        lock.lock();
+        try {
+            int count = Math.min(size, maxTasks);
+            for (int i = 0; i < count; i++) sink.add(next());
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Copy of every queued task in service order within each tenant
+    public List<Task> snapshot() {
+        lock.lock();
+        try {
+            List<Task> tasks = new ArrayList<>(size);
+            for (TenantQueue queue : active) tasks.addAll(queue.tasks);
+            return tasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
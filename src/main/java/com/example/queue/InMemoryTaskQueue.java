@@ -1,31 +1,84 @@
 package com.example.queue;
 
 import com.example.model.Task;
-import java.util.ArrayList;
+import com.example.model.TaskStatus;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+// A queue that never touches the database. Without a snapshot path a restart
+// loses every task (MEMORY_ONLY); with one, unfinished tasks are written to
+// it periodically and on shutdown, and reloaded on the next start
+// (ASYNC_SNAPSHOT: a crash loses at most the last interval).
 public class InMemoryTaskQueue implements TaskQueue {
-    
+
     private final BlockingQueue<Task> queue;
+    private final MemoryTaskStore store;
+    private final ScheduledExecutorService snapshots;  // null without a snapshot path
+    private volatile boolean accepting = true;
 
     public InMemoryTaskQueue() {
+        this(null, null);
+    }
+
+    public InMemoryTaskQueue(Path snapshotPath, Duration snapshotInterval) {
         this.queue = new LinkedBlockingQueue<>();
+        this.store = new MemoryTaskStore(snapshotPath, task -> true);
+        if (snapshotPath == null) {
+            this.snapshots = null;
+            return;
+        }
+        for (Task task : store.restore()) {
+            schedule(task);
+        }
+        this.snapshots = Executors.newSingleThreadScheduledExecutor();
+        long interval = snapshotInterval.toMillis();
+        snapshots.scheduleAtFixedRate(store::snapshot, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void submit(Task task) {
-        queue.offer(task);
+        store.add(task);
+        schedule(task);
         System.out.println("[QUEUE] Task submitted: " + task);
     }
 
+    // Queue the task now, or once its execute_at passes
+    private void schedule(Task task) {
+        if (task.isReady()) {
+            queue.offer(task);
+            return;
+        }
+        long delay = Duration.between(LocalDateTime.now(), task.getExecuteAt()).toMillis();
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            // Cancelled in the meantime, or held back for the snapshot by a drain
+            if (accepting && store.isPending(task.getId())) queue.offer(task);
+        });
+    }
+
     @Override
     public Task poll() throws InterruptedException {
         // Blocks until a task is available
         return queue.take();
     }
 
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(List<Task> sink, int maxTasks) {
+        return queue.drainTo(sink, maxTasks);
+    }
+
     @Override
     public int size() {
         return queue.size();
@@ -38,6 +91,84 @@ public class InMemoryTaskQueue implements TaskQueue {
 
     @Override
     public List<Task> getAllPending() {
-        return new ArrayList<>(queue);
+        return store.pending();
+    }
+
+    @Override
+    public boolean claim(Task task) {
+        return store.claim(task);
+    }
+
+    @Override
+    public void scheduleRetry(Task task, Duration delay) {
+        task.setStatus(TaskStatus.PENDING);
+        task.setExecuteAt(LocalDateTime.now().plus(delay));
+        store.update(task);
+        schedule(task);
+    }
+
+    @Override
+    public void completeTask(Task task, String result) {
+        store.remove(task.getId());
+    }
+
+    @Override
+    public List<Task> failTask(Task task) {
+        store.remove(task.getId());
+        return List.of();
+    }
+
+    @Override
+    public List<Task> cancelRunning(Task task) {
+        task.setStatus(TaskStatus.CANCELLED);
+        task.setErrorMessage("Cancelled");
+        store.remove(task.getId());
+        return List.of();
+    }
+
+    @Override
+    public List<Task> cancelPending(String taskId) {
+        if (store.cancel(taskId) == null) return null;
+        System.out.println("[QUEUE] Task cancelled: " + taskId);
+        return List.of();
+    }
+
+    // Dropped from the store, so the snapshot doesn't bring it back
+    @Override
+    public List<Task> expire(Task task) {
+        Task held = store.expire(task.getId());
+        if (held == null) return null;
+        task.setStatus(TaskStatus.CANCELLED);
+        task.setErrorMessage("Expired");
+        return List.of();
+    }
+
+    @Override
+    public Task getTask(String taskId) {
+        return store.get(taskId);
+    }
+
+    // Still held, so the final snapshot keeps it
+    @Override
+    public void checkpoint(Task task) {
+        task.setStatus(TaskStatus.PENDING);
+        store.update(task);
+    }
+
+    @Override
+    public void beginDrain() {
+        accepting = false;
+    }
+
+    @Override
+    public void requeue(List<Task> tasks) {
+        queue.addAll(tasks);
+    }
+
+    // Stop the periodic snapshot and write a final one
+    public void shutdown() {
+        if (snapshots == null) return;
+        snapshots.shutdown();
+        store.snapshot();
     }
-}
\ No newline at end of file
+}
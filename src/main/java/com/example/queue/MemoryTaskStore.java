@@ -0,0 +1,150 @@
+package com.example.queue;
+
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Unfinished tasks that have no database row (ASYNC_SNAPSHOT and MEMORY_ONLY
+// types), by ID, from submit until they complete, fail or are cancelled.
+// snapshot() writes the ones the predicate selects to a QueueSnapshot file,
+// skipping the write when nothing changed since the last one.
+class MemoryTaskStore {
+
+    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    private final Path snapshotPath;   // null: nothing survives a restart
+    private final Predicate<Task> snapshotted;
+    private final AtomicLong version = new AtomicLong();
+    private long snapshotVersion;
+    private boolean snapshotEmpty = true;  // the file is empty or missing
+
+    MemoryTaskStore(Path snapshotPath, Predicate<Task> snapshotted) {
+        this.snapshotPath = snapshotPath;
+        this.snapshotted = snapshotted;
+    }
+
+    void add(Task task) {
+        tasks.put(task.getId(), task);
+        version.incrementAndGet();
+    }
+
+    Task get(String taskId) {
+        return tasks.get(taskId);
+    }
+
+    boolean contains(String taskId) {
+        return tasks.containsKey(taskId);
+    }
+
+    boolean isPending(String taskId) {
+        Task task = tasks.get(taskId);
+        return task != null && task.getStatus() == TaskStatus.PENDING;
+    }
+
+    // Record a change to a held task (retry, checkpoint); false if not held here
+    boolean update(Task task) {
+        if (!tasks.containsKey(task.getId())) return false;
+        version.incrementAndGet();
+        return true;
+    }
+
+    // PENDING -> PROCESSING; false if the task is not held or not pending
+    boolean claim(Task task) {
+        Task held = tasks.get(task.getId());
+        if (held == null) return false;
+        synchronized (held) {
+            if (held.getStatus() != TaskStatus.PENDING) return false;
+            held.setStatus(TaskStatus.PROCESSING);
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    // Cancel a task that is not running; returns it, or null if not held or running
+    Task cancel(String taskId) {
+        Task held = tasks.get(taskId);
+        if (held == null) return null;
+        synchronized (held) {
+            if (held.getStatus() != TaskStatus.PENDING) return null;
+            held.setStatus(TaskStatus.CANCELLED);
+            held.setErrorMessage("Cancelled");
+        }
+        tasks.remove(taskId, held);
+        version.incrementAndGet();
+        return held;
+    }
+
+    // Drop a queued or running task as expired; returns it, or null if not
+    // held or already finished
+    Task expire(String taskId) {
+        Task held = tasks.get(taskId);
+        if (held == null) return null;
+        synchronized (held) {
+            if (held.isFinished()) return null;
+            held.setStatus(TaskStatus.CANCELLED);
+            held.setErrorMessage("Expired");
+        }
+        tasks.remove(taskId, held);
+        version.incrementAndGet();
+        return held;
+    }
+
+    // The task finished; false if it was not held here
+    boolean remove(String taskId) {
+        if (tasks.remove(taskId) == null) return false;
+        version.incrementAndGet();
+        return true;
+    }
+
+    List<Task> pending() {
+        List<Task> pending = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.getStatus() == TaskStatus.PENDING) pending.add(task);
+        }
+        return pending;
+    }
+
+    // Write the selected unfinished tasks; running ones are saved as pending
+    // and run again after a crash
+    synchronized void snapshot() {
+        if (snapshotPath == null) return;
+        long current = version.get();
+        if (current == snapshotVersion) return;
+        List<Task> saved = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (snapshotted.test(task)) saved.add(task);
+        }
+        // Nothing selected (e.g. only MEMORY_ONLY tasks changed) and nothing to overwrite
+        if (saved.isEmpty() && snapshotEmpty) {
+            snapshotVersion = current;
+            return;
+        }
+        try {
+            QueueSnapshot.write(snapshotPath, saved);
+            snapshotVersion = current;
+            snapshotEmpty = saved.isEmpty();
+        } catch (IOException e) {
+            System.err.println("[QUEUE] Failed to write memory snapshot: " + e.getMessage());
+        }
+    }
+
+    // Tasks saved by the last run (held again from here on); empty if none
+    synchronized List<Task> restore() {
+        if (snapshotPath == null) return List.of();
+        try {
+            List<Task> restored = QueueSnapshot.read(snapshotPath);
+            for (Task task : restored) add(task);
+            snapshotEmpty = restored.isEmpty();
+            return restored;
+        } catch (IOException e) {
+            System.err.println("[QUEUE] Ignoring unreadable memory snapshot: " + e.getMessage());
+            return List.of();
+        }
+    }
+}
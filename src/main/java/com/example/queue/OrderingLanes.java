@@ -0,0 +1,106 @@
+package com.example.queue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Runs tasks that share an ordering key one at a time, in submit order.
+// Each key is owned by its oldest unfinished task (created_at, then id);
+// only the owner may run, and it keeps the key through retries until it
+// completes, fails permanently or is cancelled. Later tasks for the key are
+// parked until then. Keys hash to a fixed set of lanes, each with its own
+// lock, so unrelated keys never contend on a global lock and a stuck key
+// only blocks itself. Tasks without a key pass straight through.
+// The owner lookup runs under the lane lock so a release can't slip in
+// between lookup and use; the database never calls back in here.
+public class OrderingLanes {
+
+    private static final int LANES = 64;  // power of two
+
+    private final DatabaseManager db;
+    private final Lane[] lanes = new Lane[LANES];
+
+    private static final Comparator<Task> SUBMIT_ORDER =
+        Comparator.comparing(Task::getCreatedAt).thenComparing(Task::getId);
+
+    private static class KeyState {
+        String owner;  // ID of the task allowed to run (null: not known yet)
+        final PriorityQueue<Task> parked = new PriorityQueue<>(SUBMIT_ORDER);
+    }
+
+    private static class Lane {
+        final Map<String, KeyState> keys = new HashMap<>();
+    }
+
+    public OrderingLanes(DatabaseManager db) {
+        this.db = db;
+        for (int i = 0; i < LANES; i++) lanes[i] = new Lane();
+    }
+
+    private Lane lane(String key) {
+        int h = key.hashCode();
+        return lanes[(h ^ (h >>> 16)) & (LANES - 1)];
+    }
+
+    // True if the task may run now; otherwise it is parked and handed back
+    // by release() when its turn comes
+    public boolean admit(Task task) {
+        String key = task.getOrderingKey();
+        if (key == null) return true;
+        Lane lane = lane(key);
+        synchronized (lane) {
+            KeyState state = lane.keys.get(key);
+            if (state == null) {
+                // Idle key: the database knows who is first
+                state = new KeyState();
+                state.owner = oldestUnfinished(key, task.getId());
+                lane.keys.put(key, state);
+            }
+            if (task.getId().equals(state.owner)) return true;
+            state.parked.add(task);
+            return false;
+        }
+    }
+
+    // The task finished for good (its row is already deleted or terminal).
+    // Returns the next task for its key if that one is parked here, else null
+    // (the next owner is delayed, retrying or not paged in yet).
+    public Task release(Task finished) {
+        String key = finished.getOrderingKey();
+        if (key == null) return null;
+        Lane lane = lane(key);
+        synchronized (lane) {
+            KeyState state = lane.keys.get(key);
+            if (state == null) return null;
+            if (!finished.getId().equals(state.owner)) {
+                // A parked task that was cancelled: just drop it
+                state.parked.removeIf(t -> t.getId().equals(finished.getId()));
+                return null;
+            }
+            state.owner = oldestUnfinished(key, null);
+            if (state.owner == null) {
+                // Nothing left in the database; anything parked is stale
+                lane.keys.remove(key);
+                return null;
+            }
+            Task head = state.parked.peek();
+            if (head != null && head.getId().equals(state.owner)) return state.parked.poll();
+            if (state.parked.isEmpty()) lane.keys.remove(key);
+            return null;
+        }
+    }
+
+    private String oldestUnfinished(String key, String fallback) {
+        try {
+            String oldest = db.getOldestUnfinished(key);
+            return oldest != null ? oldest : fallback;
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Ordering lookup failed: " + e.getMessage());
+            return fallback;
+        }
+    }
+}
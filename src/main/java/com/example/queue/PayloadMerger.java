@@ -0,0 +1,11 @@
+package com.example.queue;
+
+// Combines the payload of a pending task with one submitted under the same
+// coalesce key; the result replaces the pending task's payload
+@FunctionalInterface
+public interface PayloadMerger {
+
+    PayloadMerger LATEST_WINS = (type, pending, incoming) -> incoming;
+
+    String merge(String type, String pending, String incoming);
+}
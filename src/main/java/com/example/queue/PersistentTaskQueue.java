@@ -1,96 +1,523 @@
 package com.example.queue;
 
 import com.example.db.DatabaseManager;
+import com.example.db.GroupCommitter;
+import com.example.metrics.MetricsCollector;
+import com.example.metrics.QueueEvents;
+import com.example.metrics.TaskTracer;
 import com.example.model.Task;
 import com.example.model.TaskStatus;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+// The database holds every task; memory holds a bounded window of ready
+// tasks that is paged in from the database as workers drain it.
+// The window is shared fairly between tenants: each tenant may hold at most
+// a quarter of it, and workers are served by deficit round-robin.
+// Types can trade durability for speed (see Durability): GROUP_COMMIT types
+// share commits, and memory-resident types never get a row - they are held
+// in a MemoryTaskStore and dispatched through the same window.
+// A task with a coalesce key folds into the pending task with the same key
+// (tenant and type) if there is one: that task's payload is merged and the
+// submitted one is dropped, so a burst of equivalent submits runs once.
+// Tasks with a deadline (expires_at) that passes before they run are
+// cancelled as expired: by the worker that dequeues one, or in batches by a
+// sweep over the expires_at index, so a backlog of stale work is cleared
+// without workers grinding through it.
 public class PersistentTaskQueue implements TaskQueue {
-    
-    private final BlockingQueue<Task> queue;
+
+    private static final Path DEFAULT_SNAPSHOT = Path.of("./data/queue.snapshot");
+    private static final int DEFAULT_MAX_IN_MEMORY = 10_000;
+    private static final long MEMORY_SNAPSHOT_INTERVAL_MS = 1_000;
+    private static final long EXPIRY_SWEEP_INTERVAL_MS = 5_000;
+    private static final int EXPIRY_BATCH = 500;
+
+    private final FairTaskQueue queue;
+    private final TenantRegistry tenants;
     private final DatabaseManager db;
-    private final ScheduledExecutorService scheduler;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ResultStore results;
+    private final TaskTracer tracer = TaskTracer.getInstance();
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private final OrderingLanes ordering;
+    private final Map<String, Durability> durability = new ConcurrentHashMap<>();
+    private final GroupCommitter committer;
+    private final MemoryTaskStore memory;
+    private final CoalescingIndex coalescing = new CoalescingIndex();
+    private volatile DeadLetterQueue deadLetters;  // set by the WorkerPool
+    // IDs handed to memory and not yet finished (queued, prefetched by a worker,
+    // or running) so the backlog sweep never duplicates them -> tenant
+    private final Map<String, String> inFlight;
+    private final int maxInMemory;
+    private final int maxPerTenant;
+    private final Path snapshotPath;   // null disables snapshots
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    // Tasks interrupted mid-run during drain, written first in the snapshot
+    private final ConcurrentLinkedQueue<Task> checkpointed = new ConcurrentLinkedQueue<>();
+    private volatile boolean accepting = true;
+    // Bumped whenever the set of pending tasks may have changed (for cached views)
+    private final AtomicLong pendingVersion = new AtomicLong();
 
     public PersistentTaskQueue(DatabaseManager db) {
-        this.queue = new LinkedBlockingQueue<>();
+        this(db, DEFAULT_SNAPSHOT, DEFAULT_MAX_IN_MEMORY);
+    }
+
+    public PersistentTaskQueue(DatabaseManager db, Path snapshotPath, int maxInMemory) {
+        this.tenants = new TenantRegistry();
+        this.queue = new FairTaskQueue(tenants);
+        this.inFlight = new ConcurrentHashMap<>();
         this.db = db;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
-        
-        // Load pending tasks from DB on startup
-        loadPendingTasks();
-        
-        // Check for delayed tasks every second
-        scheduler.scheduleAtFixedRate(this::checkDelayedTasks, 1, 1, TimeUnit.SECONDS);
+        this.snapshotPath = snapshotPath;
+        this.maxInMemory = maxInMemory;
+        this.maxPerTenant = Math.max(1, maxInMemory / 4);
+        this.scheduler = new ScheduledThreadPoolExecutor(1);
+        // Delayed memory-resident tasks left at shutdown go into the snapshot instead
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.results = new ResultStore(db);
+        this.ordering = new OrderingLanes(db);
+        this.committer = new GroupCommitter(db);
+        // Captures the map, not the half-built queue
+        Map<String, Durability> modes = durability;
+        this.memory = new MemoryTaskStore(
+            snapshotPath == null ? null : snapshotPath.resolveSibling("memory.snapshot"),
+            task -> modes.get(task.getType()) == Durability.ASYNC_SNAPSHOT);
+
+        // Recover on startup: snapshot first (no backlog query), then page in lazily
+        recoverStranded();
+        loadTenantBacklogs();
+        loadSnapshot();
+        loadMemorySnapshot();
+        loadCoalesceKeys();
+        refill();
+
+        // Page in delayed tasks that are now ready and backlog beyond the window
+        scheduler.scheduleAtFixedRate(this::refill, 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(memory::snapshot, MEMORY_SNAPSHOT_INTERVAL_MS,
+                                      MEMORY_SNAPSHOT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::expireDue, EXPIRY_SWEEP_INTERVAL_MS,
+                                         EXPIRY_SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Durability of a task type; SYNC unless set
+    public void setDurability(String type, Durability mode) {
+        durability.put(type, mode);
+        System.out.println("[QUEUE] Durability for " + type + ": " + mode);
+    }
+
+    public Durability getDurability(String type) {
+        return durability.getOrDefault(type, Durability.SYNC);
+    }
+
+    // How pending tasks combine payloads when another submit coalesces into
+    // them (WorkerPool installs its handlers' merge functions)
+    @Override
+    public void setPayloadMerger(PayloadMerger merger) {
+        coalescing.setMerger(merger);
+    }
+
+    @Override
+    public void setDeadLetterQueue(DeadLetterQueue dlq) {
+        this.deadLetters = dlq;
+    }
+
+    // Submits folded into a pending task since startup
+    public long getCoalesced() {
+        return coalescing.getCoalesced();
+    }
+
+    // Workflow children and keyed tasks need their rows to coordinate
+    // (dependency counts, key ownership), so they always get one
+    private Durability durabilityOf(Task task) {
+        if (task.hasParents() || task.getOrderingKey() != null) {
+            Durability mode = getDurability(task.getType());
+            return mode.isMemoryResident() ? Durability.SYNC : mode;
+        }
+        return getDurability(task.getType());
+    }
+
+    // Tasks left PROCESSING by a crash would otherwise never run again
+    private void recoverStranded() {
+        try {
+            int count = db.resetStranded();
+            if (count > 0) {
+                System.out.println("[QUEUE] Recovered " + count + " stranded PROCESSING tasks");
+            }
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to recover stranded tasks: " + e.getMessage());
+        }
+    }
+
+    // Seed the per-tenant backlog counters; from here on they are kept in memory
+    private void loadTenantBacklogs() {
+        try {
+            db.countUnfinishedByTenant().forEach(tenants::submitted);
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to count tenant backlogs: " + e.getMessage());
+        }
     }
 
-    // Load pending tasks from database (recovery after restart)
-    private void loadPendingTasks() {
+    // Restore the dispatch window saved by the last drain
+    private void loadSnapshot() {
+        if (snapshotPath == null) return;
         try {
-            List<Task> tasks = db.getPendingTasks();
+            List<Task> tasks = QueueSnapshot.read(snapshotPath);
+            // One-shot: a stale snapshot must never be replayed after a crash
+            Files.deleteIfExists(snapshotPath);
             for (Task task : tasks) {
                 if (task.isReady()) {
-                    queue.offer(task);
+                    enqueue(task);
                 }
             }
-            System.out.println("[QUEUE] Loaded " + tasks.size() + " pending tasks from database");
+            if (!tasks.isEmpty()) {
+                System.out.println("[QUEUE] Restored " + tasks.size() + " tasks from snapshot");
+            }
+        } catch (IOException e) {
+            System.err.println("[QUEUE] Ignoring unreadable snapshot: " + e.getMessage());
+        }
+    }
+
+    // Memory-resident tasks of ASYNC_SNAPSHOT types saved by the last run
+    // (periodically, so after a crash this may include finished ones)
+    private void loadMemorySnapshot() {
+        List<Task> tasks = memory.restore();
+        for (Task task : tasks) {
+            tenants.submitted(task.getTenant(), 1);
+            coalescing.restore(task);
+            schedule(task);
+        }
+        if (!tasks.isEmpty()) {
+            System.out.println("[QUEUE] Restored " + tasks.size() + " memory-resident tasks");
+        }
+    }
+
+    // Rebuild the coalesce key index from the pending rows that have a key
+    private void loadCoalesceKeys() {
+        try {
+            db.getPendingCoalesced().forEach(coalescing::restore);
+            if (coalescing.size() > 0) {
+                System.out.println("[QUEUE] Restored " + coalescing.size() + " coalesce keys");
+            }
         } catch (SQLException e) {
-            System.err.println("[QUEUE] Failed to load tasks: " + e.getMessage());
+            System.err.println("[QUEUE] Failed to load coalesce keys: " + e.getMessage());
         }
     }
 
-    // Check for delayed tasks that are now ready
-    private void checkDelayedTasks() {
+    // Top up the in-memory window from the database, per tenant with work
+    // outside the window (oldest ready first). Each query reads at most the
+    // tenant's in-memory count + its free share, so cost is bounded by the
+    // window, not by the size of the backlog.
+    private void refill() {
+        refillScheduled.set(false);
+        if (!accepting) return;
+        int free = maxInMemory - queue.size();
+        if (free <= 0) return;
+        QueueEvents.SchedulerSweep sweep = QueueEvents.SchedulerSweep.start();
+        int pagedIn = 0;
         try {
-            List<Task> ready = db.getPendingTasks();
-            for (Task task : ready) {
-                if (!queueContains(task.getId())) {
-                    queue.offer(task);
+            for (String tenant : tenants.withUnpagedBacklog()) {
+                int held = tenants.inMemory(tenant);
+                int room = Math.min(free, maxPerTenant - held);
+                if (room <= 0) continue;
+                int added = 0;
+                for (Task task : db.getPendingTasks(tenant, held + room)) {
+                    if (added >= room) break;
+                    if (track(task)) {
+                        queue.offer(task);
+                        added++;
+                    }
                 }
+                free -= added;
+                pagedIn += added;
+                if (free <= 0) break;
             }
         } catch (SQLException e) {
             // Silent - will retry next second
         }
+        sweep.done("refill", pagedIn);
+    }
+
+    // Mark a task as in memory; false if it already is
+    private boolean track(Task task) {
+        if (inFlight.putIfAbsent(task.getId(), task.getTenant()) != null) return false;
+        tenants.pagedIn(task.getTenant());
+        tracer.enqueued(task);
+        return true;
+    }
+
+    private void untrack(String taskId) {
+        String tenant = inFlight.remove(taskId);
+        if (tenant != null) tenants.pagedOut(tenant);
+    }
+
+    // Refill early when workers have drained most of the window
+    private void refillIfLow() {
+        if (queue.size() < maxInMemory / 4 && refillScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::refill);
+            } catch (RuntimeException e) {
+                refillScheduled.set(false); // shutting down
+            }
+        }
+    }
+
+    // Hand a task to the in-memory queue and track it until it finishes.
+    // When the window (or the tenant's share) is full the task stays in the
+    // database for refill.
+    private void enqueue(Task task) {
+        if (queue.size() >= maxInMemory || tenants.inMemory(task.getTenant()) >= maxPerTenant) {
+            untrack(task.getId());
+            return;
+        }
+        if (track(task)) queue.offer(task);
     }
 
-    // Check if task already in memory queue
-    private boolean queueContains(String taskId) {
-        return queue.stream().anyMatch(t -> t.getId().equals(taskId));
+    // Hold a task without a database row. It skips the window limit: there
+    // is no row for refill to page it in from later.
+    private void keepInMemory(Task task) {
+        memory.add(task);
+        pendingVersion.incrementAndGet();
+        tenants.submitted(task.getTenant(), 1);
+        schedule(task);
+    }
+
+    // Dispatch a memory-resident task now, or once its execute_at passes
+    private void schedule(Task task) {
+        if (!accepting) return;  // kept in the store for the snapshot
+        if (task.isReady()) {
+            if (track(task)) queue.offer(task);
+            return;
+        }
+        long delay = Duration.between(LocalDateTime.now(), task.getExecuteAt()).toMillis();
+        try {
+            scheduler.schedule(() -> {
+                // Cancelled while it waited
+                if (memory.isPending(task.getId())) schedule(task);
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: kept in the store for the snapshot
+        }
+    }
+
+    // Write the row for a task (one commit of its own, or a shared one)
+    private void persist(Task task, Durability mode) throws SQLException {
+        long start = System.nanoTime();
+        if (mode == Durability.GROUP_COMMIT) {
+            committer.commit(task);
+        } else {
+            db.save(task);
+        }
+        tracer.span(task, TaskTracer.Phase.PERSIST, start, mode == Durability.SYNC ? null : "group commit");
     }
 
+    // Throws StorageException if the task could not be stored
     @Override
     public void submit(Task task) {
+        if (task.hasParents()) {
+            submitAll(List.of(task));
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            db.save(task);
-            if (task.isReady()) {
-                queue.offer(task);
-            }
-            System.out.println("[QUEUE] Task submitted: " + task);
+            if (coalesce(task)) return;
         } catch (SQLException e) {
             System.err.println("[QUEUE] Failed to save task: " + e.getMessage());
+            throw new StorageException("Failed to save task", e);
+        }
+        tracer.span(task, TaskTracer.Phase.SUBMIT, start);
+        System.out.println("[QUEUE] Task submitted: " + task);
+    }
+
+    // Store a task, or fold it into the pending task for its coalesce key.
+    // True if it was folded: the caller's task is dropped and its
+    // coalescedInto names the task that will run instead.
+    private boolean coalesce(Task task) throws SQLException {
+        Durability mode = durabilityOf(task);
+        if (task.getCoalesceKey() == null || task.hasParents()) {
+            store(task, mode);
+            return false;
+        }
+        Task into = coalescing.offer(task, first -> store(first, mode), this::mergePayload);
+        if (into == null) return false;
+        task.setCoalescedInto(into.getId());
+        System.out.println("[QUEUE] Task coalesced into " + into.getId() + ": " + task);
+        return true;
+    }
+
+    // Write a new task and hand it to the window if it is ready
+    private void store(Task task, Durability mode) throws SQLException {
+        if (mode.isMemoryResident()) {
+            keepInMemory(task);
+            return;
+        }
+        persist(task, mode);
+        pendingVersion.incrementAndGet();
+        tenants.submitted(task.getTenant(), 1);
+        if (task.isReady() && accepting) {
+            enqueue(task);
+        }
+    }
+
+    // Replace the payload of a task still waiting to be claimed
+    private boolean mergePayload(Task pending, String payload) throws SQLException {
+        if (memory.contains(pending.getId())) {
+            if (!memory.isPending(pending.getId())) return false;
+            pending.setPayload(payload);
+            memory.update(pending);
+        } else {
+            if (!db.updatePendingPayload(pending.getId(), payload)) return false;
+            pending.setPayload(payload);
         }
+        pendingVersion.incrementAndGet();
+        return true;
     }
 
-    // Submit with delay
+    // Submit a batch (fan-out) in one database transaction.
+    // Tasks waiting on parents are released later by completeTask.
+    // Memory-resident and coalescing tasks are submitted on their own unless
+    // they are part of the workflow (another task in the batch depends on
+    // them, or they have parents): only tasks with rows can be parents, and
+    // a coalescing task may not get a row of its own.
+    // Throws StorageException if the batch could not be stored. By then only
+    // its coalescing tasks may have been submitted, and submitting the batch
+    // again folds those into the same pending tasks; memory-resident tasks
+    // are only kept once the transaction has committed.
+    public void submitAll(List<Task> tasks) {
+        Set<String> parents = new HashSet<>();
+        for (Task task : tasks) parents.addAll(task.getParentIds());
+        List<Task> batched = new ArrayList<>(tasks.size());
+        List<Task> inMemory = new ArrayList<>();
+        for (Task task : tasks) {
+            boolean standalone = !task.hasParents() && !parents.contains(task.getId());
+            if (standalone && task.getCoalesceKey() != null) {
+                submit(task);
+            } else if (standalone && durabilityOf(task).isMemoryResident()) {
+                inMemory.add(task);
+            } else {
+                batched.add(task);
+            }
+        }
+        if (batched.size() < tasks.size()) {
+            System.out.println("[QUEUE] Batch: " + (tasks.size() - batched.size())
+                             + " tasks submitted on their own (memory-resident or coalescing)");
+        }
+        if (!batched.isEmpty()) saveBatch(batched);
+        for (Task task : inMemory) keepInMemory(task);
+    }
+
+    // Store the tasks with rows in one transaction
+    private void saveBatch(List<Task> tasks) {
+        long start = System.nanoTime();
+        try {
+            long persistStart = System.nanoTime();
+            List<Task> ready = db.saveAll(tasks);
+            for (Task task : tasks) tracer.span(task, TaskTracer.Phase.PERSIST, persistStart);
+            pendingVersion.incrementAndGet();
+            List<Task> failed = new ArrayList<>();
+            for (Task task : tasks) {
+                // Children of an already-failed parent are stored as FAILED
+                if (task.getStatus() == TaskStatus.FAILED) {
+                    failed.add(task);
+                } else {
+                    tenants.submitted(task.getTenant(), 1);
+                }
+            }
+            if (!failed.isEmpty()) {
+                deadLetter(failed);
+                results.finished(failed);
+            }
+            for (Task task : ready) {
+                if (task.isReady() && accepting) {
+                    enqueue(task);
+                }
+            }
+            for (Task task : tasks) tracer.span(task, TaskTracer.Phase.SUBMIT, start);
+            System.out.println("[QUEUE] Batch submitted: " + tasks.size() + " tasks ("
+                             + ready.size() + " ready)");
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to save batch: " + e.getMessage());
+            throw new StorageException("Failed to save batch", e);
+        }
+    }
+
+    // Submit with delay; throws StorageException if the task could not be stored
     public void submitDelayed(Task task, long delaySeconds) {
         task.setExecuteAt(LocalDateTime.now().plusSeconds(delaySeconds));
+        if (task.hasParents()) {
+            // Released children still wait for execute_at via refill
+            submitAll(List.of(task));
+            return;
+        }
         try {
-            db.save(task);
+            // Folded into a pending task, which keeps its own execute_at
+            if (coalesce(task)) return;
             System.out.println("[QUEUE] Delayed task submitted (executes in " + delaySeconds + "s): " + task);
         } catch (SQLException e) {
             System.err.println("[QUEUE] Failed to save task: " + e.getMessage());
+            throw new StorageException("Failed to save task", e);
+        }
+    }
+
+    // Retry a failed task after a backoff without holding a worker thread:
+    // it goes back to the database and is paged in once execute_at passes
+    @Override
+    public void scheduleRetry(Task task, Duration delay) {
+        task.setStatus(TaskStatus.PENDING);
+        task.setExecuteAt(LocalDateTime.now().plus(delay));
+        untrack(task.getId());
+        if (memory.update(task)) {
+            pendingVersion.incrementAndGet();
+            schedule(task);
+            return;
         }
+        updateTask(task);
     }
 
+    // Tasks whose ordering key is held by an earlier task are parked by
+    // the lanes instead of being returned; they come back on release
     @Override
     public Task poll() throws InterruptedException {
-        return queue.take();
+        Task task;
+        do {
+            task = queue.take();
+        } while (!ordering.admit(task));
+        refillIfLow();
+        return task;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Task task;
+        do {
+            task = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } while (task != null && !ordering.admit(task));
+        refillIfLow();
+        return task;
+    }
+
+    @Override
+    public int drainTo(List<Task> sink, int maxTasks) {
+        int start = sink.size();
+        if (queue.drainTo(sink, maxTasks) == 0) return 0;
+        sink.subList(start, sink.size()).removeIf(task -> !ordering.admit(task));
+        refillIfLow();
+        return sink.size() - start;
     }
 
     @Override
@@ -103,19 +530,193 @@ public class PersistentTaskQueue implements TaskQueue {
         return queue.isEmpty();
     }
 
+    public long getPendingVersion() {
+        return pendingVersion.get();
+    }
+
     @Override
     public List<Task> getAllPending() {
+        List<Task> pending = new ArrayList<>(memory.pending());
+        try {
+            pending.addAll(db.getTasksByStatus(TaskStatus.PENDING));
+        } catch (SQLException e) {
+            // Memory-resident ones only
+        }
+        return pending;
+    }
+
+    // Atomically mark a dequeued task PROCESSING. False means it was cancelled
+    // (or claimed elsewhere) while queued, and the caller must drop it.
+    @Override
+    public boolean claim(Task task) {
+        coalescing.release(task);
+        if (memory.claim(task)) {
+            pendingVersion.incrementAndGet();
+            return true;
+        }
+        try {
+            if (db.claim(task.getId())) {
+                pendingVersion.incrementAndGet();
+                task.setStatus(TaskStatus.PROCESSING);
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to claim task: " + e.getMessage());
+        }
+        untrack(task.getId());
+        releaseKey(task);
+        return false;
+    }
+
+    // Per-tenant backlog counters, quotas and weights
+    public TenantRegistry getTenants() {
+        return tenants;
+    }
+
+    // Outcomes of finished tasks (completed, failed, cancelled)
+    public ResultStore getResults() {
+        return results;
+    }
+
+    // Look up a task by ID (null if unknown or already completed)
+    @Override
+    public Task getTask(String taskId) {
+        Task held = memory.get(taskId);
+        if (held != null) return held;
         try {
-            return db.getTasksByStatus(TaskStatus.PENDING);
+            return db.getTask(taskId);
         } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to load task: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Cancel a queued, delayed or waiting task. If it is already in memory the
+    // worker drops it when its claim fails. Returns the dependents failed with
+    // it, or null if the task had already started or finished.
+    @Override
+    public List<Task> cancelPending(String taskId) {
+        Task held = memory.cancel(taskId);
+        if (held != null) {
+            pendingVersion.incrementAndGet();
+            System.out.println("[QUEUE] Task cancelled: " + taskId);
+            coalescing.remove(held);
+            untrack(taskId);
+            finished(held);
+            results.finished(List.of(held), false);
+            return List.of();
+        }
+        try {
+            if (!db.cancelPending(taskId)) return null;
+            pendingVersion.incrementAndGet();
+            System.out.println("[QUEUE] Task cancelled: " + taskId);
+            Task cancelled = db.getTask(taskId);
+            if (cancelled != null) {
+                coalescing.remove(cancelled);
+                // May be parked behind its ordering key, never to be polled
+                untrack(taskId);
+                finished(cancelled);
+                results.finished(List.of(cancelled));
+            }
+            return failDependents(taskId, "Parent task cancelled: " + taskId);
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to cancel task: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Cancel a task whose deadline passed before it ran: dequeued late, or
+    // failed with its retry due after the deadline. Returns the dependents
+    // failed with it, or null if it had already finished (e.g. cancelled).
+    @Override
+    public List<Task> expire(Task task) {
+        String taskId = task.getId();
+        untrack(taskId);
+        coalescing.remove(task);
+        Task held = memory.expire(taskId);
+        if (held != null) {
+            pendingVersion.incrementAndGet();
+            finished(held);
+            results.finished(List.of(held), false);
+            return List.of();
+        }
+        try {
+            if (!db.expire(taskId)) return null;
+            pendingVersion.incrementAndGet();
+            task.setStatus(TaskStatus.CANCELLED);
+            task.setErrorMessage("Expired");
+            finished(task);
+            results.finished(List.of(task));
+            return failDependents(taskId, "Parent task expired: " + taskId);
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to expire task: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Expire queued and waiting rows past their deadline, a batch at a time
+    // in deadline order. Tasks already in the window are dropped when a
+    // worker fails to claim them; memory-resident ones expire at dequeue.
+    final void expireDue() {
+        QueueEvents.SchedulerSweep sweep = QueueEvents.SchedulerSweep.start();
+        int total = 0;
+        try {
+            List<Task> batch;
+            do {
+                batch = db.expireDue(LocalDateTime.now(), EXPIRY_BATCH);
+                for (Task task : batch) {
+                    untrack(task.getId());
+                    coalescing.remove(task);
+                    finished(task);
+                }
+                results.finished(batch);
+                for (Task task : batch) {
+                    deadLetter(failDependents(task.getId(), "Parent task expired: " + task.getId()));
+                }
+                total += batch.size();
+            } while (batch.size() >= EXPIRY_BATCH);
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Expiry sweep failed: " + e.getMessage());
+        }
+        sweep.done("expiry", total);
+        if (total > 0) {
+            pendingVersion.incrementAndGet();
+            metrics.recordExpired(total);
+            System.out.println("[QUEUE] Expired " + total + " tasks past their deadline");
+        }
+    }
+
+    // Dependents failed by the queue itself, counted like the workers' failures
+    private void deadLetter(List<Task> failed) {
+        DeadLetterQueue dlq = deadLetters;
+        for (Task task : failed) {
+            if (dlq != null) dlq.add(task);
+            metrics.recordFailure();
+        }
+    }
+
+    // Record that a running task was cancelled; returns the dependents failed with it
+    @Override
+    public List<Task> cancelRunning(Task task) {
+        untrack(task.getId());
+        task.setStatus(TaskStatus.CANCELLED);
+        task.setErrorMessage("Cancelled");
+        if (memory.remove(task.getId())) {
+            finished(task);
+            results.finished(List.of(task), false);
             return List.of();
         }
+        updateTask(task);
+        finished(task);
+        results.finished(List.of(task));
+        return failDependents(task.getId(), "Parent task cancelled: " + task.getId());
     }
 
     // Update task in database
     public void updateTask(Task task) {
         try {
             db.update(task);
+            pendingVersion.incrementAndGet();
         } catch (SQLException e) {
             System.err.println("[QUEUE] Failed to update task: " + e.getMessage());
         }
@@ -123,14 +724,146 @@ public class PersistentTaskQueue implements TaskQueue {
 
     // Remove completed task from database
     public void removeTask(String taskId) {
+        untrack(taskId);
         try {
             db.delete(taskId);
+            pendingVersion.incrementAndGet();
         } catch (SQLException e) {
             System.err.println("[QUEUE] Failed to delete task: " + e.getMessage());
         }
     }
 
+    // Remove a completed task and enqueue children whose last parent it was
+    public void completeTask(Task task) {
+        completeTask(task, null);
+    }
+
+    // Same, keeping the handler's result for GET /tasks/{id}
+    // (only in memory for memory-resident tasks)
+    @Override
+    public void completeTask(Task task, String result) {
+        untrack(task.getId());
+        if (memory.remove(task.getId())) {
+            pendingVersion.incrementAndGet();
+            results.completed(task, result, false);
+            finished(task);
+            return;
+        }
+        results.completed(task, result);
+        try {
+            List<Task> released = db.completeAndRelease(task.getId());
+            if (!released.isEmpty()) pendingVersion.incrementAndGet();
+            for (Task child : released) {
+                if (child.isReady() && accepting) {
+                    enqueue(child);
+                }
+                System.out.println("[QUEUE] Dependency satisfied, released: " + child);
+            }
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to complete task: " + e.getMessage());
+        }
+        // After the row is gone, so the next task for its key becomes first
+        finished(task);
+    }
+
+    // Mark a task as permanently failed and fail everything downstream of it.
+    // Returns the dependent tasks that were failed along with it.
+    @Override
+    public List<Task> failTask(Task task) {
+        untrack(task.getId());
+        if (memory.remove(task.getId())) {
+            finished(task);
+            results.finished(List.of(task), false);
+            return List.of();
+        }
+        updateTask(task);
+        finished(task);
+        results.finished(List.of(task));
+        return failDependents(task.getId(), "Parent task failed: " + task.getId());
+    }
+
+    // Bookkeeping for a task that will never run again
+    private void finished(Task task) {
+        tenants.finished(task.getTenant());
+        releaseKey(task);
+    }
+
+    // Hand the task's ordering key to the next task in submit order
+    private void releaseKey(Task task) {
+        Task next = ordering.release(task);
+        if (next != null) queue.offer(next);
+    }
+
+    // Fail the whole subtree below a task, level by level
+    private List<Task> failDependents(String taskId, String reason) {
+        List<Task> failed = new ArrayList<>();
+        try {
+            List<Task> frontier = db.failDependents(taskId, reason);
+            while (!frontier.isEmpty()) {
+                failed.addAll(frontier);
+                List<Task> next = new ArrayList<>();
+                for (Task parent : frontier) {
+                    next.addAll(db.failDependents(parent.getId()));
+                }
+                frontier = next;
+            }
+        } catch (SQLException e) {
+            System.err.println("[QUEUE] Failed to fail dependents: " + e.getMessage());
+        }
+        for (Task task : failed) finished(task);
+        results.finished(failed);
+        return failed;
+    }
+
+    // Stop dispatching new work: submissions are still persisted but only
+    // run after the next start
+    @Override
+    public void beginDrain() {
+        accepting = false;
+        System.out.println("[QUEUE] Draining - new tasks will run after restart");
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    // Save a task that was interrupted mid-run so it resumes after restart
+    // (memory-resident ones only if their type is snapshotted)
+    @Override
+    public void checkpoint(Task task) {
+        task.setStatus(TaskStatus.PENDING);
+        if (memory.update(task)) return;
+        updateTask(task);
+        checkpointed.offer(task);
+        System.out.println("[QUEUE] Checkpointed in-flight task: " + task);
+    }
+
+    // Give back tasks a worker prefetched but never started
+    @Override
+    public void requeue(List<Task> tasks) {
+        queue.addAll(tasks);
+    }
+
+    // Stop the sweep and persist the dispatch window for a fast warm restart
     public void shutdown() {
         scheduler.shutdown();
+        committer.shutdown();
+        results.shutdown();
+        memory.snapshot();
+        if (snapshotPath == null) return;
+
+        List<Task> window = new ArrayList<>(checkpointed);
+        for (Task task : queue.snapshot()) {
+            // Memory-resident tasks have no row to come back to
+            if (task.getStatus() == TaskStatus.PENDING && !memory.contains(task.getId())) {
+                window.add(task);
+            }
+        }
+        try {
+            QueueSnapshot.write(snapshotPath, window);
+            System.out.println("[QUEUE] Snapshot saved: " + window.size() + " tasks");
+        } catch (IOException e) {
+            System.err.println("[QUEUE] Failed to write snapshot: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
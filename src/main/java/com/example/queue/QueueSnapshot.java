@@ -0,0 +1,118 @@
+package com.example.queue;
+
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compact binary dump of the in-memory queue, written on drain and read back
+// on startup so a restart doesn't have to re-query the backlog before serving.
+// The database stays the source of truth; the snapshot only restores the
+// dispatch window (bounded by the queue's in-memory limit).
+public final class QueueSnapshot {
+
+    private static final int MAGIC = 0x4A515331; // "JQS1"
+    private static final int VERSION = 6;
+
+    private QueueSnapshot() {}
+
+    public static void write(Path path, List<Task> tasks) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tasks.size());
+            for (Task task : tasks) {
+                writeString(out, task.getId());
+                writeString(out, task.getType());
+                writeString(out, task.getPayload());
+                out.writeInt(task.getRetryCount());
+                out.writeInt(task.getMaxRetries());
+                writeTime(out, task.getCreatedAt());
+                writeTime(out, task.getExecuteAt());
+                writeString(out, task.getErrorMessage());
+                writeString(out, task.hasParents() ? String.join(",", task.getParentIds()) : null);
+                out.writeLong(task.getTimeoutMs());
+                writeString(out, task.getTenant());
+                writeString(out, task.getOrderingKey());
+                writeString(out, task.getCoalesceKey());
+                out.writeBoolean(task.getExpiresAt() != null);
+                if (task.getExpiresAt() != null) writeTime(out, task.getExpiresAt());
+            }
+        }
+        // Rename so a crash mid-write never leaves a truncated snapshot
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns an empty list if there is no snapshot
+    public static List<Task> read(Path path) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        if (!Files.exists(path)) return tasks;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognized snapshot format: " + path);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Task task = new Task(
+                    readString(in), readString(in), readString(in), TaskStatus.PENDING,
+                    in.readInt(), in.readInt(), readTime(in), readTime(in), readString(in));
+                String parentIds = readString(in);
+                if (parentIds != null) {
+                    task.setParentIds(Arrays.asList(parentIds.split(",")));
+                }
+                task.setTimeoutMs(in.readLong());
+                task.setTenant(readString(in));
+                task.setOrderingKey(readString(in));
+                task.setCoalesceKey(readString(in));
+                if (in.readBoolean()) task.setExpiresAt(readTime(in));
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    // Length-prefixed UTF-8 (-1 for null); payloads may exceed writeUTF's 64KB limit
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
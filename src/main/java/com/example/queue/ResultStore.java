@@ -0,0 +1,194 @@
+package com.example.queue;
+
+import com.example.db.DatabaseManager;
+import com.example.metrics.QueueEvents;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Results of finished tasks, kept for a TTL.
+// Every result is written to the task_results table; the most recently
+// used ones are also cached in memory (LRU, bounded). Expired rows are
+// deleted in batches by a background sweep so one sweep never holds the
+// database for long.
+public class ResultStore {
+
+    private static final Duration DEFAULT_TTL = Duration.ofHours(1);
+    private static final int DEFAULT_MAX_CACHED = 10_000;
+    private static final int EXPIRY_BATCH = 1_000;
+
+    private final DatabaseManager db;
+    private final Duration ttl;
+    private final Map<String, TaskResult> cache;
+    // Long-poll callers waiting for a task to finish
+    private final Map<String, CompletableFuture<TaskResult>> waiters = new ConcurrentHashMap<>();
+    // In-process observers of every result, called on the finishing thread
+    private final List<Consumer<TaskResult>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sweeper;
+
+    public ResultStore(DatabaseManager db) {
+        this(db, DEFAULT_TTL, DEFAULT_MAX_CACHED);
+    }
+
+    public ResultStore(DatabaseManager db, Duration ttl, int maxCached) {
+        this.db = db;
+        this.ttl = ttl;
+        // Access-ordered so the eldest entry is the least recently used
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TaskResult> eldest) {
+                return size() > maxCached;
+            }
+        };
+        this.sweeper = Executors.newSingleThreadScheduledExecutor();
+        sweeper.scheduleAtFixedRate(this::expire, 30, 30, TimeUnit.SECONDS);
+    }
+
+    public void completed(Task task, String result) {
+        completed(task, result, true);
+    }
+
+    // persist = false keeps the result in memory only (memory-resident tasks)
+    public void completed(Task task, String result, boolean persist) {
+        put(List.of(toResult(task, TaskStatus.COMPLETED, result)), persist);
+    }
+
+    // Failed or cancelled tasks (including dependents failed with a parent)
+    public void finished(List<Task> tasks) {
+        finished(tasks, true);
+    }
+
+    public void finished(List<Task> tasks, boolean persist) {
+        if (tasks.isEmpty()) return;
+        List<TaskResult> results = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            results.add(toResult(task, task.getStatus(), null));
+        }
+        put(results, persist);
+    }
+
+    private TaskResult toResult(Task task, TaskStatus status, String result) {
+        LocalDateTime now = LocalDateTime.now();
+        return new TaskResult(task.getId(), task.getType(), status, result,
+                              status == TaskStatus.COMPLETED ? null : task.getErrorMessage(),
+                              now, now.plus(ttl));
+    }
+
+    private void put(List<TaskResult> results, boolean persist) {
+        try {
+            if (persist) db.saveResults(results);
+        } catch (SQLException e) {
+            // Still served from memory until evicted
+            System.err.println("[RESULTS] Failed to save results: " + e.getMessage());
+        }
+        synchronized (cache) {
+            for (TaskResult result : results) {
+                cache.put(result.getTaskId(), result);
+            }
+        }
+        for (TaskResult result : results) {
+            CompletableFuture<TaskResult> waiter = waiters.remove(result.getTaskId());
+            if (waiter != null) waiter.complete(result);
+        }
+        for (Consumer<TaskResult> listener : listeners) {
+            for (TaskResult result : results) {
+                try {
+                    listener.accept(result);
+                } catch (RuntimeException e) {
+                    System.err.println("[RESULTS] Listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Listeners must not block: they run on worker threads
+    public void addListener(Consumer<TaskResult> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<TaskResult> listener) {
+        listeners.remove(listener);
+    }
+
+    // The stored result, or null if unknown or expired
+    public TaskResult get(String taskId) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (cache) {
+            TaskResult cached = cache.get(taskId);
+            if (cached != null) {
+                if (!cached.isExpired(now)) return cached;
+                cache.remove(taskId);
+                return null;
+            }
+        }
+        try {
+            TaskResult stored = db.getResult(taskId);
+            if (stored == null || stored.isExpired(now)) return null;
+            synchronized (cache) {
+                cache.put(taskId, stored);
+            }
+            return stored;
+        } catch (SQLException e) {
+            System.err.println("[RESULTS] Failed to load result: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Completes when the task finishes; already complete if it has.
+    // The future is shared between callers: bound the wait on a copy()
+    // (e.g. copy().orTimeout(...)) so one caller's timeout doesn't affect others.
+    public CompletableFuture<TaskResult> await(String taskId) {
+        CompletableFuture<TaskResult> waiter =
+            waiters.computeIfAbsent(taskId, id -> new CompletableFuture<>());
+        // Finished before the waiter was registered
+        TaskResult result = get(taskId);
+        if (result != null) {
+            waiters.remove(taskId, waiter);
+            waiter.complete(result);
+        }
+        return waiter;
+    }
+
+    // Evict expired entries from memory, then delete expired rows in batches
+    private void expire() {
+        QueueEvents.SchedulerSweep sweep = QueueEvents.SchedulerSweep.start();
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (cache) {
+            cache.values().removeIf(result -> result.isExpired(now));
+        }
+        // Waiters whose callers all timed out
+        waiters.values().removeIf(waiter -> waiter.getNumberOfDependents() == 0);
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = db.deleteExpiredResults(now, EXPIRY_BATCH);
+                total += deleted;
+            } while (deleted >= EXPIRY_BATCH);
+            if (total > 0) {
+                System.out.println("[RESULTS] Expired " + total + " results");
+            }
+        } catch (SQLException e) {
+            System.err.println("[RESULTS] Failed to expire results: " + e.getMessage());
+        }
+        sweep.done("result expiry", total);
+    }
+
+    public void shutdown() {
+        sweeper.shutdown();
+    }
+}
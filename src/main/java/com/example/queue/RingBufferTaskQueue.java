@@ -0,0 +1,194 @@
+package com.example.queue;
+
+import com.example.model.Task;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Padding keeps the producer (tail) and consumer (head) counters on
+// separate cache lines so producers and consumers don't false-share.
+abstract class RingBufferPad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingBufferTail extends RingBufferPad0 {
+    volatile long tail;
+}
+
+abstract class RingBufferPad1 extends RingBufferTail {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingBufferHead extends RingBufferPad1 {
+    volatile long head;
+}
+
+abstract class RingBufferPad2 extends RingBufferHead {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+// Bounded, lock-free multi-producer/multi-consumer queue for in-memory,
+// non-durable task types (Vyukov's sequence-per-slot ring buffer).
+// Capacity is rounded up to a power of two. Enqueue and dequeue only do
+// CAS and ordered array writes, so they allocate nothing.
+// Unlike the other queues, submit does not log: it is the hot path.
+public class RingBufferTaskQueue extends RingBufferPad2 implements TaskQueue {
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(RingBufferTail.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(RingBufferHead.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Task> buffer;
+    // Slot i is writable for position p when sequence == p,
+    // and readable when sequence == p + 1
+    private final AtomicLongArray sequences;
+    private final WaitStrategy waitStrategy;
+
+    public RingBufferTaskQueue(int capacity) {
+        this(capacity, WaitStrategy.YIELD);
+    }
+
+    public RingBufferTaskQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30: " + capacity);
+        }
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    // Non-blocking enqueue; false if the buffer is full
+    public boolean offer(Task task) {
+        long pos = tail;
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.getAcquire(index) - pos;
+            if (diff == 0) {
+                if (TAIL.compareAndSet(this, pos, pos + 1)) {
+                    buffer.setPlain(index, task);
+                    sequences.setRelease(index, pos + 1);
+                    return true;
+                }
+                pos = tail;
+            } else if (diff < 0) {
+                return false; // full: slot not yet freed by a consumer
+            } else {
+                pos = tail; // another producer claimed it
+            }
+        }
+    }
+
+    // Non-blocking dequeue; null if the buffer is empty
+    public Task tryPoll() {
+        long pos = head;
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.getAcquire(index) - (pos + 1);
+            if (diff == 0) {
+                if (HEAD.compareAndSet(this, pos, pos + 1)) {
+                    Task task = buffer.getPlain(index);
+                    buffer.setPlain(index, null);
+                    sequences.setRelease(index, pos + capacity);
+                    return task;
+                }
+                pos = head;
+            } else if (diff < 0) {
+                return null; // empty: slot not yet published by a producer
+            } else {
+                pos = head; // another consumer took it
+            }
+        }
+    }
+
+    // Blocks (per the wait strategy) while the buffer is full
+    @Override
+    public void submit(Task task) {
+        int attempt = 0;
+        while (!offer(task)) {
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    @Override
+    public Task poll() throws InterruptedException {
+        int attempt = 0;
+        Task task;
+        while ((task = tryPoll()) == null) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            waitStrategy.idle(attempt++);
+        }
+        return task;
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        Task task;
+        while ((task = tryPoll()) == null) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            if (System.nanoTime() - deadline >= 0) return null;
+            waitStrategy.idle(attempt++);
+        }
+        return task;
+    }
+
+    @Override
+    public int drainTo(List<Task> sink, int maxTasks) {
+        int count = 0;
+        Task task;
+        while (count < maxTasks && (task = tryPoll()) != null) {
+            sink.add(task);
+            count++;
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Approximate under concurrent use
+    @Override
+    public int size() {
+        long size = tail - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Best-effort snapshot for monitoring; may miss tasks moving concurrently
+    @Override
+    public List<Task> getAllPending() {
+        List<Task> pending = new ArrayList<>();
+        long end = tail;
+        for (long pos = head; pos < end; pos++) {
+            Task task = buffer.get((int) (pos & mask));
+            if (task != null) pending.add(task);
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.queue;
+
+// A submitted task could not be stored (the database write or its group
+// commit failed). Nothing will run it: the caller has to report the failure
+// or submit it again.
+public class StorageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StorageException(String message, Throwable cause) {
+        super(message + ": " + cause.getMessage(), cause);
+    }
+}
@@ -1,22 +1,110 @@
 package com.example.queue;
 
 import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+// What a WorkerPool needs from a queue: dispatch, plus the task lifecycle
+// (claim, retry, complete, fail, cancel, drain). The lifecycle defaults fit
+// a plain queue that keeps no record of a task once it is dequeued.
 public interface TaskQueue {
-    
-    // Add task to queue
+
+    // Add task to queue; throws StorageException if it could not be stored
     void submit(Task task);
-    
+
     // Get next task (blocks if empty)
     Task poll() throws InterruptedException;
-    
+
+    // Get next task, waiting up to the timeout (null if none arrived)
+    Task poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    // Move up to maxTasks ready tasks into sink without blocking
+    int drainTo(List<Task> sink, int maxTasks);
+
     // Get queue size
     int size();
-    
+
     // Check if queue is empty
     boolean isEmpty();
-    
+
     // Get all pending tasks (for monitoring)
     List<Task> getAllPending();
-}
\ No newline at end of file
+
+    // Mark a dequeued task PROCESSING; false means it was cancelled while
+    // queued and the caller must drop it
+    default boolean claim(Task task) {
+        task.setStatus(TaskStatus.PROCESSING);
+        return true;
+    }
+
+    // Run a failed task again after the delay
+    default void scheduleRetry(Task task, Duration delay) {
+        task.setStatus(TaskStatus.PENDING);
+        task.setExecuteAt(LocalDateTime.now().plus(delay));
+        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS)
+            .execute(() -> submit(task));
+    }
+
+    // The handler succeeded
+    default void completeTask(Task task, String result) {
+    }
+
+    // The task failed for good; returns dependents failed along with it
+    default List<Task> failTask(Task task) {
+        return List.of();
+    }
+
+    // A running task was cancelled; returns dependents failed along with it
+    default List<Task> cancelRunning(Task task) {
+        task.setStatus(TaskStatus.CANCELLED);
+        task.setErrorMessage("Cancelled");
+        return List.of();
+    }
+
+    // Cancel a task that has not started; returns dependents failed along
+    // with it, or null if the task is unknown, running or finished
+    default List<Task> cancelPending(String taskId) {
+        return null;
+    }
+
+    // Drop a task whose deadline passed before it ran; returns dependents
+    // failed along with it, or null if it had already finished
+    default List<Task> expire(Task task) {
+        task.setStatus(TaskStatus.CANCELLED);
+        task.setErrorMessage("Expired");
+        return List.of();
+    }
+
+    // Look up an unfinished task by ID (null if unknown)
+    default Task getTask(String taskId) {
+        return null;
+    }
+
+    // Keep a task interrupted mid-run by shutdown so it can run again
+    default void checkpoint(Task task) {
+        task.setStatus(TaskStatus.PENDING);
+    }
+
+    // Stop dispatching new work ahead of shutdown
+    default void beginDrain() {
+    }
+
+    // How tasks submitted with a coalesce key combine payloads
+    // (queues that don't coalesce ignore it)
+    default void setPayloadMerger(PayloadMerger merger) {
+    }
+
+    // Where the queue dead-letters tasks it fails on its own (dependents of
+    // tasks its expiry sweep drops)
+    default void setDeadLetterQueue(DeadLetterQueue dlq) {
+    }
+
+    // Give back tasks a worker prefetched but never started
+    default void requeue(List<Task> tasks) {
+        for (Task task : tasks) submit(task);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Per-tenant counters, quotas and scheduling weights.
+// backlog counts a tenant's unfinished tasks (in the database: pending,
+// delayed, waiting or running); inMemory counts those paged into the
+// dispatch window. Both are kept in memory so quota checks and refill
+// decisions never query the database.
+// A tenant is only tracked while it has unfinished tasks or settings of its
+// own, so tenant names that come and go (or are only ever rejected) don't
+// accumulate.
+public class TenantRegistry {
+
+    private static final int DEFAULT_QUOTA = 100_000;
+    private static final int DEFAULT_WEIGHT = 1;
+
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+    private volatile int defaultQuota = DEFAULT_QUOTA;
+
+    private static class TenantState {
+        final AtomicInteger backlog = new AtomicInteger();
+        final AtomicInteger inMemory = new AtomicInteger();
+        volatile int quota = -1;   // -1 = default quota
+        volatile int weight = DEFAULT_WEIGHT;
+
+        boolean isIdle() {
+            return backlog.get() == 0 && inMemory.get() == 0 && quota < 0 && weight == DEFAULT_WEIGHT;
+        }
+    }
+
+    public record TenantStats(int backlog, int inMemory, int quota, int weight) {}
+
+    // Change a tenant's state under its map entry's lock, dropping the entry
+    // once it holds nothing but defaults
+    private void update(String tenant, Consumer<TenantState> change) {
+        tenants.compute(tenant, (t, state) -> {
+            if (state == null) state = new TenantState();
+            change.accept(state);
+            return state.isIdle() ? null : state;
+        });
+    }
+
+    // Max unfinished tasks per tenant, unless overridden
+    public void setDefaultQuota(int quota) {
+        this.defaultQuota = quota;
+    }
+
+    public void setQuota(String tenant, int quota) {
+        update(tenant, state -> state.quota = quota);
+    }
+
+    // Tasks dispatched per round-robin turn, relative to other tenants
+    public void setWeight(String tenant, int weight) {
+        update(tenant, state -> state.weight = Math.max(1, weight));
+    }
+
+    public int getWeight(String tenant) {
+        TenantState state = tenants.get(tenant);
+        return state != null ? state.weight : DEFAULT_WEIGHT;
+    }
+
+    private int quotaOf(TenantState state) {
+        return state.quota >= 0 ? state.quota : defaultQuota;
+    }
+
+    // Whether count more tasks fit in the tenant's quota. Checked before
+    // submitting, so concurrent submits can overshoot slightly (soft quota).
+    // Read-only: a request that is then rejected leaves nothing behind.
+    public boolean hasRoom(String tenant, int count) {
+        TenantState state = tenants.get(tenant);
+        if (state == null) return count <= defaultQuota;
+        return state.backlog.get() + count <= quotaOf(state);
+    }
+
+    public void submitted(String tenant, int count) {
+        update(tenant, state -> state.backlog.addAndGet(count));
+    }
+
+    public void finished(String tenant) {
+        update(tenant, state -> state.backlog.decrementAndGet());
+    }
+
+    public void pagedIn(String tenant) {
+        update(tenant, state -> state.inMemory.incrementAndGet());
+    }
+
+    public void pagedOut(String tenant) {
+        update(tenant, state -> state.inMemory.decrementAndGet());
+    }
+
+    public int inMemory(String tenant) {
+        TenantState state = tenants.get(tenant);
+        return state != null ? state.inMemory.get() : 0;
+    }
+
+    // Tenants with unfinished tasks that aren't in memory yet (some may
+    // still be delayed or waiting on parents)
+    public List<String> withUnpagedBacklog() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, TenantState> entry : tenants.entrySet()) {
+            TenantState state = entry.getValue();
+            if (state.backlog.get() > state.inMemory.get()) result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    public Map<String, TenantStats> snapshot() {
+        Map<String, TenantStats> stats = new TreeMap<>();
+        tenants.forEach((tenant, state) -> stats.put(tenant, new TenantStats(
+            state.backlog.get(), state.inMemory.get(), quotaOf(state), state.weight)));
+        return stats;
+    }
+}
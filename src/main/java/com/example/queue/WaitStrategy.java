@@ -0,0 +1,50 @@
+package com.example.queue;
+
+import java.util.concurrent.locks.LockSupport;
+
+// How a RingBufferTaskQueue caller waits while the buffer is empty (poll)
+// or full (submit). Trades CPU burn for wake-up latency.
+public enum WaitStrategy {
+
+    // Busy-spin: lowest latency, burns a core per waiting thread
+    SPIN {
+        @Override
+        public void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    // Spin briefly, then give the core to other threads
+    YIELD {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    // Spin, then yield, then park with a growing timeout (up to 1ms).
+    // Nothing unparks the waiter, so producers never pay for a signal.
+    PARK {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                int shift = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+                LockSupport.parkNanos(1_000L << shift);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    // Called once per failed attempt; attempt counts from 0
+    public abstract void idle(int attempt);
+}
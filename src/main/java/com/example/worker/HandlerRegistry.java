@@ -0,0 +1,231 @@
+package com.example.worker;
+
+import com.example.model.Task;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Handlers by task type, safe to change while workers are running.
+// Replacing a handler takes effect for the next task; tasks already running
+// (or queued on its bulkhead) finish on the old one, which is then drained.
+// A handler with getMaxConcurrency() > 0 runs on its own bounded executor
+// (bulkhead) instead of the worker threads, so a slow type ties up only its
+// own threads; when that executor is full the task is pushed back briefly.
+public class HandlerRegistry {
+
+    // Tasks that may wait on a bulkhead, per bulkhead thread
+    private static final int QUEUE_PER_THREAD = 4;
+    private static final Path DEFAULT_PLUGIN_DIR = Path.of("./plugins");
+
+    private final Map<String, Registration> handlers = new ConcurrentHashMap<>();
+
+    public record HandlerStats(String type, String handler, int maxConcurrency, int active, int queued) {}
+
+    // One registered handler; tasks enter() before running on it and exit() after
+    public static final class Registration {
+        private final TaskHandler handler;
+        private final ThreadPoolExecutor bulkhead;  // null = runs on the worker
+        private final int maxConcurrency;
+        private final AtomicInteger active = new AtomicInteger();
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+        private volatile boolean draining;
+
+        private Registration(TaskHandler handler, int maxConcurrency) {
+            this.handler = handler;
+            this.maxConcurrency = maxConcurrency;
+            if (maxConcurrency > 0) {
+                AtomicInteger threadId = new AtomicInteger();
+                this.bulkhead = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(maxConcurrency * QUEUE_PER_THREAD),
+                    r -> new Thread(r, handler.getTaskType() + "-handler-" + threadId.incrementAndGet()));
+            } else {
+                this.bulkhead = null;
+            }
+        }
+
+        public TaskHandler handler() {
+            return handler;
+        }
+
+        public boolean hasBulkhead() {
+            return bulkhead != null;
+        }
+
+        // Run body on the bulkhead; throws RejectedExecutionException when it is full
+        public void execute(Task task, Runnable body) {
+            bulkhead.execute(new Job(task, body));
+        }
+
+        private boolean enter() {
+            active.incrementAndGet();
+            if (draining) {
+                exit();
+                return false;
+            }
+            return true;
+        }
+
+        public void exit() {
+            if (active.decrementAndGet() == 0 && draining) finishDrain();
+        }
+
+        private CompletableFuture<Void> drain() {
+            draining = true;
+            if (active.get() == 0) finishDrain();
+            return drained;
+        }
+
+        private void finishDrain() {
+            if (bulkhead != null) bulkhead.shutdown();
+            drained.complete(null);
+        }
+    }
+
+    // Bulkhead work item; keeps the task so it can be recovered if never started
+    private record Job(Task task, Runnable body) implements Runnable {
+        @Override
+        public void run() {
+            body.run();
+        }
+    }
+
+    public CompletableFuture<Void> register(TaskHandler handler) {
+        return register(handler, handler.getMaxConcurrency());
+    }
+
+    // Register or replace the handler for its type. maxConcurrency > 0 gives it a
+    // bulkhead of that many threads. Completes once a replaced handler has drained.
+    public CompletableFuture<Void> register(TaskHandler handler, int maxConcurrency) {
+        String type = handler.getTaskType();
+        Registration previous = handlers.put(type, new Registration(handler, maxConcurrency));
+        String threads = maxConcurrency > 0 ? " (" + maxConcurrency + " threads)" : "";
+        if (previous == null) {
+            System.out.println("[HANDLERS] Registered handler for: " + type + threads);
+            return CompletableFuture.completedFuture(null);
+        }
+        System.out.println("[HANDLERS] Replaced handler for: " + type + threads
+            + ", draining " + previous.active.get() + " in flight");
+        return previous.drain();
+    }
+
+    // Stop taking tasks of this type; completes once the running ones finish.
+    // Tasks of the type that arrive afterwards fail with "No handler".
+    public CompletableFuture<Void> drain(String type) {
+        Registration registration = handlers.remove(type);
+        if (registration == null) return null;
+        System.out.println("[HANDLERS] Draining handler for: " + type);
+        return registration.drain();
+    }
+
+    // Handler for the type, counted as in use until exit(); null if none
+    public Registration acquire(String type) {
+        while (true) {
+            Registration registration = handlers.get(type);
+            if (registration == null || registration.enter()) return registration;
+            // Replaced or drained since the lookup: try the current one
+        }
+    }
+
+    // Payload of a pending task of this type after another submit coalesced
+    // into it (see TaskHandler.merge); the latest wins if no handler is registered
+    public String merge(String type, String pending, String incoming) {
+        Registration registration = handlers.get(type);
+        return registration != null ? registration.handler.merge(pending, incoming) : incoming;
+    }
+
+    // Register every TaskHandler the class loader provides via ServiceLoader
+    // (META-INF/services/com.example.worker.TaskHandler). Returns the count.
+    public int discover(ClassLoader loader) {
+        int count = 0;
+        for (TaskHandler handler : ServiceLoader.load(TaskHandler.class, loader)) {
+            register(handler);
+            count++;
+        }
+        return count;
+    }
+
+    public int discover() {
+        return discover(HandlerRegistry.class.getClassLoader());
+    }
+
+    // Load handlers from the jars in a directory, replacing any already
+    // registered for the same types. Each reload gets a fresh class loader so
+    // updated classes are picked up; earlier loaders stay open for handlers
+    // that are still draining.
+    public int reload() throws IOException {
+        return reload(DEFAULT_PLUGIN_DIR);
+    }
+
+    public int reload(Path pluginDir) throws IOException {
+        if (!Files.isDirectory(pluginDir)) return 0;
+        List<URL> jars = new ArrayList<>();
+        try (Stream<Path> files = Files.list(pluginDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(".jar")) jars.add(file.toUri().toURL());
+            }
+        }
+        if (jars.isEmpty()) return 0;
+        URLClassLoader loader = new URLClassLoader(jars.toArray(URL[]::new),
+            HandlerRegistry.class.getClassLoader());
+        int count = 0;
+        for (TaskHandler handler : ServiceLoader.load(TaskHandler.class, loader)) {
+            // The parent's handlers show up too; only take the plugin's own
+            if (handler.getClass().getClassLoader() != loader) continue;
+            register(handler);
+            count++;
+        }
+        System.out.println("[HANDLERS] Loaded " + count + " handlers from " + pluginDir);
+        return count;
+    }
+
+    public List<HandlerStats> snapshot() {
+        Map<String, HandlerStats> stats = new TreeMap<>();
+        handlers.forEach((type, r) -> stats.put(type, new HandlerStats(type, r.handler.getClass().getName(),
+            r.maxConcurrency, r.active.get(), r.bulkhead != null ? r.bulkhead.getQueue().size() : 0)));
+        return new ArrayList<>(stats.values());
+    }
+
+    // Stop all bulkheads, letting running tasks finish for up to the timeout.
+    // Returns tasks that were still waiting on a bulkhead and never started.
+    public List<Task> shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        List<Registration> registrations = new ArrayList<>(handlers.values());
+        handlers.clear();
+        List<Task> unstarted = new ArrayList<>();
+        for (Registration registration : registrations) {
+            if (registration.bulkhead == null) continue;
+            registration.draining = true;
+            for (Runnable job : registration.bulkhead.getQueue().toArray(Runnable[]::new)) {
+                if (registration.bulkhead.remove(job)) {
+                    unstarted.add(((Job) job).task);
+                    registration.exit();
+                }
+            }
+            registration.bulkhead.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Registration registration : registrations) {
+            if (registration.bulkhead == null) continue;
+            long remaining = deadline - System.nanoTime();
+            if (!registration.bulkhead.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                // Interrupted handlers checkpoint their task
+                registration.bulkhead.shutdownNow();
+                registration.bulkhead.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        }
+        return unstarted;
+    }
+}
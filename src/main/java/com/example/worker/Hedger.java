@@ -0,0 +1,98 @@
+package com.example.worker;
+
+import com.example.metrics.MetricsCollector;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decides when a straggling run of an idempotent handler gets a speculative
+// twin. Each type keeps its last WINDOW latencies; once it has MIN_SAMPLES,
+// a run still going past the type's percentile (default p95) is hedged.
+// Hedges draw on a budget that every run tops up by budgetRatio (default
+// 5%), so when everything is slow (an outage) hedging adds at most that
+// much load instead of doubling it. Configure before starting the pool.
+public class Hedger {
+
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+    // Recompute a type's threshold after this many new samples
+    private static final int REFRESH_EVERY = 16;
+    // Unused budget saved up for a burst of stragglers
+    private static final double MAX_TOKENS = 10;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private volatile double percentile = 95;
+    private volatile double budgetRatio = 0.05;
+    private double tokens;  // guarded by this
+
+    // Recent handler latencies of one type, newest overwriting oldest
+    private final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int next;
+        private int count;
+        private int sinceRefresh;
+        private volatile long threshold = -1;  // ms; -1 until MIN_SAMPLES
+
+        synchronized void record(long elapsedMs) {
+            samples[next] = elapsedMs;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) count++;
+            if (count >= MIN_SAMPLES && (threshold < 0 || ++sinceRefresh >= REFRESH_EVERY)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int rank = (int) Math.ceil(count * percentile / 100) - 1;
+                threshold = sorted[Math.max(0, Math.min(count - 1, rank))];
+                sinceRefresh = 0;
+            }
+        }
+    }
+
+    // Latency percentile (0-100) a run must exceed before it is hedged
+    public Hedger percentile(double percentile) {
+        this.percentile = percentile;
+        return this;
+    }
+
+    // Hedges allowed per run, on average (0 disables hedging)
+    public Hedger budget(double ratio) {
+        this.budgetRatio = ratio;
+        return this;
+    }
+
+    // A run is starting: tops up the budget and returns how long to wait
+    // before hedging it, in ms (-1: not enough samples yet)
+    long hedgeAfterMs(String type) {
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+        }
+        LatencyWindow window = latencies.get(type);
+        return window != null ? window.threshold : -1;
+    }
+
+    // Spend budget on a hedge; false if there is none left
+    synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            metrics.recordHedge(false);
+            return false;
+        }
+        tokens -= 1;
+        metrics.recordHedge(true);
+        return true;
+    }
+
+    // A run of the type finished successfully after elapsedMs (hedged or not)
+    void record(String type, long elapsedMs) {
+        latencies.computeIfAbsent(type, t -> new LatencyWindow()).record(elapsedMs);
+    }
+
+    void hedgeWon() {
+        metrics.recordHedgeWin();
+    }
+
+    // Current hedging threshold of a type in ms (-1: not hedged yet)
+    public long getThresholdMs(String type) {
+        LatencyWindow window = latencies.get(type);
+        return window != null ? window.threshold : -1;
+    }
+}
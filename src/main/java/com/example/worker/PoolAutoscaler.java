@@ -0,0 +1,119 @@
+package com.example.worker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Decides how many workers the pool should run, between min and max.
+// Workers report how long each task waited in the queue and how long they
+// were busy; once a second the pool asks for a target given the backlog
+// and the busy time of tasks still running.
+// A change needs several agreeing ticks in a row and a cooldown after the
+// previous change, so a bursty queue doesn't make the pool flap.
+public class PoolAutoscaler {
+
+    // Grow when workers are this busy and there is a backlog or tasks wait too long
+    private static final double HIGH_UTILIZATION = 0.75;
+    // Shrink only when workers are mostly idle and nothing is waiting
+    private static final double LOW_UTILIZATION = 0.30;
+    private static final long TARGET_QUEUE_WAIT_MS = 500;
+    private static final int UP_TICKS = 2;
+    private static final int DOWN_TICKS = 5;
+    private static final long UP_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long DOWN_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int minWorkers;
+    private final int maxWorkers;
+
+    // Reported by workers, reset every tick
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder queueWaitMs = new LongAdder();
+    private final LongAdder dequeued = new LongAdder();
+
+    // Controller state (only touched by the pool's scaling thread)
+    private int upTicks;
+    private int downTicks;
+    private volatile long lastTickNanos;
+    private long lastChangeNanos;
+    private String lastReason = "";
+
+    public PoolAutoscaler(int minWorkers, int maxWorkers) {
+        if (minWorkers < 1 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException(
+                "Invalid worker range: " + minWorkers + ".." + maxWorkers);
+        }
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.lastTickNanos = System.nanoTime();
+        this.lastChangeNanos = lastTickNanos - DOWN_COOLDOWN_NANOS;
+    }
+
+    public int getMinWorkers() { return minWorkers; }
+    public int getMaxWorkers() { return maxWorkers; }
+
+    public boolean isFixed() {
+        return minWorkers == maxWorkers;
+    }
+
+    // Called by a worker when it takes a task off the queue
+    public void recordDequeue(long waitMs) {
+        queueWaitMs.add(Math.max(0, waitMs));
+        dequeued.increment();
+    }
+
+    // Called by a worker when a task ends; only the part inside the current
+    // interval counts (earlier parts were reported as running by the pool)
+    public void recordBusy(long startNanos, long endNanos) {
+        long busy = endNanos - Math.max(startNanos, lastTickNanos);
+        if (busy > 0) busyNanos.add(busy);
+    }
+
+    // Start of the current measuring interval
+    public long intervalStart() {
+        return lastTickNanos;
+    }
+
+    // Why the last decide() changed the worker count
+    public String getLastReason() {
+        return lastReason;
+    }
+
+    // Target worker count for the next interval; returns current to stay put.
+    // runningNanos is this interval's busy time of tasks that haven't finished.
+    public int decide(int current, int backlog, long runningNanos, long now) {
+        long elapsed = Math.max(1, now - lastTickNanos);
+        lastTickNanos = now;
+        long busy = busyNanos.sumThenReset() + runningNanos;
+        double utilization = Math.min(1.0, busy / ((double) elapsed * current));
+        long count = dequeued.sumThenReset();
+        long waitSum = queueWaitMs.sumThenReset();
+        long avgWaitMs = count > 0 ? waitSum / count : 0;
+
+        boolean slowQueue = avgWaitMs > TARGET_QUEUE_WAIT_MS;
+        boolean pressure = utilization >= HIGH_UTILIZATION && (backlog > current || slowQueue);
+        boolean idle = utilization < LOW_UTILIZATION && backlog == 0
+            && avgWaitMs < TARGET_QUEUE_WAIT_MS / 2;
+
+        upTicks = pressure ? upTicks + 1 : 0;
+        downTicks = idle ? downTicks + 1 : 0;
+
+        if (upTicks >= UP_TICKS && current < maxWorkers
+                && now - lastChangeNanos >= UP_COOLDOWN_NANOS) {
+            // Grow by half again (at least one); backlog drains faster than one-at-a-time
+            int target = Math.min(maxWorkers, current + Math.max(1, current / 2));
+            lastReason = String.format("backlog=%d, wait=%dms, utilization=%.0f%%",
+                                       backlog, avgWaitMs, utilization * 100);
+            upTicks = 0;
+            lastChangeNanos = now;
+            return target;
+        }
+        if (downTicks >= DOWN_TICKS && current > minWorkers
+                && now - lastChangeNanos >= DOWN_COOLDOWN_NANOS) {
+            // Shrink one at a time; over-shrinking costs more than an idle thread
+            lastReason = String.format("idle, utilization=%.0f%%", utilization * 100);
+            downTicks = 0;
+            lastChangeNanos = now;
+            return current - 1;
+        }
+        return current;
+    }
+}
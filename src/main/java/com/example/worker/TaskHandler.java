@@ -7,6 +7,31 @@ public interface TaskHandler {
     // What task type this handler processes
     String getTaskType();
     
-    // Process the task - throw exception if failed
-    void handle(Task task) throws Exception;
+    // Process the task and return its result (null if none) - throw exception if failed.
+    // The result is kept for a while and served by GET /tasks/{id}.
+    String handle(Task task) throws Exception;
+
+    // Default execution deadline in ms for this type (0 = no limit).
+    // A task's own timeout takes precedence.
+    default long getTimeoutMs() {
+        return 0;
+    }
+
+    // Payload of a pending task after another with the same coalesce key was
+    // folded into it. Called on the submitting thread; default: latest wins.
+    default String merge(String pending, String incoming) {
+        return incoming;
+    }
+
+    // True if running the same task twice is harmless. Idempotent handlers
+    // may get a speculative second run when one straggles (see Hedger).
+    default boolean isIdempotent() {
+        return false;
+    }
+
+    // Threads reserved for this type (0 = share the worker threads).
+    // A slow type with its own threads can't starve the others.
+    default int getMaxConcurrency() {
+        return 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.example.worker;
+
+import com.example.model.Task;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Runs handlers with a deadline and lets running tasks be cancelled.
+// A handler with a timeout runs on its own virtual thread while the worker
+// waits; on timeout the handler is interrupted and, if it ignores the
+// interrupt, abandoned so the worker is free for the next task.
+// Idempotent handlers also run on a handler thread once the Hedger has
+// their latencies, so a straggler can be raced by a second run: the first
+// to succeed wins and the other is interrupted. Types on a bulkhead are not
+// hedged: the second run would take a thread beyond the bulkhead's limit.
+public class TaskWatchdog {
+
+    // A remembered cancel for a task that never starts here is dropped after this
+    private static final long CANCEL_REQUEST_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final ExecutorService handlerThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Hedger hedger = new Hedger();
+    // Task ID -> whatever is executing it, for cancellation
+    private final Map<String, Running> running = new ConcurrentHashMap<>();
+    // Cancels that arrived between claim and start -> when (nanoTime)
+    private final Map<String, Long> cancelRequests = new ConcurrentHashMap<>();
+
+    private static class Running {
+        final Thread thread;        // set when run inline on the worker
+        volatile Future<?> future;  // set when run on a handler thread
+        volatile Future<?> hedge;   // the speculative second run, if any
+        volatile boolean cancelled;
+
+        Running(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    // Run the handler and return its result; throws TimeoutException past the deadline
+    // and CancellationException if the task was cancelled. timeoutMs <= 0 = no limit.
+    public String run(Task task, TaskHandler handler, long timeoutMs) throws Exception {
+        return run(task, handler, timeoutMs, handler.getMaxConcurrency() > 0);
+    }
+
+    // bulkheaded: the type runs on a bulkhead, so it is never hedged
+    public String run(Task task, TaskHandler handler, long timeoutMs, boolean bulkheaded) throws Exception {
+        Running entry = new Running(Thread.currentThread());
+        running.put(task.getId(), entry);
+        try {
+            if (cancelRequests.remove(task.getId()) != null) {
+                throw new CancellationException("Task cancelled");
+            }
+            if (!handler.isIdempotent() || bulkheaded) {
+                return timeoutMs <= 0 ? handler.handle(task)
+                    : runWithDeadline(task, handler, timeoutMs, entry);
+            }
+            long start = System.nanoTime();
+            long hedgeAfterMs = hedger.hedgeAfterMs(task.getType());
+            String result;
+            if (hedgeAfterMs >= 0 && (timeoutMs <= 0 || hedgeAfterMs < timeoutMs)) {
+                result = runHedged(task, handler, timeoutMs, Math.max(1, hedgeAfterMs), entry);
+            } else {
+                result = timeoutMs <= 0 ? handler.handle(task)
+                    : runWithDeadline(task, handler, timeoutMs, entry);
+            }
+            hedger.record(task.getType(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            // Whatever the handler turned the interrupt into, it was a cancel
+            if (entry.cancelled) throw new CancellationException("Task cancelled");
+            throw e;
+        } finally {
+            running.remove(task.getId());
+            // A cancel that raced with completion must not leak an interrupt
+            if (entry.future == null && entry.cancelled) Thread.interrupted();
+        }
+    }
+
+    private String runWithDeadline(Task task, TaskHandler handler, long timeoutMs,
+                                   Running entry) throws Exception {
+        Future<String> future = handlerThreads.submit(() -> handler.handle(task));
+        entry.future = future;
+        if (entry.cancelled) future.cancel(true);
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TimeoutException("Task timed out after " + timeoutMs + "ms");
+        } catch (CancellationException e) {
+            throw new CancellationException("Task cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            throw e;
+        } catch (InterruptedException e) {
+            // Worker is being stopped; don't leave the handler running
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    // Like runWithDeadline, but if the run is still going after hedgeAfterMs
+    // and the budget allows, start a second one and take whichever succeeds
+    // first. A failed run only fails the task if the other one fails too.
+    private String runHedged(Task task, TaskHandler handler, long timeoutMs, long hedgeAfterMs,
+                             Running entry) throws Exception {
+        long deadline = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+            : Long.MAX_VALUE;
+        ExecutorCompletionService<String> runs = new ExecutorCompletionService<>(handlerThreads);
+        Future<String> primary = runs.submit(() -> handler.handle(task));
+        entry.future = primary;
+        if (entry.cancelled) primary.cancel(true);
+        Future<String> hedge = null;
+        try {
+            Future<String> done = runs.poll(Math.min(hedgeAfterMs,
+                TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())), TimeUnit.MILLISECONDS);
+            if (done == null && System.nanoTime() < deadline && hedger.tryHedge()) {
+                hedge = runs.submit(() -> handler.handle(task));
+                entry.hedge = hedge;
+                if (entry.cancelled) hedge.cancel(true);
+                System.out.println("[WATCHDOG] Hedging " + task.getId() + " (" + task.getType()
+                    + ") after " + hedgeAfterMs + "ms");
+            }
+            int outstanding = hedge != null ? 2 : 1;
+            Exception failure = null;
+            while (true) {
+                if (done == null) {
+                    long remaining = deadline - System.nanoTime();
+                    done = deadline == Long.MAX_VALUE ? runs.take()
+                        : runs.poll(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        throw new TimeoutException("Task timed out after " + timeoutMs + "ms");
+                    }
+                }
+                try {
+                    String result = done.get();
+                    if (done == hedge) hedger.hedgeWon();
+                    return result;
+                } catch (CancellationException e) {
+                    throw new CancellationException("Task cancelled");
+                } catch (ExecutionException e) {
+                    if (entry.cancelled) throw new CancellationException("Task cancelled");
+                    Throwable cause = e.getCause();
+                    Exception ex = cause instanceof Exception c ? c : e;
+                    if (failure == null) failure = ex;
+                    if (--outstanding == 0) throw failure;
+                    done = null;
+                }
+            }
+        } finally {
+            // The loser, or both on timeout, cancel or worker stop
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    // Latency tracking and budget for hedged runs
+    public Hedger getHedger() {
+        return hedger;
+    }
+
+    // Interrupt a running task. Returns false if it isn't running on this node,
+    // in which case the cancel is remembered in case it is about to start.
+    public boolean cancel(String taskId) {
+        Running entry = running.get(taskId);
+        if (entry == null) {
+            long now = System.nanoTime();
+            cancelRequests.values().removeIf(at -> now - at > CANCEL_REQUEST_TTL_NANOS);
+            cancelRequests.put(taskId, now);
+            return false;
+        }
+        entry.cancelled = true;
+        Future<?> future = entry.future;
+        if (future != null) {
+            future.cancel(true);
+            Future<?> hedge = entry.hedge;
+            if (hedge != null) hedge.cancel(true);
+        } else {
+            entry.thread.interrupt();
+        }
+        return true;
+    }
+
+    // The task finished without running here (expired, no handler, lost its
+    // claim): a cancel remembered for it is no longer needed
+    public void forget(String taskId) {
+        cancelRequests.remove(taskId);
+    }
+
+    public void shutdown() {
+        handlerThreads.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.worker;
+
+import com.example.model.Task;
+import com.example.queue.TaskQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Hands tasks to workers through per-worker local deques.
+// A worker refills its deque in batches from the shared queue (one lock
+// handoff per batch instead of per task); idle workers steal from the tail
+// of busy workers' deques, like ForkJoinPool.
+public class WorkStealingDispatcher {
+
+    // How long an idle worker blocks on the shared queue before re-checking
+    // for stealable work (and for its stop flag)
+    private static final long IDLE_WAIT_MS = 100;
+
+    private final TaskQueue source;
+    private final int prefetch;
+    private final List<LocalQueue> locals = new CopyOnWriteArrayList<>();
+    // Leftovers from workers that stopped, served before the shared queue
+    private final ConcurrentLinkedDeque<Task> orphans = new ConcurrentLinkedDeque<>();
+
+    public WorkStealingDispatcher(TaskQueue source, int prefetch) {
+        this.source = source;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    // Per-worker deque: the owner takes from the head, thieves from the tail
+    public static class LocalQueue {
+        private final ConcurrentLinkedDeque<Task> deque = new ConcurrentLinkedDeque<>();
+        private final List<Task> batch = new ArrayList<>();
+
+        public int size() {
+            return deque.size();
+        }
+    }
+
+    public LocalQueue register() {
+        LocalQueue local = new LocalQueue();
+        locals.add(local);
+        return local;
+    }
+
+    // Stop dispatching to a worker and give its prefetched tasks to the others
+    public void unregister(LocalQueue local) {
+        locals.remove(local);
+        Task task;
+        while ((task = local.deque.pollFirst()) != null) {
+            orphans.offer(task);
+        }
+    }
+
+    // Next task for this worker, or null if none arrived within the idle wait
+    public Task next(LocalQueue local) throws InterruptedException {
+        Task task = local.deque.pollFirst();
+        if (task != null) return task;
+
+        task = orphans.poll();
+        if (task != null) return task;
+
+        task = refill(local);
+        if (task != null) return task;
+
+        task = steal(local);
+        if (task != null) return task;
+
+        return source.poll(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Take a batch from the shared queue, keep the rest locally
+    private Task refill(LocalQueue local) {
+        List<Task> batch = local.batch;
+        if (source.drainTo(batch, prefetch) == 0) return null;
+        Task first = batch.get(0);
+        for (int i = 1; i < batch.size(); i++) {
+            local.deque.offerLast(batch.get(i));
+        }
+        batch.clear();
+        return first;
+    }
+
+    // Scan the other workers from a random start so thieves spread out
+    private Task steal(LocalQueue thief) {
+        int n = locals.size();
+        if (n <= 1) return null;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            LocalQueue victim;
+            try {
+                victim = locals.get((start + i) % n);
+            } catch (IndexOutOfBoundsException e) {
+                return null; // a worker left mid-scan
+            }
+            if (victim == thief) continue;
+            Task task = victim.deque.pollLast();
+            if (task != null) return task;
+        }
+        return null;
+    }
+
+    // Remove every prefetched task that no worker has started (used on drain)
+    public List<Task> drainBuffered() {
+        List<Task> tasks = new ArrayList<>();
+        Task task;
+        while ((task = orphans.poll()) != null) tasks.add(task);
+        for (LocalQueue local : locals) {
+            while ((task = local.deque.pollFirst()) != null) tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // Tasks prefetched by workers but not yet started
+    public int buffered() {
+        int count = orphans.size();
+        for (LocalQueue local : locals) {
+            count += local.size();
+        }
+        return count;
+    }
+}
@@ -1,76 +1,186 @@
 package com.example.worker;
 
 import com.example.metrics.MetricsCollector;
+import com.example.metrics.QueueEvents;
+import com.example.metrics.TaskTracer;
 import com.example.model.Task;
 import com.example.model.TaskStatus;
 import com.example.queue.DeadLetterQueue;
-import com.example.queue.PersistentTaskQueue;
+import com.example.queue.TaskQueue;
 import com.example.retry.RetryStrategy;
 import java.time.Duration;
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class Worker implements Runnable {
     
+    // How long a task waits in the database when its type's bulkhead is full
+    private static final Duration BULKHEAD_FULL_BACKOFF = Duration.ofMillis(500);
+
     private final String workerId;
-    private final PersistentTaskQueue taskQueue;
+    private final TaskQueue taskQueue;
+    private final WorkStealingDispatcher dispatcher;
     private final DeadLetterQueue dlq;
-    private final Map<String, TaskHandler> handlers;
+    private final HandlerRegistry handlers;
     private final RetryStrategy retryStrategy;
+    private final TaskWatchdog watchdog;
+    private final PoolAutoscaler autoscaler;
     private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private final TaskTracer tracer = TaskTracer.getInstance();
     private volatile boolean running = true;
+    // nanoTime the current task started, 0 while idle
+    private volatile long busySince;
 
-    public Worker(String workerId, PersistentTaskQueue taskQueue, DeadLetterQueue dlq,
-                  Map<String, TaskHandler> handlers, RetryStrategy retryStrategy) {
+    public Worker(String workerId, TaskQueue taskQueue, WorkStealingDispatcher dispatcher,
+                  DeadLetterQueue dlq, HandlerRegistry handlers, RetryStrategy retryStrategy,
+                  TaskWatchdog watchdog, PoolAutoscaler autoscaler) {
         this.workerId = workerId;
         this.taskQueue = taskQueue;
+        this.dispatcher = dispatcher;
         this.dlq = dlq;
         this.handlers = handlers;
         this.retryStrategy = retryStrategy;
+        this.watchdog = watchdog;
+        this.autoscaler = autoscaler;
     }
 
     @Override
     public void run() {
         System.out.println("[" + workerId + "] Worker started");
+        WorkStealingDispatcher.LocalQueue local = dispatcher.register();
         
         while (running) {
             try {
-                Task task = taskQueue.poll();
-                processTask(task);
+                QueueEvents.TaskDequeue dequeue = QueueEvents.TaskDequeue.start();
+                Task task = dispatcher.next(local);
+                if (task != null) {
+                    long busyStart = System.nanoTime();
+                    busySince = busyStart;
+                    try {
+                        processTask(task, dequeue);
+                    } finally {
+                        busySince = 0;
+                        autoscaler.recordBusy(busyStart, System.nanoTime());
+                    }
+                }
             } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                // A late cancel interrupt must not kill the worker; only stop() does
+                if (!running) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         }
         
+        dispatcher.unregister(local);
         System.out.println("[" + workerId + "] Worker stopped");
     }
 
-    private void processTask(Task task) {
+    private void processTask(Task task, QueueEvents.TaskDequeue dequeue) {
         long startTime = System.currentTimeMillis();
+        long queueWaitMs = Duration.between(task.getExecuteAt(), LocalDateTime.now()).toMillis();
+        dequeue.done(task, queueWaitMs);
+        autoscaler.recordDequeue(queueWaitMs);
+        tracer.dequeued(task);
+        long claimStart = System.nanoTime();
+        if (task.isExpired()) {
+            watchdog.forget(task.getId());
+            List<Task> dependents = taskQueue.expire(task);
+            tracer.span(task, TaskTracer.Phase.CLAIM, claimStart, "expired while queued");
+            System.out.println("[" + workerId + "] Skipping expired task: " + task.getId());
+            if (dependents != null) {
+                metrics.recordExpired(1);
+                deadLetterDependents(dependents);
+            }
+            return;
+        }
+        boolean claimed = taskQueue.claim(task);
+        tracer.span(task, TaskTracer.Phase.CLAIM, claimStart, claimed ? null : "cancelled while queued");
+        if (!claimed) {
+            watchdog.forget(task.getId());
+            System.out.println("[" + workerId + "] Skipping cancelled task: " + task.getId());
+            return;
+        }
         System.out.println("[" + workerId + "] Processing: " + task);
-        task.setStatus(TaskStatus.PROCESSING);
-        taskQueue.updateTask(task);
 
-        TaskHandler handler = handlers.get(task.getType());
+        HandlerRegistry.Registration registration = handlers.acquire(task.getType());
         
-        if (handler == null) {
+        if (registration == null) {
+            watchdog.forget(task.getId());
             task.setStatus(TaskStatus.FAILED);
             task.setErrorMessage("No handler for type: " + task.getType());
-            taskQueue.updateTask(task);
-            dlq.add(task);
-            metrics.recordFailure();
+            deadLetter(task);
             return;
         }
 
+        if (!registration.hasBulkhead()) {
+            try {
+                execute(task, registration, startTime);
+            } finally {
+                registration.exit();
+            }
+            return;
+        }
+
+        // Hand off to the type's own threads and go back for the next task
+        try {
+            registration.execute(task, () -> {
+                try {
+                    execute(task, registration, startTime);
+                } finally {
+                    registration.exit();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            registration.exit();
+            System.out.println("[" + workerId + "] Bulkhead full for " + task.getType()
+                + ", deferring: " + task);
+            // Not a failure: back to the database without spending a retry
+            long retryStart = System.nanoTime();
+            scheduleRetry(task, BULKHEAD_FULL_BACKOFF, "bulkhead full");
+            tracer.span(task, TaskTracer.Phase.RETRY_SCHEDULE, retryStart, "bulkhead full");
+        }
+    }
+
+    // Run the handler and record the outcome (on this worker or a bulkhead thread)
+    private void execute(Task task, HandlerRegistry.Registration registration, long startTime) {
+        TaskHandler handler = registration.handler();
+        long timeoutMs = task.getTimeoutMs() > 0 ? task.getTimeoutMs() : handler.getTimeoutMs();
+        long handleStart = System.nanoTime();
+        QueueEvents.HandlerExecution run = QueueEvents.HandlerExecution.start();
         try {
-            handler.handle(task);
+            String result = watchdog.run(task, handler, timeoutMs, registration.hasBulkhead());
+            run.done(task, "completed");
+            tracer.span(task, TaskTracer.Phase.HANDLE, handleStart);
             long duration = System.currentTimeMillis() - startTime;
             task.setStatus(TaskStatus.COMPLETED);
-            taskQueue.removeTask(task.getId());
+            long completeStart = System.nanoTime();
+            taskQueue.completeTask(task, result);
+            tracer.span(task, TaskTracer.Phase.COMPLETE, completeStart);
             metrics.recordSuccess(duration);
             System.out.println("[" + workerId + "] Completed: " + task + " (" + duration + "ms)");
             
+        } catch (CancellationException e) {
+            run.done(task, "cancelled");
+            tracer.span(task, TaskTracer.Phase.HANDLE, handleStart, "cancelled");
+            System.out.println("[" + workerId + "] Cancelled: " + task);
+            metrics.recordCancelled();
+            deadLetterDependents(taskQueue.cancelRunning(task));
+        } catch (InterruptedException e) {
+            run.done(task, "interrupted");
+            tracer.span(task, TaskTracer.Phase.HANDLE, handleStart, "interrupted by shutdown");
+            // Pool is shutting down: keep the task for the next start
+            Thread.currentThread().interrupt();
+            taskQueue.checkpoint(task);
         } catch (Exception e) {
+            run.done(task, e instanceof TimeoutException ? "timed out" : "failed");
+            tracer.span(task, TaskTracer.Phase.HANDLE, handleStart, "failed: " + e.getMessage());
+            if (e instanceof TimeoutException) {
+                metrics.recordTimeout();
+            }
             handleFailure(task, e);
         }
     }
@@ -81,26 +191,60 @@ public class Worker implements Runnable {
         
         if (retryStrategy.shouldRetry(task.getRetryCount(), task.getMaxRetries())) {
             Duration delay = retryStrategy.getDelay(task.getRetryCount());
+            LocalDateTime expiresAt = task.getExpiresAt();
+            if (expiresAt != null && !LocalDateTime.now().plus(delay).isBefore(expiresAt)) {
+                // The retry would only be dropped as expired: drop it now
+                System.out.println("[" + workerId + "] Task failed, deadline passes before retry: " + task);
+                List<Task> dependents = taskQueue.expire(task);
+                if (dependents != null) {
+                    metrics.recordExpired(1);
+                    deadLetterDependents(dependents);
+                }
+                return;
+            }
             System.out.println("[" + workerId + "] Task failed, retry in " + 
                              delay.toMillis() + "ms... " + task);
             
-            try {
-                Thread.sleep(delay.toMillis());
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-            }
-            
-            task.setStatus(TaskStatus.PENDING);
-            taskQueue.submit(task);
+            // Backoff happens in the database, not by sleeping on this thread
+            long retryStart = System.nanoTime();
+            scheduleRetry(task, delay, task.getErrorMessage());
+            tracer.span(task, TaskTracer.Phase.RETRY_SCHEDULE, retryStart, "backoff " + delay.toMillis() + "ms");
         } else {
             System.err.println("[" + workerId + "] Task failed permanently: " + task);
             task.setStatus(TaskStatus.FAILED);
-            taskQueue.updateTask(task);
-            dlq.add(task);
+            deadLetter(task);
+        }
+    }
+
+    private void scheduleRetry(Task task, Duration delay, String reason) {
+        QueueEvents.RetryScheduled event = QueueEvents.RetryScheduled.start();
+        taskQueue.scheduleRetry(task, delay);
+        event.done(task, delay, reason);
+    }
+
+    // Dead-letter a task along with any workflow children that can no longer run
+    private void deadLetter(Task task) {
+        long start = System.nanoTime();
+        List<Task> dependents = taskQueue.failTask(task);
+        dlq.add(task);
+        tracer.span(task, TaskTracer.Phase.DLQ, start, task.getErrorMessage());
+        metrics.recordFailure();
+        deadLetterDependents(dependents);
+    }
+
+    private void deadLetterDependents(List<Task> dependents) {
+        for (Task child : dependents) {
+            dlq.add(child);
             metrics.recordFailure();
         }
     }
 
+    // Time spent on the current task since the given instant (0 if idle)
+    public long busyNanosSince(long since, long now) {
+        long start = busySince;
+        return start == 0 ? 0 : now - Math.max(start, since);
+    }
+
     public void stop() {
         running = false;
     }
@@ -1,60 +1,189 @@
 package com.example.worker;
 
+import com.example.metrics.MetricsCollector;
+import com.example.model.Task;
+import com.example.model.TaskStatus;
 import com.example.queue.DeadLetterQueue;
-import com.example.queue.PersistentTaskQueue;
+import com.example.queue.TaskQueue;
 import com.example.retry.ExponentialBackoff;
 import com.example.retry.RetryStrategy;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WorkerPool {
     
-    private final int poolSize;
-    private final PersistentTaskQueue taskQueue;
+    // Tasks a worker pulls from the shared queue per lock acquisition
+    private static final int DEFAULT_PREFETCH = 4;
+
+    private final TaskQueue taskQueue;
     private final DeadLetterQueue dlq;
-    private final Map<String, TaskHandler> handlers;
+    private final HandlerRegistry handlers;
     private final List<Worker> workers;
     private final RetryStrategy retryStrategy;
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+    private final WorkStealingDispatcher dispatcher;
+    private final TaskWatchdog watchdog;
+    private final PoolAutoscaler autoscaler;
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
     private ExecutorService executor;
+    private ScheduledExecutorService scaler;
+
+    // Fixed-size pool
+    public WorkerPool(int poolSize, TaskQueue taskQueue, DeadLetterQueue dlq) {
+        this(poolSize, poolSize, taskQueue, dlq, DEFAULT_PREFETCH);
+    }
 
-    public WorkerPool(int poolSize, PersistentTaskQueue taskQueue, DeadLetterQueue dlq) {
-        this.poolSize = poolSize;
+    public WorkerPool(int poolSize, TaskQueue taskQueue, DeadLetterQueue dlq, int prefetch) {
+        this(poolSize, poolSize, taskQueue, dlq, prefetch);
+    }
+
+    // Autoscaling pool: starts with minWorkers and grows up to maxWorkers under load
+    public WorkerPool(int minWorkers, int maxWorkers, TaskQueue taskQueue, DeadLetterQueue dlq) {
+        this(minWorkers, maxWorkers, taskQueue, dlq, DEFAULT_PREFETCH);
+    }
+
+    public WorkerPool(int minWorkers, int maxWorkers, TaskQueue taskQueue,
+                      DeadLetterQueue dlq, int prefetch) {
         this.taskQueue = taskQueue;
         this.dlq = dlq;
-        this.handlers = new HashMap<>();
-        this.workers = new ArrayList<>();
+        this.handlers = new HandlerRegistry();
+        taskQueue.setPayloadMerger(handlers::merge);
+        taskQueue.setDeadLetterQueue(dlq);
+        this.workers = new CopyOnWriteArrayList<>();
         this.retryStrategy = new ExponentialBackoff();
+        this.dispatcher = new WorkStealingDispatcher(taskQueue, prefetch);
+        this.watchdog = new TaskWatchdog();
+        this.autoscaler = new PoolAutoscaler(minWorkers, maxWorkers);
     }
 
+    public enum CancelResult { CANCELLED, CANCELLING, NOT_FOUND, ALREADY_FINISHED }
+
+    // Cancel a task wherever it is: queued/delayed/waiting tasks are cancelled
+    // in the database, running ones are interrupted and finish as CANCELLED
+    public CancelResult cancel(String taskId) {
+        Task task = taskQueue.getTask(taskId);
+        if (task == null) return CancelResult.NOT_FOUND;
+
+        if (task.getStatus() == TaskStatus.PENDING || task.getStatus() == TaskStatus.WAITING) {
+            List<Task> dependents = taskQueue.cancelPending(taskId);
+            if (dependents != null) {
+                metrics.recordCancelled();
+                for (Task child : dependents) {
+                    dlq.add(child);
+                    metrics.recordFailure();
+                }
+                return CancelResult.CANCELLED;
+            }
+            // Lost the race with a worker's claim: it is running now
+            task = taskQueue.getTask(taskId);
+            if (task == null) return CancelResult.ALREADY_FINISHED;
+        }
+
+        if (task.getStatus() == TaskStatus.PROCESSING) {
+            // Not running here yet, or it just finished: don't keep the cancel for a finished task
+            if (!watchdog.cancel(taskId) && taskQueue.getTask(taskId) == null) {
+                watchdog.forget(taskId);
+                return CancelResult.ALREADY_FINISHED;
+            }
+            return CancelResult.CANCELLING;
+        }
+        return CancelResult.ALREADY_FINISHED;
+    }
+
+    // Handlers can be registered, replaced or drained while the pool runs
     public void registerHandler(TaskHandler handler) {
-        handlers.put(handler.getTaskType(), handler);
-        System.out.println("[POOL] Registered handler for: " + handler.getTaskType());
+        handlers.register(handler);
+    }
+
+    public HandlerRegistry getHandlers() {
+        return handlers;
+    }
+
+    // Hedging of straggling idempotent handlers: percentile and budget
+    public Hedger getHedger() {
+        return watchdog.getHedger();
     }
 
     public DeadLetterQueue getDeadLetterQueue() {
         return dlq;
     }
 
+    // Tasks prefetched into worker-local deques (not counted by the queue size)
+    public int getBufferedTasks() {
+        return dispatcher.buffered();
+    }
+
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
     public void start() {
-        System.out.println("[POOL] Starting " + poolSize + " workers...");
-        executor = Executors.newFixedThreadPool(poolSize);
+        int initial = autoscaler.getMinWorkers();
+        System.out.println("[POOL] Starting " + initial + " workers...");
+        executor = Executors.newCachedThreadPool();
         
-        for (int i = 1; i <= poolSize; i++) {
-            Worker worker = new Worker("Worker-" + i, taskQueue, dlq, handlers, retryStrategy);
-            workers.add(worker);
-            executor.submit(worker);
+        for (int i = 0; i < initial; i++) {
+            addWorker();
+        }
+        metrics.setActiveWorkers(workers.size());
+
+        if (!autoscaler.isFixed()) {
+            scaler = Executors.newSingleThreadScheduledExecutor();
+            scaler.scheduleAtFixedRate(this::autoscale, 1, 1, TimeUnit.SECONDS);
+            System.out.println("[POOL] Autoscaling between " + autoscaler.getMinWorkers()
+                + " and " + autoscaler.getMaxWorkers() + " workers");
         }
         
         System.out.println("[POOL] All workers started!");
     }
 
+    private void addWorker() {
+        Worker worker = new Worker("Worker-" + nextWorkerId.incrementAndGet(), taskQueue, dispatcher,
+                                   dlq, handlers, retryStrategy, watchdog, autoscaler);
+        workers.add(worker);
+        executor.submit(worker);
+    }
+
+    // Runs once a second on the scaler thread
+    private void autoscale() {
+        try {
+            long now = System.nanoTime();
+            long since = autoscaler.intervalStart();
+            long running = 0;
+            for (Worker worker : workers) {
+                running += worker.busyNanosSince(since, now);
+            }
+            int current = workers.size();
+            int backlog = taskQueue.size() + dispatcher.buffered();
+            int target = autoscaler.decide(current, backlog, running, now);
+            if (target == current) return;
+
+            // Removed workers finish their current task and hand back prefetched ones
+            while (workers.size() < target) addWorker();
+            while (workers.size() > target) workers.remove(workers.size() - 1).stop();
+
+            String reason = autoscaler.getLastReason();
+            metrics.recordScaling(current, target, reason);
+            System.out.println("[POOL] Scaled " + (target > current ? "up" : "down")
+                + " " + current + " -> " + target + " workers (" + reason + ")");
+        } catch (Exception e) {
+            System.err.println("[POOL] Autoscaling failed: " + e.getMessage());
+        }
+    }
+
+    // Graceful drain: stop taking new work, let running tasks finish for up
+    // to 10s, then interrupt the rest (workers checkpoint them as PENDING)
     public void shutdown() {
-        System.out.println("[POOL] Shutting down...");
+        System.out.println("[POOL] Draining...");
+        taskQueue.beginDrain();
+        if (scaler != null) {
+            scaler.shutdownNow();
+        }
         
         for (Worker worker : workers) {
             worker.stop();
@@ -64,10 +193,25 @@ public class WorkerPool {
         try {
             if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
                 executor.shutdownNow();
+                executor.awaitTermination(5, TimeUnit.SECONDS);
             }
         } catch (InterruptedException e) {
             executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // Claimed but still waiting on a bulkhead: kept like interrupted ones
+        try {
+            for (Task task : handlers.shutdown(10, TimeUnit.SECONDS)) {
+                taskQueue.checkpoint(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        // Prefetched but never started: back into the queue for the snapshot
+        taskQueue.requeue(dispatcher.drainBuffered());
+        watchdog.shutdown();
         
         System.out.println("[POOL] Shutdown complete");
     }
@@ -0,0 +1,147 @@
+package com.example.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.PersistentTaskQueue;
+import com.example.queue.StorageException;
+import com.example.worker.TaskHandler;
+import com.example.worker.WorkerPool;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EmbeddedQueueTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue taskQueue;
+    private WorkerPool pool;
+    private EmbeddedQueue embedded;
+
+    private static TaskHandler handler(String type) {
+        return new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return type;
+            }
+
+            @Override
+            public String handle(Task task) throws Exception {
+                if (task.getPayload().equals("fail")) throw new Exception("boom");
+                return type + ":" + task.getPayload();
+            }
+        };
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:embedded-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        taskQueue = new PersistentTaskQueue(db, null, 100);
+        pool = new WorkerPool(2, taskQueue, new DeadLetterQueue());
+        pool.registerHandler(handler("upper"));
+        pool.registerHandler(handler("wrap"));
+        pool.start();
+        embedded = new EmbeddedQueue(taskQueue, pool, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        embedded.close();
+        pool.shutdown();
+        taskQueue.shutdown();
+        db.close();
+    }
+
+    @Test
+    public void futuresChainWithoutPolling() throws Exception {
+        TaskResult result = embedded.submit("upper", "a")
+            .thenCompose(first -> embedded.submit("wrap", first.getResult()))
+            .get(10, TimeUnit.SECONDS);
+        assertEquals(TaskStatus.COMPLETED, result.getStatus());
+        assertEquals("wrap:upper:a", result.getResult());
+    }
+
+    @Test
+    public void deadLetteredTaskCompletesItsFuture() throws Exception {
+        TaskResult result = embedded.submit(new Task("upper", "fail", 0)).get(10, TimeUnit.SECONDS);
+        assertEquals(TaskStatus.FAILED, result.getStatus());
+        assertEquals("boom", result.getErrorMessage());
+    }
+
+    private static Throwable failureOf(CompletableFuture<TaskResult> outcome) throws Exception {
+        try {
+            outcome.get(1, TimeUnit.SECONDS);
+            throw new AssertionError("expected the submit to fail");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void failedSubmitsFailTheirFutures() throws Exception {
+        Task orphan = new Task("upper", "a");
+        orphan.setParentIds(List.of("deadbeef"));
+        assertTrue(failureOf(embedded.submit(orphan)) instanceof IllegalArgumentException);
+
+        db.close();
+        assertTrue(failureOf(embedded.submit("upper", "b")) instanceof StorageException);
+        for (CompletableFuture<TaskResult> outcome : embedded.submitAll(List.of(
+                new Task("upper", "c"), new Task("wrap", "d")))) {
+            assertTrue(failureOf(outcome) instanceof StorageException);
+        }
+    }
+
+    @Test
+    public void completionsFollowSubscriberDemand() throws Exception {
+        BlockingQueue<TaskResult> received = new LinkedBlockingQueue<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        embedded.completions().subscribe(new Flow.Subscriber<TaskResult>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(TaskResult item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        List<CompletableFuture<TaskResult>> outcomes = embedded.submitAll(List.of(
+            new Task("upper", "1"), new Task("upper", "2"), new Task("upper", "3")));
+        CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        // The other two are buffered until requested
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        subscription[0].request(2);
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, embedded.getDroppedEvents());
+    }
+}
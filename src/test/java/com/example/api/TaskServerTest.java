@@ -0,0 +1,134 @@
+package com.example.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.PersistentTaskQueue;
+import com.example.worker.WorkerPool;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// The pre-encoded views (/dlq here): ETag revalidation, rebuilds and gzip
+public class TaskServerTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final DeadLetterQueue dlq = new DeadLetterQueue();
+    private DatabaseManager db;
+    private PersistentTaskQueue taskQueue;
+    private TaskServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:server-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        taskQueue = new PersistentTaskQueue(db, null, 100);
+        server = new TaskServer(0, taskQueue, dlq, new WorkerPool(1, taskQueue, dlq));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        taskQueue.shutdown();
+        db.close();
+    }
+
+    private HttpResponse<byte[]> getDlq(String header, String value) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+            URI.create("http://localhost:" + server.port() + "/dlq"));
+        if (header != null) request.header(header, value);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private int submit(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + server.port() + "/tasks/submit"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static Task failed(String payload) {
+        Task task = new Task("email", payload);
+        task.setErrorMessage("smtp down");
+        return task;
+    }
+
+    @Test
+    public void etagRevalidatesUntilTheContentChanges() throws Exception {
+        HttpResponse<byte[]> first = getDlq(null, null);
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+
+        HttpResponse<byte[]> unchanged = getDlq("If-None-Match", etag);
+        assertEquals(304, unchanged.statusCode());
+        assertEquals(0, unchanged.body().length);
+
+        Task task = failed("user@example.com");
+        dlq.add(task);
+        HttpResponse<byte[]> rebuilt = getDlq("If-None-Match", etag);
+        assertEquals(200, rebuilt.statusCode());
+        assertNotEquals(etag, rebuilt.headers().firstValue("ETag").orElse(null));
+        assertTrue(new String(rebuilt.body(), StandardCharsets.UTF_8).contains(task.getId()));
+    }
+
+    @Test
+    public void bodiesFromOneKilobyteAreGzipped() throws Exception {
+        dlq.add(failed("small"));
+        HttpResponse<byte[]> small = getDlq("Accept-Encoding", "gzip");
+        assertTrue(small.body().length < 1024);
+        assertFalse(small.headers().firstValue("Content-Encoding").isPresent());
+
+        for (int i = 0; i < 20; i++) dlq.add(failed("user" + i + "@example.com"));
+        HttpResponse<byte[]> plain = getDlq(null, null);
+        assertTrue(plain.body().length >= 1024);
+        assertFalse(plain.headers().firstValue("Content-Encoding").isPresent());
+
+        HttpResponse<byte[]> zipped = getDlq("Accept-Encoding", "gzip");
+        assertEquals("gzip", zipped.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(zipped.body().length < plain.body().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(zipped.body()))) {
+            assertEquals(new String(plain.body(), StandardCharsets.UTF_8),
+                new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(plain.headers().firstValue("ETag"), zipped.headers().firstValue("ETag"));
+    }
+
+    @Test
+    public void deadlinesBeyondAYearAreRejected() throws Exception {
+        String task = "\"type\":\"email\",\"payload\":\"user@example.com\"";
+        assertEquals(400, submit("{" + task + ",\"ttl\":\"9223372036854775807\"}"));
+        assertEquals(400, submit("{" + task + ",\"delay\":\"9223372036854775807\"}"));
+        assertEquals(400, submit("{" + task + ",\"coalesceKey\":\"k\",\"debounceMs\":\"9223372036854775807\"}"));
+        assertEquals(400, submit("{" + task + ",\"delay\":\"-1\"}"));
+        assertEquals(201, submit("{" + task + ",\"ttl\":\"31536000\"}"));
+    }
+
+    @Test
+    public void invalidParentIdsAreRejected() throws Exception {
+        String task = "\"type\":\"email\",\"payload\":\"user@example.com\"";
+        assertEquals(400, submit("{" + task + ",\"parentIds\":[null]}"));
+        assertEquals(400, submit("{" + task + ",\"parentIds\":[\"\"]}"));
+        assertEquals(400, submit("{" + task + ",\"parentIds\":[\"abc\",\"abc\"]}"));
+
+        StringBuilder parents = new StringBuilder();
+        for (int i = 0; i < 101; i++) parents.append(i > 0 ? "," : "").append(String.format("\"%08d\"", i));
+        assertEquals(400, submit("{" + task + ",\"parentIds\":[" + parents + "]}"));
+    }
+}
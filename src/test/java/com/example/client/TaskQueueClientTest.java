@@ -0,0 +1,164 @@
+package com.example.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.api.TaskServer;
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.PersistentTaskQueue;
+import com.example.worker.WorkerPool;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskQueueClientTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue taskQueue;
+    private TaskServer server;
+    private String baseUrl;
+    // Batch saves that fail before the database "comes back"
+    private final AtomicInteger failingSaves = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:client-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1") {
+            @Override
+            public List<Task> saveAll(List<Task> tasks) throws SQLException {
+                if (failingSaves.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new SQLException("Connection is broken");
+                }
+                return super.saveAll(tasks);
+            }
+        };
+        db.init();
+        taskQueue = new PersistentTaskQueue(db, null, 1_000);
+        // Workers are not started: submitted tasks stay in the database
+        WorkerPool pool = new WorkerPool(1, taskQueue, new DeadLetterQueue());
+        server = new TaskServer(0, taskQueue, new DeadLetterQueue(), pool);
+        baseUrl = "http://localhost:" + server.port();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        taskQueue.shutdown();
+        db.close();
+    }
+
+    @Test
+    public void batchesSubmissionsAndReturnsTaskIds() throws Exception {
+        List<CompletableFuture<String>> ids = new ArrayList<>();
+        try (TaskQueueClient client = new TaskQueueClient(baseUrl).batchSize(100).maxInFlight(2)) {
+            for (int i = 0; i < 250; i++) {
+                ids.add(client.submit(TaskSpec.of("email", "user-" + i).withTenant("acme")));
+            }
+        }
+        Set<String> distinct = new HashSet<>();
+        for (CompletableFuture<String> id : ids) {
+            String taskId = id.get(5, TimeUnit.SECONDS);
+            distinct.add(taskId);
+            assertEquals("acme", db.getTask(taskId).getTenant());
+        }
+        assertEquals(250, distinct.size());
+    }
+
+    @Test
+    public void lingerFlushesAPartialBatch() throws Exception {
+        try (TaskQueueClient client = new TaskQueueClient(baseUrl).linger(Duration.ofMillis(20))) {
+            String taskId = client.submit("email", "alone").get(5, TimeUnit.SECONDS);
+            assertNotNull(db.getTask(taskId));
+        }
+    }
+
+    @Test
+    public void retryWithTheSameKeyIsNotSubmittedTwice() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/tasks/batch"))
+            .header("Content-Type", "application/json")
+            .header("Idempotency-Key", "batch-1")
+            .POST(HttpRequest.BodyPublishers.ofString("[{\"type\":\"email\",\"payload\":\"a\"}]"))
+            .build();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            HttpResponse<String> first = http.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> retry = http.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, first.statusCode());
+            assertEquals(201, retry.statusCode());
+            assertEquals(first.body(), retry.body());
+            assertEquals("true", retry.headers().firstValue("Idempotent-Replay").orElse(null));
+        }
+        assertEquals(1, db.getAllTasks().size());
+    }
+
+    @Test
+    public void fractionalTimeoutsRoundUpToWholeSeconds() {
+        assertEquals("2", TaskSpec.of("email", "a").withTimeout(Duration.ofMillis(1900)).toRequest().get("timeout"));
+        assertEquals("1", TaskSpec.of("email", "a").withTimeout(Duration.ofMillis(1)).toRequest().get("timeout"));
+        assertEquals("3", TaskSpec.of("email", "a").withTimeout(Duration.ofSeconds(3)).toRequest().get("timeout"));
+        assertEquals("Invalid timeout value", TaskSpec.of("email", "a").withTimeout(Duration.ZERO).validate());
+        assertEquals("Invalid timeout value",
+            TaskSpec.of("email", "a").withTimeout(Duration.ofDays(1).plusMillis(1)).validate());
+    }
+
+    @Test
+    public void storageFailuresAreRetriedUntilStored() throws Exception {
+        failingSaves.set(2);
+        List<CompletableFuture<String>> ids = new ArrayList<>();
+        try (TaskQueueClient client = new TaskQueueClient(baseUrl)) {
+            for (int i = 0; i < 3; i++) ids.add(client.submit("email", "user-" + i));
+        }
+        assertEquals(0, failingSaves.get());
+        Set<String> stored = new HashSet<>();
+        for (Task task : db.getAllTasks()) stored.add(task.getId());
+        assertEquals(3, stored.size());
+        for (CompletableFuture<String> id : ids) assertTrue(stored.contains(id.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void transientFailuresAreRetriedWithTheSameKey() throws Exception {
+        List<String> keys = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer flaky = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        flaky.createContext("/tasks/batch", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            keys.add(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+            boolean fail = calls.incrementAndGet() < 3;
+            byte[] body = (fail ? "{\"status\":\"error\",\"message\":\"Server is draining\"}"
+                : "{\"status\":\"success\",\"taskIds\":[\"t1\",\"t2\"]}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(fail ? 503 : 201, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        flaky.start();
+        try (TaskQueueClient client = new TaskQueueClient("http://localhost:" + flaky.getAddress().getPort())) {
+            CompletableFuture<String> first = client.submit("email", "a");
+            CompletableFuture<String> second = client.submit("email", "b");
+            assertEquals("t1", first.get(5, TimeUnit.SECONDS));
+            assertEquals("t2", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            flaky.stop(0);
+        }
+        assertEquals(3, keys.size());
+        assertEquals(1, new HashSet<>(keys).size());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import com.example.queue.PersistentTaskQueue;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedDatabaseManagerTest {
+
+    private static final int SHARDS = 4;
+
+    private final List<String> urls = new ArrayList<>();
+    private ShardedDatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        String name = UUID.randomUUID().toString();
+        for (int i = 0; i < SHARDS; i++) {
+            urls.add("jdbc:h2:mem:shard-" + name + "-" + i + ";DB_CLOSE_DELAY=-1");
+        }
+        db = new ShardedDatabaseManager(urls);
+        db.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("email", "user" + i + "@example.com");
+            task.setExecuteAt(LocalDateTime.now().minusSeconds(count - i));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Test
+    public void tasksSpreadOverShardsAndReadBackAsOne() throws Exception {
+        List<Task> tasks = tasks(200);
+        assertEquals(200, db.saveAll(tasks).size());
+
+        // Every shard holds its own share
+        for (String url : urls) {
+            DatabaseManager shard = new DatabaseManager(url);
+            shard.init();
+            int held = shard.getAllTasks().size();
+            assertTrue(held > 20 && held < 100);
+        }
+        assertEquals(200, db.getAllTasks().size());
+        assertEquals(Integer.valueOf(200), db.countUnfinishedByTenant().get("default"));
+
+        // Oldest first across shards
+        List<Task> oldest = db.getPendingTasks("default", 50);
+        for (int i = 0; i < 50; i++) assertEquals(tasks.get(i).getId(), oldest.get(i).getId());
+
+        for (Task task : tasks) assertTrue(db.claim(task.getId()));
+        assertEquals(200, db.resetStranded());
+    }
+
+    @Test
+    public void workflowChildrenWaitForParentsInOtherShards() throws Exception {
+        List<Task> parents = tasks(8);
+        db.saveAll(parents);
+        Task child = new Task("report", "summary");
+        child.setParentIds(parents.stream().map(Task::getId).toList());
+        assertEquals(List.of(), db.saveAll(List.of(child)));
+        assertEquals(TaskStatus.WAITING, db.getTask(child.getId()).getStatus());
+
+        for (int i = 0; i < 7; i++) {
+            assertEquals(List.of(), db.completeAndRelease(parents.get(i).getId()));
+            assertNull(db.getTask(parents.get(i).getId()));
+        }
+        List<Task> released = db.completeAndRelease(parents.get(7).getId());
+        assertEquals(child.getId(), released.get(0).getId());
+        assertTrue(db.claim(child.getId()));
+
+        // A child of a failed parent fails with it
+        Task parent = tasks(1).get(0);
+        Task orphan = new Task("report", "orphan");
+        orphan.setParentIds(List.of(parent.getId()));
+        db.saveAll(List.of(parent, orphan));
+        assertEquals(orphan.getId(), db.failDependents(parent.getId()).get(0).getId());
+        assertEquals(TaskStatus.FAILED, db.getTask(orphan.getId()).getStatus());
+    }
+
+    @Test
+    public void sweepsDrainEveryShard() throws Exception {
+        List<Task> tasks = tasks(30);
+        for (Task task : tasks) task.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        db.saveAll(tasks);
+
+        // As the expiry sweep loops: up to the limit per shard, until fewer come back
+        int expired = 0;
+        List<Task> batch;
+        do {
+            batch = db.expireDue(LocalDateTime.now(), 5);
+            expired += batch.size();
+        } while (batch.size() >= 5);
+        assertEquals(30, expired);
+        assertEquals(30, db.getTasksByStatus(TaskStatus.CANCELLED).size());
+    }
+
+    @Test
+    public void queueRecoversAcrossShards() throws Exception {
+        List<Task> tasks = tasks(40);
+        db.saveAll(tasks);
+        for (Task task : tasks) db.claim(task.getId());
+
+        PersistentTaskQueue queue = new PersistentTaskQueue(db, null, 100);
+        try {
+            // A refill can page in a task that finishes meanwhile: its claim fails, as for a worker
+            int completed = 0;
+            while (completed < 40) {
+                Task task = queue.poll(2, TimeUnit.SECONDS);
+                if (!queue.claim(task)) continue;
+                queue.completeTask(task, "sent");
+                completed++;
+            }
+            assertEquals(0, db.getAllTasks().size());
+            assertEquals("sent", db.getResult(tasks.get(0).getId()).getResult());
+        } finally {
+            queue.shutdown();
+        }
+    }
+}
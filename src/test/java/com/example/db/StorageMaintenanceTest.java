@@ -0,0 +1,83 @@
+package com.example.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StorageMaintenanceTest {
+
+    private Path dir;
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("javaqueue-test");
+        db = new DatabaseManager("jdbc:h2:" + dir.resolve("db") + ";DB_CLOSE_ON_EXIT=FALSE");
+        db.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+        try (var files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private Task failed() throws Exception {
+        Task task = new Task("email", "x@y.z");
+        db.save(task);
+        task.setStatus(TaskStatus.FAILED);
+        task.setErrorMessage("SMTP server timeout");
+        db.update(task);
+        return task;
+    }
+
+    @Test
+    public void archivesFinishedTasksOutOfTheHotTable() throws Exception {
+        Task failed = failed();
+        Task pending = new Task("email", "a@b.c");
+        db.save(pending);
+
+        // Not old enough yet
+        assertEquals(0, db.archiveFinished(LocalDateTime.now().minusMinutes(1), 10));
+        assertEquals(1, db.archiveFinished(LocalDateTime.now().plusSeconds(1), 10));
+
+        assertEquals(List.of(pending.getId()),
+                     db.getAllTasks().stream().map(Task::getId).toList());
+        // Still visible by ID, and still fails children submitted later
+        assertEquals(TaskStatus.FAILED, db.getTask(failed.getId()).getStatus());
+        Task child = new Task("report", "r");
+        child.setParentIds(List.of(failed.getId()));
+        assertTrue(db.saveAll(List.of(child)).isEmpty());
+        assertEquals(TaskStatus.FAILED, child.getStatus());
+    }
+
+    @Test
+    public void purgesArchivedTasksPastRetention() throws Exception {
+        Task failed = failed();
+        db.archiveFinished(LocalDateTime.now().plusSeconds(1), 10);
+
+        assertEquals(0, db.purgeArchive(TaskStatus.CANCELLED, LocalDateTime.now().plusSeconds(1), 10));
+        assertEquals(1, db.purgeArchive(TaskStatus.FAILED, LocalDateTime.now().plusSeconds(1), 10));
+        assertNull(db.getTask(failed.getId()));
+    }
+
+    @Test
+    public void compactionReopensTheDatabase() throws Exception {
+        Task pending = new Task("email", "a@b.c");
+        db.save(pending);
+        assertTrue(db.compact());
+        assertEquals(pending.getId(), db.getTask(pending.getId()).getId());
+    }
+}
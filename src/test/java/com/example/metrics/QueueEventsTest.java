@@ -0,0 +1,122 @@
+package com.example.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.queue.DeadLetterQueue;
+import com.example.queue.PersistentTaskQueue;
+import com.example.worker.TaskHandler;
+import com.example.worker.WorkerPool;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueueEventsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+    private FlightRecording recording;
+    private DatabaseManager db;
+    private PersistentTaskQueue queue;
+    private WorkerPool pool;
+    private final DeadLetterQueue dlq = new DeadLetterQueue();
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.getRoot().toPath();
+        recording = new FlightRecording(dir);
+        db = new DatabaseManager("jdbc:h2:mem:jfr-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        queue = new PersistentTaskQueue(db, null, 100);
+        pool = new WorkerPool(1, queue, dlq);
+        pool.registerHandler(new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return "report";
+            }
+
+            @Override
+            public String handle(Task task) throws Exception {
+                if (task.getPayload().equals("broken")) throw new Exception("template missing");
+                return "ok";
+            }
+        });
+        pool.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        recording.stop();
+        pool.shutdown();
+        queue.shutdown();
+        db.close();
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+    }
+
+    @Test
+    public void recordingCapturesQueueInternals() throws Exception {
+        assertTrue(recording.start("profile"));
+        assertFalse(recording.start("profile"));
+
+        Task ok = new Task("report", "q3");
+        Task broken = new Task("report", "broken", 0);
+        queue.submitAll(List.of(ok, broken));
+        queue.getResults().await(ok.getId()).get(10, TimeUnit.SECONDS);
+        // Dead-lettered just after its result is published
+        for (int i = 0; i < 100 && dlq.isEmpty(); i++) Thread.sleep(50);
+
+        Path file = recording.stop();
+        assertNotNull(file);
+        assertFalse(recording.status().running());
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        assertTrue(named(events, "javaqueue.TaskDequeue").stream()
+            .anyMatch(e -> e.getString("taskId").equals(ok.getId())));
+        List<String> outcomes = named(events, "javaqueue.HandlerExecution").stream()
+            .map(e -> e.getString("outcome")).toList();
+        assertTrue(outcomes.contains("completed"));
+        assertTrue(outcomes.contains("failed"));
+        RecordedEvent dead = named(events, "javaqueue.DeadLetter").get(0);
+        assertEquals(broken.getId(), dead.getString("taskId"));
+        assertEquals("template missing", dead.getString("reason"));
+        assertTrue(named(events, "javaqueue.DbStatement").stream()
+            .anyMatch(e -> e.getString("operation").equals("claim")
+                && e.getString("kind").equals("UPDATE") && e.getInt("rows") == 1));
+        assertTrue(named(events, "javaqueue.SchedulerSweep").stream()
+            .anyMatch(e -> e.getString("sweep").equals("refill")));
+    }
+
+    @Test
+    public void dumpKeepsRecording() throws Exception {
+        assertNull(recording.dump());
+        recording.start("default");
+        Path first = recording.dump();
+        assertTrue(Files.size(first) > 0);
+        assertTrue(recording.status().running());
+        assertEquals("default", recording.status().settings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSettingsAreRejected() throws Exception {
+        recording.start("verbose");
+    }
+}
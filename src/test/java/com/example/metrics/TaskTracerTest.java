@@ -0,0 +1,64 @@
+package com.example.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.model.Task;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Test;
+
+public class TaskTracerTest {
+
+    @Test
+    public void recordsPhasesInOrder() {
+        TaskTracer tracer = new TaskTracer();
+        tracer.setSampleRate(1);
+        Task task = new Task("email", "x@y.z");
+        tracer.span(task, TaskTracer.Phase.PERSIST, System.nanoTime());
+        tracer.enqueued(task);
+        tracer.dequeued(task);
+        tracer.span(task, TaskTracer.Phase.HANDLE, System.nanoTime(), "failed: boom");
+
+        TaskTracer.TraceView trace = tracer.get(task.getId());
+        List<String> phases = trace.spans().stream().map(TaskTracer.SpanView::phase).toList();
+        assertEquals(List.of("PERSIST", "ENQUEUE", "DEQUEUE", "HANDLE"), phases);
+        assertEquals("failed: boom", trace.spans().get(3).detail());
+    }
+
+    @Test
+    public void unsampledTasksAreNotTraced() {
+        TaskTracer tracer = new TaskTracer();
+        tracer.setSampleRate(0);
+        Task task = new Task("email", "x@y.z");
+        tracer.span(task, TaskTracer.Phase.PERSIST, System.nanoTime());
+        assertNull(tracer.get(task.getId()));
+    }
+
+    @Test
+    public void exportsOtlpJson() throws Exception {
+        TaskTracer tracer = new TaskTracer();
+        tracer.setSampleRate(1);
+        Task task = new Task("email", "x@y.z");
+        tracer.span(task, TaskTracer.Phase.PERSIST, System.nanoTime());
+        tracer.span(task, TaskTracer.Phase.HANDLE, System.nanoTime());
+
+        Path file = Files.createTempFile("traces", ".jsonl");
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            assertEquals(1, tracer.exportOtlp(file, mapper));
+            JsonNode spans = mapper.readTree(Files.readAllLines(file).get(0))
+                .at("/resourceSpans/0/scopeSpans/0/spans");
+            // Root span plus one child per phase
+            assertEquals(3, spans.size());
+            assertEquals(32, spans.get(0).get("traceId").asText().length());
+            assertEquals(spans.get(0).get("spanId"), spans.get(1).get("parentSpanId"));
+            assertEquals("handle", spans.get(2).get("name").asText());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescingTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:coalesce-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        queue = new PersistentTaskQueue(db, null, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        db.close();
+    }
+
+    private static Task keyed(String payload, String key, long debounceMs) {
+        Task task = new Task("report", payload);
+        task.setCoalesceKey(key);
+        task.setExecuteAt(LocalDateTime.now().plus(Duration.ofMillis(debounceMs)));
+        return task;
+    }
+
+    @Test
+    public void burstCollapsesIntoOneTaskWithTheLatestPayload() throws Exception {
+        Task first = keyed("v0", "report-42", 300);
+        queue.submit(first);
+        for (int i = 1; i < 50; i++) {
+            Task again = keyed("v" + i, "report-42", 300);
+            queue.submit(again);
+            assertEquals(first.getId(), again.getCoalescedInto());
+        }
+        queue.submit(keyed("other", "report-7", 300));
+
+        assertEquals(2, db.getAllTasks().size());
+        assertEquals("v49", db.getTask(first.getId()).getPayload());
+        assertEquals(49, queue.getCoalesced());
+
+        // Paged in once the window passes, with the merged payload
+        Task polled = queue.poll(3, TimeUnit.SECONDS);
+        assertNotNull(polled);
+        if (!polled.getId().equals(first.getId())) polled = queue.poll(3, TimeUnit.SECONDS);
+        assertTrue(queue.claim(polled));
+        assertEquals("v49", polled.getPayload());
+    }
+
+    @Test
+    public void mergeFunctionCombinesPayloads() throws Exception {
+        queue.setPayloadMerger((type, pending, incoming) -> pending + "," + incoming);
+        Task first = keyed("a", "digest", 60_000);
+        queue.submit(first);
+        queue.submitAll(List.of(keyed("b", "digest", 0), keyed("c", "digest", 0)));
+        assertEquals("a,b,c", db.getTask(first.getId()).getPayload());
+    }
+
+    @Test
+    public void claimedTaskNoLongerAbsorbsSubmits() throws Exception {
+        Task first = keyed("v1", "report-42", 0);
+        queue.submit(first);
+        Task polled = queue.poll(2, TimeUnit.SECONDS);
+        assertTrue(queue.claim(polled));
+
+        Task second = keyed("v2", "report-42", 0);
+        queue.submit(second);
+        assertNull(second.getCoalescedInto());
+        assertEquals("v1", polled.getPayload());
+        assertEquals(TaskStatus.PENDING, db.getTask(second.getId()).getStatus());
+    }
+
+    @Test
+    public void cancelledTaskReleasesItsKey() throws Exception {
+        Task first = keyed("v1", "report-42", 60_000);
+        queue.submit(first);
+        assertEquals(List.of(), queue.cancelPending(first.getId()));
+
+        Task second = keyed("v2", "report-42", 60_000);
+        queue.submit(second);
+        assertNull(second.getCoalescedInto());
+    }
+
+    @Test
+    public void keyIndexIsRebuiltOnRestart() throws Exception {
+        Task first = keyed("v1", "report-42", 60_000);
+        queue.submit(first);
+        queue.shutdown();
+
+        queue = new PersistentTaskQueue(db, null, 100);
+        Task second = keyed("v2", "report-42", 60_000);
+        queue.submit(second);
+        assertEquals(first.getId(), second.getCoalescedInto());
+        assertEquals("v2", db.getTask(first.getId()).getPayload());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DurabilityTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DatabaseManager db;
+    private Path dir;
+    private PersistentTaskQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:durability-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        dir = folder.getRoot().toPath();
+        queue = new PersistentTaskQueue(db, dir.resolve("queue.snapshot"), 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        db.close();
+    }
+
+    private Task next() throws InterruptedException {
+        Task task = queue.poll(2000, TimeUnit.MILLISECONDS);
+        assertNotNull(task);
+        assertTrue(queue.claim(task));
+        return task;
+    }
+
+    @Test
+    public void memoryOnlyTasksNeverTouchTheDatabase() throws Exception {
+        queue.setDurability("thumbnail", Durability.MEMORY_ONLY);
+        Task task = new Task("thumbnail", "img-1");
+        queue.submit(task);
+        assertNull(db.getTask(task.getId()));
+        assertNotNull(queue.getTask(task.getId()));
+
+        // Retried in memory, then completed
+        queue.scheduleRetry(next(), Duration.ofMillis(50));
+        Task retried = next();
+        assertEquals(task.getId(), retried.getId());
+        queue.completeTask(retried, "done");
+
+        assertNull(queue.getTask(task.getId()));
+        assertEquals("done", queue.getResults().get(task.getId()).getResult());
+        assertNull(db.getResult(task.getId()));
+    }
+
+    @Test
+    public void cancelledMemoryTaskIsDroppedAtClaim() throws Exception {
+        queue.setDurability("thumbnail", Durability.MEMORY_ONLY);
+        Task task = new Task("thumbnail", "img-1");
+        queue.submit(task);
+
+        assertEquals(List.of(), queue.cancelPending(task.getId()));
+        Task polled = queue.poll(200, TimeUnit.MILLISECONDS);
+        assertFalse(queue.claim(polled));
+        assertEquals(TaskStatus.CANCELLED, queue.getResults().get(task.getId()).getStatus());
+    }
+
+    @Test
+    public void groupCommitPersistsEveryConcurrentSubmit() throws Exception {
+        queue.setDurability("email", Durability.GROUP_COMMIT);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) tasks.add(new Task("email", "user-" + i));
+
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        for (Task task : tasks) submitters.execute(() -> queue.submit(task));
+        submitters.shutdown();
+        assertTrue(submitters.awaitTermination(10, TimeUnit.SECONDS));
+
+        // submit() only returns once the shared commit is done
+        for (Task task : tasks) assertNotNull(db.getTask(task.getId()));
+    }
+
+    @Test
+    public void asyncSnapshotTasksSurviveARestart() throws Exception {
+        queue.setDurability("digest", Durability.ASYNC_SNAPSHOT);
+        Task ready = new Task("digest", "now");
+        Task delayed = new Task("digest", "later");
+        queue.submit(ready);
+        queue.submitDelayed(delayed, 3600);
+        assertNull(db.getTask(ready.getId()));
+
+        queue.shutdown();
+        queue = new PersistentTaskQueue(db, dir.resolve("queue.snapshot"), 100);
+        queue.setDurability("digest", Durability.ASYNC_SNAPSHOT);
+
+        assertEquals(ready.getId(), next().getId());
+        assertEquals(TaskStatus.PENDING, queue.getTask(delayed.getId()).getStatus());
+        assertNull(db.getTask(delayed.getId()));
+    }
+
+    @Test
+    public void inMemoryQueueRunsTheLifecycleWithoutADatabase() throws Exception {
+        InMemoryTaskQueue memory = new InMemoryTaskQueue(dir.resolve("memory-only.snapshot"),
+                                                         Duration.ofSeconds(60));
+        Task task = new Task("thumbnail", "img-1");
+        memory.submit(task);
+        assertTrue(memory.claim(memory.poll(200, TimeUnit.MILLISECONDS)));
+        // Interrupted by shutdown: kept for the next start
+        memory.checkpoint(task);
+        memory.shutdown();
+
+        InMemoryTaskQueue restarted = new InMemoryTaskQueue(dir.resolve("memory-only.snapshot"),
+                                                            Duration.ofSeconds(60));
+        Task restored = restarted.poll(200, TimeUnit.MILLISECONDS);
+        assertEquals(task.getId(), restored.getId());
+        assertTrue(restarted.claim(restored));
+        restarted.completeTask(restored, null);
+        assertNull(restarted.getTask(task.getId()));
+        restarted.shutdown();
+    }
+
+    @Test
+    public void expiredMemoryTaskIsNotRestoredFromTheSnapshot() throws Exception {
+        InMemoryTaskQueue memory = new InMemoryTaskQueue(dir.resolve("memory-only.snapshot"),
+                                                         Duration.ofSeconds(60));
+        Task stale = new Task("otp", "123456");
+        stale.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(50)));
+        Task fresh = new Task("otp", "654321");
+        fresh.setExpiresAt(LocalDateTime.now().plusMinutes(1));
+        memory.submit(stale);
+        memory.submit(fresh);
+        Thread.sleep(100);
+
+        Task polled = memory.poll(200, TimeUnit.MILLISECONDS);
+        assertEquals(stale.getId(), polled.getId());
+        assertNotNull(memory.expire(polled));
+        assertNull(memory.getTask(stale.getId()));
+        memory.shutdown();
+
+        InMemoryTaskQueue restarted = new InMemoryTaskQueue(dir.resolve("memory-only.snapshot"),
+                                                            Duration.ofSeconds(60));
+        assertEquals(fresh.getId(), restarted.poll(200, TimeUnit.MILLISECONDS).getId());
+        assertNull(restarted.poll(200, TimeUnit.MILLISECONDS));
+        assertNull(restarted.getTask(stale.getId()));
+        restarted.shutdown();
+    }
+}
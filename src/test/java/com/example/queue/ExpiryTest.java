@@ -0,0 +1,130 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.db.DatabaseManager;
+import com.example.metrics.MetricsCollector;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import com.example.worker.TaskHandler;
+import com.example.worker.WorkerPool;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiryTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue queue;
+    private WorkerPool pool;
+    private DeadLetterQueue dlq;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:expiry-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        queue = new PersistentTaskQueue(db, null, 100);
+        dlq = new DeadLetterQueue();
+        pool = new WorkerPool(1, queue, dlq);
+        pool.registerHandler(new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return "otp";
+            }
+
+            @Override
+            public String handle(Task task) throws Exception {
+                runs.incrementAndGet();
+                if (task.getPayload().equals("fail")) throw new Exception("smtp down");
+                return "sent";
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        queue.shutdown();
+        db.close();
+    }
+
+    private static Task otp(String payload, long ttlMs) {
+        Task task = new Task("otp", payload);
+        task.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(ttlMs)));
+        return task;
+    }
+
+    private TaskResult await(Task task) throws Exception {
+        return queue.getResults().await(task.getId()).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sweepCancelsExpiredBacklogAndFailsDependents() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // Not ready yet, so only the sweep can reach them
+            Task task = otp("code-" + i, 50);
+            task.setExecuteAt(LocalDateTime.now().plusMinutes(5));
+            tasks.add(task);
+        }
+        Task child = new Task("otp", "after");
+        child.setParentIds(List.of(tasks.get(0).getId()));
+        tasks.add(child);
+        Task fresh = otp("fresh", 60_000);
+        fresh.setExecuteAt(LocalDateTime.now().plusMinutes(5));
+        tasks.add(fresh);
+        queue.submitAll(tasks);
+        pool.start();
+
+        long expiredBefore = MetricsCollector.getInstance().getTasksExpired();
+        Thread.sleep(100);
+        queue.expireDue();
+
+        for (int i = 0; i < 3; i++) {
+            Task expired = db.getTask(tasks.get(i).getId());
+            assertEquals(TaskStatus.CANCELLED, expired.getStatus());
+            assertEquals("Expired", expired.getErrorMessage());
+        }
+        assertEquals(TaskStatus.FAILED, db.getTask(child.getId()).getStatus());
+        assertEquals(child.getId(), dlq.getAll().get(0).getId());
+        assertEquals(TaskStatus.PENDING, db.getTask(fresh.getId()).getStatus());
+        assertEquals(3, MetricsCollector.getInstance().getTasksExpired() - expiredBefore);
+        assertEquals(TaskStatus.CANCELLED, queue.getResults().get(tasks.get(1).getId()).getStatus());
+    }
+
+    @Test
+    public void expiredTaskIsSkippedAtDequeue() throws Exception {
+        Task task = otp("123456", 100);
+        queue.submit(task);
+        Thread.sleep(150);
+        pool.start();
+
+        TaskResult result = await(task);
+        assertEquals(TaskStatus.CANCELLED, result.getStatus());
+        assertEquals("Expired", result.getErrorMessage());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void retryDueAfterTheDeadlineIsDropped() throws Exception {
+        // The first backoff is 1s; the deadline comes sooner
+        Task task = otp("fail", 500);
+        queue.submit(task);
+        pool.start();
+
+        TaskResult result = await(task);
+        assertEquals(TaskStatus.CANCELLED, result.getStatus());
+        assertEquals("Expired", result.getErrorMessage());
+        assertEquals(1, runs.get());
+        assertEquals(TaskStatus.CANCELLED, db.getTask(task.getId()).getStatus());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.model.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FairTaskQueueTest {
+
+    private static Task task(String tenant) {
+        Task task = new Task("test", tenant);
+        task.setTenant(tenant);
+        return task;
+    }
+
+    private static String tenants(List<Task> tasks) {
+        StringBuilder sb = new StringBuilder();
+        for (Task task : tasks) sb.append(task.getTenant());
+        return sb.toString();
+    }
+
+    @Test
+    public void bulkTenantDoesNotStarveOthers() {
+        FairTaskQueue queue = new FairTaskQueue(new TenantRegistry());
+        for (int i = 0; i < 1000; i++) queue.offer(task("a"));
+        queue.offer(task("b"));
+        queue.offer(task("b"));
+        queue.offer(task("c"));
+
+        List<Task> dispatched = new ArrayList<>();
+        queue.drainTo(dispatched, 6);
+        assertEquals("abcaba", tenants(dispatched));
+        assertEquals(997, queue.size());
+    }
+
+    @Test
+    public void weightsSetTheShare() {
+        TenantRegistry registry = new TenantRegistry();
+        registry.setWeight("a", 3);
+        FairTaskQueue queue = new FairTaskQueue(registry);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(task("a"));
+            queue.offer(task("b"));
+        }
+
+        List<Task> dispatched = new ArrayList<>();
+        queue.drainTo(dispatched, 8);
+        assertEquals("aaabaaab", tenants(dispatched));
+    }
+
+    @Test
+    public void keepsFifoWithinTenant() throws Exception {
+        FairTaskQueue queue = new FairTaskQueue(new TenantRegistry());
+        Task first = task("a");
+        Task second = task("a");
+        queue.offer(first);
+        queue.offer(second);
+        assertEquals(first, queue.take());
+        assertEquals(second, queue.poll(10, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderingLanesTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:ordering-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        queue = new PersistentTaskQueue(db, null, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        db.close();
+    }
+
+    private Task keyed(String key) throws InterruptedException {
+        Task task = new Task("email", key);
+        task.setOrderingKey(key);
+        Thread.sleep(1);  // Distinct created_at, which defines submit order
+        return task;
+    }
+
+    private Task next() throws InterruptedException {
+        return next(200);
+    }
+
+    private Task next(long timeoutMs) throws InterruptedException {
+        Task task = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (task != null) assertTrue(queue.claim(task));
+        return task;
+    }
+
+    @Test
+    public void runsTasksWithTheSameKeyOneAtATime() throws Exception {
+        Task first = keyed("account-1");
+        Task second = keyed("account-1");
+        Task other = keyed("account-2");
+        queue.submit(first);
+        queue.submit(second);
+        queue.submit(other);
+
+        // Different keys run in parallel; the second account-1 task waits
+        Set<String> running = new HashSet<>();
+        running.add(next().getId());
+        running.add(next().getId());
+        assertEquals(Set.of(first.getId(), other.getId()), running);
+        assertNull(next());
+
+        queue.completeTask(first, null);
+        assertEquals(second.getId(), next().getId());
+    }
+
+    @Test
+    public void retriesKeepTheKey() throws Exception {
+        Task first = keyed("account-1");
+        Task second = keyed("account-1");
+        queue.submit(first);
+        queue.submit(second);
+
+        Task running = next();
+        assertEquals(first.getId(), running.getId());
+        running.incrementRetry();
+        queue.scheduleRetry(running, Duration.ZERO);
+
+        // The retry is paged back in and runs before the second task
+        assertEquals(first.getId(), next(3000).getId());
+        assertNull(next());
+
+        // Permanent failure releases the key
+        running.setStatus(TaskStatus.FAILED);
+        queue.failTask(running);
+        Task released = next();
+        assertNotNull(released);
+        assertEquals(second.getId(), released.getId());
+    }
+
+    @Test
+    public void cancellingAParkedTaskSkipsIt() throws Exception {
+        Task first = keyed("account-1");
+        Task second = keyed("account-1");
+        Task third = keyed("account-1");
+        queue.submit(first);
+        queue.submit(second);
+        queue.submit(third);
+
+        assertEquals(first.getId(), next().getId());
+        assertNull(next());
+        queue.cancelPending(second.getId());
+
+        queue.completeTask(first, null);
+        assertEquals(third.getId(), next().getId());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskStatus;
+import com.example.worker.TaskHandler;
+import com.example.worker.WorkerPool;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Restarts over the same database: after a drain, and after a crash
+public class RecoveryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DatabaseManager db;
+    private Path snapshot;
+    private final List<PersistentTaskQueue> queues = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:recovery-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        snapshot = folder.getRoot().toPath().resolve("queue.snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (PersistentTaskQueue queue : queues) queue.shutdown();
+        db.close();
+    }
+
+    private PersistentTaskQueue start(int maxInMemory) {
+        PersistentTaskQueue queue = new PersistentTaskQueue(db, snapshot, maxInMemory);
+        queues.add(queue);
+        return queue;
+    }
+
+    private static WorkerPool pool(PersistentTaskQueue queue, TaskHandler handler) {
+        WorkerPool pool = new WorkerPool(1, queue, new DeadLetterQueue());
+        pool.registerHandler(handler);
+        pool.start();
+        return pool;
+    }
+
+    @Test
+    public void drainCheckpointsTheRunningTaskAndRestartRunsEverything() throws Exception {
+        PersistentTaskQueue first = start(100);
+        CountDownLatch started = new CountDownLatch(1);
+        // Runs until interrupted by the drain
+        WorkerPool draining = pool(first, new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return "report";
+            }
+
+            @Override
+            public String handle(Task task) throws Exception {
+                started.countDown();
+                Thread.sleep(60_000);
+                return "late";
+            }
+        });
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) tasks.add(new Task("report", "month-" + i));
+        first.submitAll(tasks);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        draining.shutdown();
+        first.shutdown();
+        assertTrue(Files.exists(snapshot));
+        for (Task task : tasks) assertEquals(TaskStatus.PENDING, db.getTask(task.getId()).getStatus());
+
+        PersistentTaskQueue second = start(100);
+        assertFalse(Files.exists(snapshot));
+        WorkerPool restarted = pool(second, new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return "report";
+            }
+
+            @Override
+            public String handle(Task task) {
+                return "done " + task.getPayload();
+            }
+        });
+        try {
+            for (Task task : tasks) {
+                assertEquals("done " + task.getPayload(),
+                    second.getResults().await(task.getId()).get(10, TimeUnit.SECONDS).getResult());
+            }
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    public void crashLeavesProcessingTasksThatRestartResets() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) tasks.add(new Task("email", "user" + i + "@example.com"));
+        db.saveAll(tasks);
+        for (Task task : tasks) assertTrue(db.claim(task.getId()));
+
+        // No drain and no snapshot: the rows are all that is left
+        PersistentTaskQueue queue = start(100);
+        Set<String> polled = new HashSet<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = queue.poll(2, TimeUnit.SECONDS);
+            assertNotNull(task);
+            assertTrue(queue.claim(task));
+            polled.add(task.getId());
+        }
+        assertEquals(tasks.size(), polled.size());
+        assertEquals(TaskStatus.PROCESSING, db.getTask(tasks.get(0).getId()).getStatus());
+    }
+
+    @Test
+    public void backlogBeyondTheWindowIsPagedInAsItDrains() throws Exception {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) tasks.add(new Task("email", "user" + i + "@example.com"));
+        db.saveAll(tasks);
+
+        // A window of 8 lets one tenant hold 2
+        PersistentTaskQueue queue = start(8);
+        assertEquals(2, queue.size());
+        Set<String> done = new HashSet<>();
+        while (done.size() < tasks.size()) {
+            Task task = queue.poll(3, TimeUnit.SECONDS);
+            assertNotNull("backlog not paged in", task);
+            // A refill may page in a task just as it finishes; its claim fails
+            if (!queue.claim(task)) continue;
+            queue.completeTask(task, "sent");
+            done.add(task.getId());
+            assertTrue(queue.size() <= 2);
+        }
+        assertTrue(db.getAllTasks().isEmpty());
+    }
+}
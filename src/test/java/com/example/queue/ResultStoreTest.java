@@ -0,0 +1,81 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResultStoreTest {
+
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:results-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Test
+    public void servesResultsFromDatabaseAfterCacheEviction() {
+        ResultStore store = new ResultStore(db, Duration.ofMinutes(1), 1);
+        Task first = new Task("report", "a");
+        Task second = new Task("report", "b");
+        store.completed(first, "reports/a.pdf");
+        store.completed(second, "reports/b.pdf");
+
+        // Cache holds one entry; the first comes back from the results table
+        TaskResult result = store.get(first.getId());
+        assertEquals(TaskStatus.COMPLETED, result.getStatus());
+        assertEquals("reports/a.pdf", result.getResult());
+        store.shutdown();
+    }
+
+    @Test
+    public void expiredResultsAreNotServed() throws Exception {
+        ResultStore store = new ResultStore(db, Duration.ofMillis(1), 10);
+        Task task = new Task("email", "x@y.z");
+        store.completed(task, "sent");
+        Thread.sleep(5);
+        assertNull(store.get(task.getId()));
+        assertEquals(1, db.deleteExpiredResults(LocalDateTime.now(), 100));
+        store.shutdown();
+    }
+
+    @Test
+    public void awaitCompletesWhenTaskFinishes() throws Exception {
+        ResultStore store = new ResultStore(db);
+        Task task = new Task("email", "x@y.z");
+        CompletableFuture<TaskResult> waiter = store.await(task.getId());
+        assertFalse(waiter.isDone());
+
+        task.setStatus(TaskStatus.FAILED);
+        task.setErrorMessage("SMTP server timeout");
+        store.finished(List.of(task));
+
+        TaskResult result = waiter.get(1, TimeUnit.SECONDS);
+        assertEquals(TaskStatus.FAILED, result.getStatus());
+        assertEquals("SMTP server timeout", result.getErrorMessage());
+        // Already finished: a new waiter is complete immediately
+        assertTrue(store.await(task.getId()).isDone());
+        store.shutdown();
+    }
+}
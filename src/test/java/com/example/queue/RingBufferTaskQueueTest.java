@@ -0,0 +1,85 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.model.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class RingBufferTaskQueueTest {
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, new RingBufferTaskQueue(5).capacity());
+        assertEquals(1024, new RingBufferTaskQueue(1024).capacity());
+    }
+
+    @Test
+    public void isFifoAndRejectsWhenFull() {
+        RingBufferTaskQueue queue = new RingBufferTaskQueue(4);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Task task = new Task("test", "t" + i);
+            tasks.add(task);
+            assertTrue(queue.offer(task));
+        }
+        assertFalse(queue.offer(new Task("test", "overflow")));
+        assertEquals(4, queue.size());
+
+        for (Task task : tasks) {
+            assertSame(task, queue.tryPoll());
+        }
+        assertNull(queue.tryPoll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void timedPollReturnsNullWhenEmpty() throws InterruptedException {
+        RingBufferTaskQueue queue = new RingBufferTaskQueue(4, WaitStrategy.PARK);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void deliversEveryTaskExactlyOnceAcrossThreads() throws InterruptedException {
+        RingBufferTaskQueue queue = new RingBufferTaskQueue(64, WaitStrategy.YIELD);
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 20_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.submit(new Task("test", producer + "-" + i));
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer * producers / consumers; i++) {
+                        assertTrue(seen.add(queue.poll().getPayload()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join(30_000);
+
+        assertEquals(producers * perProducer, seen.size());
+        assertTrue(queue.isEmpty());
+    }
+}
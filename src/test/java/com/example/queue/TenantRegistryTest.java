@@ -0,0 +1,43 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class TenantRegistryTest {
+
+    private final TenantRegistry registry = new TenantRegistry();
+
+    @Test
+    public void rejectedAndFinishedTenantsAreNotKept() {
+        registry.setDefaultQuota(2);
+        assertFalse(registry.hasRoom("burst-1", 3));
+        assertTrue(registry.hasRoom("burst-2", 1));
+        assertTrue(registry.snapshot().isEmpty());
+
+        registry.submitted("acme", 2);
+        registry.pagedIn("acme");
+        assertFalse(registry.hasRoom("acme", 1));
+        assertEquals(List.of("acme"), registry.withUnpagedBacklog());
+        registry.pagedOut("acme");
+        registry.finished("acme");
+        registry.finished("acme");
+        assertTrue(registry.snapshot().isEmpty());
+        assertTrue(registry.withUnpagedBacklog().isEmpty());
+    }
+
+    @Test
+    public void tenantsWithSettingsAreKeptWhenIdle() {
+        registry.setQuota("acme", 10);
+        registry.setWeight("globex", 3);
+        registry.submitted("acme", 1);
+        registry.finished("acme");
+
+        assertEquals(10, registry.snapshot().get("acme").quota());
+        assertEquals(3, registry.getWeight("globex"));
+        assertEquals(2, registry.snapshot().size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.db.DatabaseManager;
+import com.example.model.Task;
+import com.example.model.TaskResult;
+import com.example.model.TaskStatus;
+import com.example.worker.TaskHandler;
+import com.example.worker.WorkerPool;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkflowTest {
+
+    private DatabaseManager db;
+    private PersistentTaskQueue queue;
+    private WorkerPool pool;
+    private final DeadLetterQueue dlq = new DeadLetterQueue();
+    private final ConcurrentLinkedQueue<String> ran = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        db = new DatabaseManager("jdbc:h2:mem:workflow-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        db.init();
+        queue = new PersistentTaskQueue(db, null, 100);
+        pool = new WorkerPool(2, queue, dlq);
+        // Payload "hold" waits for release, "fail" always fails
+        pool.registerHandler(new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return "step";
+            }
+
+            @Override
+            public String handle(Task task) throws Exception {
+                if (task.getPayload().equals("hold")) release.await(10, TimeUnit.SECONDS);
+                if (task.getPayload().equals("fail")) throw new Exception("step broke");
+                ran.add(task.getPayload());
+                return task.getPayload();
+            }
+        });
+        pool.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        pool.shutdown();
+        queue.shutdown();
+        db.close();
+    }
+
+    private static Task step(String payload, Task... parents) {
+        Task task = new Task("step", payload, 0);
+        task.setParentIds(List.of(parents).stream().map(Task::getId).toList());
+        return task;
+    }
+
+    private TaskResult await(Task task) throws Exception {
+        return queue.getResults().await(task.getId()).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void fanOutRunsChildrenAfterTheirParent() throws Exception {
+        Task parent = step("report");
+        List<Task> children = List.of(step("a", parent), step("b", parent), step("c", parent));
+        queue.submit(parent);
+        queue.submitAll(children);
+
+        for (Task child : children) assertEquals(TaskStatus.COMPLETED, await(child).getStatus());
+        assertEquals("report", ran.peek());
+        assertEquals(4, ran.size());
+    }
+
+    @Test
+    public void fanInWaitsForEveryParent() throws Exception {
+        Task fast = step("fast");
+        Task slow = step("hold");
+        Task join = step("join", fast, slow);
+        queue.submitAll(List.of(fast, slow, join));
+
+        await(fast);
+        Thread.sleep(200);
+        assertNull(queue.getResults().get(join.getId()));
+        assertEquals(TaskStatus.WAITING, db.getTask(join.getId()).getStatus());
+
+        release.countDown();
+        assertEquals(TaskStatus.COMPLETED, await(join).getStatus());
+        assertEquals(List.of("fast", "hold", "join"), List.copyOf(ran));
+    }
+
+    @Test
+    public void repeatedParentIsWaitedForOnce() throws Exception {
+        Task parent = step("report");
+        Task child = step("email", parent, parent);
+        assertEquals(List.of(parent.getId()), child.getParentIds());
+        queue.submitAll(List.of(parent, child));
+
+        assertEquals(TaskStatus.COMPLETED, await(child).getStatus());
+        assertEquals(List.of("report", "email"), List.copyOf(ran));
+    }
+
+    @Test
+    public void failedParentFailsItsDescendants() throws Exception {
+        Task parent = step("fail");
+        Task child = step("child", parent);
+        Task grandchild = step("grandchild", child);
+        queue.submitAll(List.of(parent, child, grandchild));
+
+        assertEquals(TaskStatus.FAILED, await(parent).getStatus());
+        assertEquals(TaskStatus.FAILED, await(child).getStatus());
+        assertEquals(TaskStatus.FAILED, await(grandchild).getStatus());
+        assertTrue(ran.isEmpty());
+
+        // A child submitted after the parent failed is stored failed
+        Task late = step("late", parent);
+        queue.submitAll(List.of(late));
+        assertEquals(TaskStatus.FAILED, await(late).getStatus());
+        // The workers dead-letter just after publishing the result
+        for (int i = 0; i < 100 && dlq.size() < 4; i++) Thread.sleep(50);
+        assertEquals(4, dlq.size());
+    }
+
+    @Test
+    public void unknownParentRejectsTheBatch() throws Exception {
+        Task parent = step("report");
+        queue.submit(parent);
+        await(parent);
+        Task orphan = new Task("step", "orphan");
+        orphan.setParentIds(List.of("deadbeef"));
+        Task sibling = step("sibling", parent);
+        try {
+            queue.submitAll(List.of(sibling, orphan));
+            fail("expected the unknown parent to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown parent task: deadbeef", e.getMessage());
+        }
+        assertNull(db.getTask(sibling.getId()));
+        assertNull(db.getTask(orphan.getId()));
+
+        // A completed parent is still known by its result
+        Task child = step("child", parent);
+        queue.submitAll(List.of(child));
+        assertEquals(TaskStatus.COMPLETED, await(child).getStatus());
+    }
+}
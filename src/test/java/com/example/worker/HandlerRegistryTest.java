@@ -0,0 +1,97 @@
+package com.example.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.model.Task;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class HandlerRegistryTest {
+
+    private static TaskHandler handler(String type) {
+        return new TaskHandler() {
+            @Override
+            public String getTaskType() {
+                return type;
+            }
+
+            @Override
+            public String handle(Task task) {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void replacedHandlerDrainsAfterRunningTasks() {
+        HandlerRegistry registry = new HandlerRegistry();
+        TaskHandler first = handler("email");
+        TaskHandler second = handler("email");
+        registry.register(first);
+
+        HandlerRegistry.Registration running = registry.acquire("email");
+        CompletableFuture<Void> drained = registry.register(second);
+
+        // New tasks get the replacement; the old one waits for its task
+        HandlerRegistry.Registration next = registry.acquire("email");
+        assertSame(second, next.handler());
+        next.exit();
+        assertFalse(drained.isDone());
+
+        running.exit();
+        assertTrue(drained.isDone());
+    }
+
+    @Test
+    public void drainedTypeHasNoHandler() {
+        HandlerRegistry registry = new HandlerRegistry();
+        registry.register(handler("email"));
+        assertTrue(registry.drain("email").isDone());
+        assertNull(registry.acquire("email"));
+        assertNull(registry.drain("email"));
+    }
+
+    @Test
+    public void fullBulkheadRejects() throws Exception {
+        HandlerRegistry registry = new HandlerRegistry();
+        registry.register(handler("report"), 1);
+        CountDownLatch never = new CountDownLatch(1);
+        Runnable block = () -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // One running plus four queued fill a single-thread bulkhead
+        HandlerRegistry.Registration registration = registry.acquire("report");
+        for (int i = 0; i < 5; i++) registration.execute(new Task("report", "r" + i), block);
+        try {
+            registration.execute(new Task("report", "overflow"), block);
+            fail("Expected the bulkhead to be full");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        assertEquals(4, registry.snapshot().get(0).queued());
+
+        // Shutdown hands back the queued tasks and interrupts the running one
+        assertEquals(4, registry.shutdown(100, TimeUnit.MILLISECONDS).size());
+    }
+
+    @Test
+    public void discoversBuiltInHandlers() {
+        HandlerRegistry registry = new HandlerRegistry();
+        assertEquals(2, registry.discover());
+        assertEquals("email", registry.snapshot().get(0).type());
+        assertEquals(2, registry.snapshot().get(1).maxConcurrency());
+    }
+}
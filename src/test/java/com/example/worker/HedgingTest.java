@@ -0,0 +1,160 @@
+package com.example.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.metrics.MetricsCollector;
+import com.example.model.Task;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class HedgingTest {
+
+    private final TaskWatchdog watchdog = new TaskWatchdog();
+    private final MetricsCollector metrics = MetricsCollector.getInstance();
+
+    // Fast unless the payload is "straggle", whose first run hangs until interrupted
+    private static class ReportHandler implements TaskHandler {
+        final boolean idempotent;
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        ReportHandler(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        @Override
+        public String getTaskType() {
+            return "report";
+        }
+
+        @Override
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+
+        @Override
+        public String handle(Task task) throws Exception {
+            int run = runs.incrementAndGet();
+            if (task.getPayload().equals("straggle") && run == 1) {
+                try {
+                    Thread.sleep(2000);
+                    return "slow";
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+            Thread.sleep(5);
+            return "run " + run;
+        }
+    }
+
+    // Idempotent with a bulkhead of 2; "slow" runs take 300ms
+    private static class BoundedHandler implements TaskHandler {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+
+        @Override
+        public String getTaskType() {
+            return "report";
+        }
+
+        @Override
+        public boolean isIdempotent() {
+            return true;
+        }
+
+        @Override
+        public int getMaxConcurrency() {
+            return 2;
+        }
+
+        @Override
+        public String handle(Task task) throws Exception {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(task.getPayload().equals("slow") ? 300 : 5);
+                return "done";
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        watchdog.shutdown();
+    }
+
+    private void warmUp(TaskHandler handler) throws Exception {
+        for (int i = 0; i < 30; i++) watchdog.run(new Task("report", "warm"), handler, 0);
+    }
+
+    @Test
+    public void stragglerIsRacedAndTheLoserInterrupted() throws Exception {
+        ReportHandler handler = new ReportHandler(true);
+        // Warm-up runs that jitter past p95 may spend the default 5% budget
+        watchdog.getHedger().budget(1);
+        warmUp(handler);
+        assertTrue(watchdog.getHedger().getThresholdMs("report") >= 0);
+        handler.runs.set(0);
+        long hedges = metrics.getHedges();
+        long wins = metrics.getHedgeWins();
+
+        long start = System.nanoTime();
+        String result = watchdog.run(new Task("report", "straggle"), handler, 10_000);
+        assertEquals("run 2", result);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(handler.interrupted.await(1, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getHedges() - hedges);
+        assertEquals(1, metrics.getHedgeWins() - wins);
+    }
+
+    @Test
+    public void emptyBudgetLeavesStragglersAlone() throws Exception {
+        ReportHandler handler = new ReportHandler(true);
+        watchdog.getHedger().budget(0);
+        warmUp(handler);
+        handler.runs.set(0);
+        long denied = metrics.getHedgesDenied();
+
+        assertEquals("slow", watchdog.run(new Task("report", "straggle"), handler, 10_000));
+        assertEquals(1, handler.runs.get());
+        assertEquals(1, metrics.getHedgesDenied() - denied);
+    }
+
+    @Test
+    public void nonIdempotentHandlersAreNeverHedged() throws Exception {
+        ReportHandler handler = new ReportHandler(false);
+        warmUp(handler);
+        handler.runs.set(0);
+
+        assertEquals("slow", watchdog.run(new Task("report", "straggle"), handler, 10_000));
+        assertEquals(1, handler.runs.get());
+        assertEquals(-1, watchdog.getHedger().getThresholdMs("report"));
+    }
+
+    @Test
+    public void bulkheadedTypesStayWithinTheirConcurrency() throws Exception {
+        BoundedHandler handler = new BoundedHandler();
+        watchdog.getHedger().budget(1);
+        warmUp(handler);
+        long hedges = metrics.getHedges();
+
+        // Both bulkhead threads busy with stragglers
+        ExecutorService bulkhead = Executors.newFixedThreadPool(handler.getMaxConcurrency());
+        for (int i = 0; i < handler.getMaxConcurrency(); i++) {
+            bulkhead.submit(() -> watchdog.run(new Task("report", "slow"), handler, 10_000));
+        }
+        bulkhead.shutdown();
+        assertTrue(bulkhead.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(handler.peak.get() <= handler.getMaxConcurrency());
+        assertEquals(0, metrics.getHedges() - hedges);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.worker;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PoolAutoscalerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // One tick with every worker busy for the whole interval
+    private static int busyTick(PoolAutoscaler scaler, int workers, int backlog, long now) {
+        return scaler.decide(workers, backlog, workers * SECOND, now);
+    }
+
+    @Test
+    public void growsOnlyAfterSustainedPressure() {
+        PoolAutoscaler scaler = new PoolAutoscaler(2, 8);
+        long now = scaler.intervalStart();
+
+        assertEquals(2, busyTick(scaler, 2, 50, now += SECOND));
+        assertEquals(3, busyTick(scaler, 2, 50, now += SECOND));
+        // Cooldown holds the next step back even though pressure persists
+        assertEquals(3, busyTick(scaler, 3, 50, now += SECOND));
+        assertEquals(4, busyTick(scaler, 3, 50, now += SECOND));
+    }
+
+    @Test
+    public void doesNotGrowWhenBusyWithoutBacklog() {
+        PoolAutoscaler scaler = new PoolAutoscaler(2, 8);
+        long now = scaler.intervalStart();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, busyTick(scaler, 2, 0, now += SECOND));
+        }
+    }
+
+    @Test
+    public void shrinksOneAtATimeWhenIdle() {
+        PoolAutoscaler scaler = new PoolAutoscaler(2, 8);
+        long now = scaler.intervalStart();
+        int workers = 4;
+        for (int i = 0; i < 4; i++) {
+            workers = scaler.decide(workers, 0, 0, now += SECOND);
+            assertEquals(4, workers);
+        }
+        assertEquals(3, scaler.decide(workers, 0, 0, now += SECOND));
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        PoolAutoscaler scaler = new PoolAutoscaler(2, 3);
+        long now = scaler.intervalStart();
+        int workers = 3;
+        for (int i = 0; i < 10; i++) {
+            workers = busyTick(scaler, workers, 100, now += 5 * SECOND);
+        }
+        assertEquals(3, workers);
+        for (int i = 0; i < 30; i++) {
+            workers = scaler.decide(workers, 0, 0, now += 5 * SECOND);
+        }
+        assertEquals(2, workers);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.model.Task;
+import com.example.queue.InMemoryTaskQueue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class WorkStealingDispatcherTest {
+
+    private final InMemoryTaskQueue source = new InMemoryTaskQueue();
+    private final WorkStealingDispatcher dispatcher = new WorkStealingDispatcher(source, 4);
+
+    private List<Task> submit(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("email", "user" + i + "@example.com");
+            source.submit(task);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static Set<String> ids(List<Task> tasks) {
+        Set<String> ids = new HashSet<>();
+        for (Task task : tasks) ids.add(task.getId());
+        return ids;
+    }
+
+    @Test
+    public void stoppedWorkersPrefetchedTasksAreNotLost() throws Exception {
+        List<Task> tasks = submit(10);
+        WorkStealingDispatcher.LocalQueue stopping = dispatcher.register();
+        WorkStealingDispatcher.LocalQueue other = dispatcher.register();
+
+        List<Task> taken = new ArrayList<>();
+        taken.add(dispatcher.next(stopping));
+        assertEquals(3, stopping.size());
+        dispatcher.unregister(stopping);
+        assertEquals(3, dispatcher.buffered());
+
+        Task task;
+        while ((task = dispatcher.next(other)) != null) taken.add(task);
+        assertEquals(10, taken.size());
+        assertEquals(ids(tasks), ids(taken));
+        assertEquals(0, dispatcher.buffered());
+    }
+
+    @Test
+    public void idleWorkerStealsFromTheTail() throws Exception {
+        List<Task> tasks = submit(4);
+        WorkStealingDispatcher.LocalQueue busy = dispatcher.register();
+        WorkStealingDispatcher.LocalQueue idle = dispatcher.register();
+
+        assertEquals(tasks.get(0).getId(), dispatcher.next(busy).getId());
+        assertTrue(source.isEmpty());
+        assertEquals(tasks.get(3).getId(), dispatcher.next(idle).getId());
+        assertEquals(tasks.get(1).getId(), dispatcher.next(busy).getId());
+        assertEquals(1, busy.size());
+    }
+
+    @Test
+    public void drainTakesEveryUnstartedTask() throws Exception {
+        List<Task> tasks = submit(8);
+        WorkStealingDispatcher.LocalQueue first = dispatcher.register();
+        WorkStealingDispatcher.LocalQueue second = dispatcher.register();
+        Task started = dispatcher.next(first);
+        Task alsoStarted = dispatcher.next(second);
+        dispatcher.unregister(second);
+
+        List<Task> drained = dispatcher.drainBuffered();
+        assertEquals(6, drained.size());
+        assertEquals(0, dispatcher.buffered());
+        drained.add(started);
+        drained.add(alsoStarted);
+        assertEquals(ids(tasks), ids(drained));
+        assertNull(dispatcher.next(first));
+    }
+}